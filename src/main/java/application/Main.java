@@ -28,6 +28,10 @@ public class Main extends Application {
             stage.close();
         });
 
+        // Simulation of the window the user works with runs faster when all windows compete for the processors
+        stage.focusedProperty().addListener((observable, wasFocused, focused) ->
+                mainApplicationController.setFocused(focused));
+
         stage.setTitle("Catachan Simulator 1.0");
         stage.setScene(new Scene(root));
         stage.getScene().getStylesheets().add(getClass().getResource("/css/main.css").toExternalForm());
@@ -0,0 +1,48 @@
+package application;
+
+import datatypes.containers.StatisticsContainer;
+import util.FileParser;
+import util.replay.ReplayEngine;
+import util.replay.ReplayResult;
+import util.replay.RunDescriptor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays a recorded run without the user interface.
+ * Usage: ReplayMain <run descriptor> <statistics log>...
+ * A rotated export is given as all of its files, in the order they were written
+ * Exits with status 1 if the replay diverged from the recorded run
+ */
+public class ReplayMain {
+    public static void main(String[] args) {
+        if(args.length < 2) {
+            System.err.println("Usage: ReplayMain <run descriptor> <statistics log>...");
+            System.exit(2);
+        }
+
+        FileParser parser = new FileParser();
+        RunDescriptor descriptor;
+        List<StatisticsContainer> recordedStatistics = new ArrayList<>();
+
+        try {
+            descriptor = parser.readRunDescriptor(args[0]);
+            for(int i = 1; i < args.length; i++) {
+                recordedStatistics.addAll(parser.readStatisticsLog(args[i]));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(2);
+            return;
+        }
+
+        ReplayResult result = ReplayEngine.replay(descriptor, recordedStatistics);
+        System.out.println(result);
+
+        if(!result.isIdentical()) {
+            System.exit(1);
+        }
+    }
+}
@@ -3,36 +3,64 @@ package application.controllers;
 import application.controllers.alertBox.NumberInputAlertBoxController;
 import application.controllers.alertBox.StatisticsPopupController;
 import application.controllers.charts.BarChartController;
-import application.controllers.charts.LineChartController;
 import datatypes.Direction;
+import datatypes.SimulationPhase;
 import datatypes.Vector2d;
 import datatypes.containers.FollowedAnimalStatisticsContainer;
+import datatypes.containers.SimulationFrame;
 import datatypes.containers.StatisticsContainer;
-import datatypes.ui.Cell;
+import datatypes.observers.IDayStatisticsObserver;
+import datatypes.observers.ISimulationPhaseObserver;
 import datatypes.ui.Grid;
+import datatypes.ui.MapOverlay;
+import datatypes.ui.MapPainter;
+import datatypes.ui.TimeSeriesChart;
 import entities.Animal;
 import entities.Simulation;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.chart.BarChart;
-import javafx.scene.chart.LineChart;
 import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.ListView;
 import javafx.scene.layout.Pane;
-import javafx.scene.paint.Color;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import managers.SimulationRunner;
 import util.FileParser;
 import util.Parameters;
+import util.columnar.ColumnarStatisticsWriter;
+import util.export.ExportFormat;
+import util.export.StreamingStatisticsExporter;
+import util.recording.WorldRecorder;
+import util.replay.RunDescriptor;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.*;
 
 public class MainApplicationController extends AbstractController implements Initializable {
+    private static final String CHECKPOINT_FILE_NAME = "checkpoint.bin";
+    private static final int GENOME_LENGTH = 32;
+    private static final int NUMBER_OF_GENES = 8;
+    // Speeds to choose from, in days per second
+    private static final Map<String, Double> SPEEDS = new LinkedHashMap<>();
+    private static final String DEFAULT_SPEED = "11 days/s";
+
+    static {
+        SPEEDS.put("1 day/s", 1.0);
+        SPEEDS.put("5 days/s", 5.0);
+        SPEEDS.put("11 days/s", 11.0);
+        SPEEDS.put("30 days/s", 30.0);
+        SPEEDS.put("100 days/s", 100.0);
+        SPEEDS.put("Unlimited", SimulationRunner.UNLIMITED_SPEED);
+    }
+
     // Buttons on the main window
     public Button startButton;
     public Button pauseButton;
@@ -42,28 +70,42 @@ public class MainApplicationController extends AbstractController implements Ini
     public Button loadButton;
     public Button followButton;
     public Button saveStatisticsButton;
+    public Button checkpointButton;
+    public Button restoreButton;
+    public Button runDaysButton;
+    public ChoiceBox<String> speedChoiceBox;
+    public ChoiceBox<MapOverlay> overlayChoiceBox;
 
     public Pane mapPane;
     // Statistics
     public ListView<String> statisticsList;
-    public LineChart<String, Number> populationsAndEnergyChart;
-    public LineChart<String, Number> lifespanChart;
-    public LineChart<String, Number> childrenChart;
+    public TimeSeriesChart populationsAndEnergyChart;
+    public TimeSeriesChart lifespanChart;
+    public TimeSeriesChart childrenChart;
     public BarChart<String, Number> genesChart;
 
-    private LineChartController populationsAndEnergyChartController;
-    private LineChartController lifespanChartController;
-    private LineChartController childrenChartController;
     private BarChartController genesChartController;
     // Map Grid
     private Grid grid;
 
-    // Main simulation manager
+    // Main simulation manager. While the runner isn't paused, it's used only by the simulation host
     private Simulation simulationManager;
-    // Simulation thread
-    Thread simulationThread;
+    // Runs the simulation on the host shared by all windows, null if no simulation was started
+    private SimulationRunner simulationRunner;
+    // Shows the newest frame published by the runner on every pulse of the user interface
+    private AnimationTimer frameTimer;
+    // Exports statistics and saves checkpoints at the end of every day, on the simulation thread
+    private final ISimulationPhaseObserver dayObserver = this::phaseFinished;
+    private final IDayStatisticsObserver statisticsObserver = this::dayStatisticsReady;
     // For parameters parsing
     private FileParser jsonParser;
+    // Daily statistics export, null if disabled
+    private StreamingStatisticsExporter statisticsExporter;
+    private ColumnarStatisticsWriter columnarStatisticsWriter;
+    // Recording of every simulated day, null if disabled
+    private WorldRecorder worldRecorder;
+    // Description of the current run, null if the simulation was restored from a checkpoint
+    private RunDescriptor runDescriptor;
 
     // Parameters of the simulation
     Parameters parameters;
@@ -71,77 +113,91 @@ public class MainApplicationController extends AbstractController implements Ini
     // Followed animal
     private Animal followedAnimal;
     // If set to -1, then we don't have to show any popups
-    private int daysToShowStatisticsPopup;
+    private int statisticsPopupDay;
     // Same as above
-    private int daysToSaveStatisticsToAFile;
+    private int statisticsFileDay;
+    // Day until which the simulation was asked to run, or -1
+    private int runDaysTargetDay;
     // Currently selected Animal
     private Animal selectedAnimal;
-
-    private boolean running;
+    // Simulation of the focused window gets a bigger share of the simulation host
+    private boolean focused;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         jsonParser = new FileParser();
-        daysToShowStatisticsPopup = -1;
-        daysToSaveStatisticsToAFile = -1;
-
-        startButton.setOnAction(event -> {
-
+        statisticsPopupDay = -1;
+        statisticsFileDay = -1;
+        runDaysTargetDay = -1;
+
+        speedChoiceBox.getItems().addAll(SPEEDS.keySet());
+        speedChoiceBox.setValue(DEFAULT_SPEED);
+        speedChoiceBox.setOnAction(event -> {
+            if(simulationRunner != null) {
+                simulationRunner.setDaysPerSecond(SPEEDS.get(speedChoiceBox.getValue()));
+            }
+        });
 
-            if(simulationThread != null && simulationThread.isAlive()) {
-                simulationThread.interrupt();
+        overlayChoiceBox.getItems().addAll(MapOverlay.values());
+        overlayChoiceBox.setValue(MapOverlay.NONE);
+        overlayChoiceBox.setOnAction(event -> {
+            if(grid != null) {
+                grid.setOverlay(overlayChoiceBox.getValue());
             }
 
-            // Clearing the charts
-            lifespanChart.getData().clear();
-            childrenChart.getData().clear();
-            populationsAndEnergyChart.getData().clear();
-            genesChart.getData().clear();
+            if(simulationRunner != null) {
+                // Block statistics come with the next frame
+                simulationRunner.setPublishingBlockStatistics(overlayChoiceBox.getValue() != MapOverlay.NONE);
+                simulationRunner.repaintAll();
+            } else {
+                refreshMap();
+            }
+        });
 
-            // Resetting the countdown until statistics box
-            daysToShowStatisticsPopup = -1;
+        frameTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                showNewestFrame();
+            }
+        };
+        frameTimer.start();
 
-            // Unhighlighting all cells
-            grid.unhighlightAll();
+        startButton.setOnAction(event -> {
+            stopSimulation();
+            resetView();
 
             try {
                 runSimulation();
-                pauseButton.setDisable(false);
-                stopButton.setDisable(false);
-                startButton.setDisable(true);
-
-                Cell.canBeClicked = false;
+                setRunningButtonsState();
             } catch (IllegalArgumentException e) {
                 showAlertBox(e.getMessage());
             }
         });
 
         pauseButton.setOnAction(event -> {
-            Cell.canBeClicked = true;
-            running = false;
-            followButton.setDisable(false);
-            resumeButton.setDisable(false);
-            saveStatisticsButton.setDisable(false);
+            if(simulationRunner != null) {
+                simulationRunner.pause();
+                runDaysTargetDay = -1;
+                setPausedButtonsState();
+            }
         });
 
-        resumeButton.setOnAction(event -> {
-            followButton.setDisable(true);
-            resumeButton.setDisable(true);
-            saveStatisticsButton.setDisable(true);
-            running = true;
+        resumeButton.setOnAction(event -> resumeSimulation());
+
+        runDaysButton.setOnAction(event -> {
+            Optional<Integer> numberOfDays = loadNumber("Give number of days");
+
+            if(numberOfDays.isPresent() && numberOfDays.get() > 0) {
+                runDaysTargetDay = simulationManager.getCurrentDay() + numberOfDays.get();
+                resumeSimulation();
+            } else {
+                showAlertBox("Ups! Wrong value!");
+            }
         });
 
         stopButton.setOnAction(event -> {
-            resumeButton.setDisable(true);
-            pauseButton.setDisable(true);
-            stopButton.setDisable(true);
-            saveStatisticsButton.setDisable(true);
-            followButton.setDisable(true);
-            startButton.setDisable(false);
-
-            if(simulationThread != null) {
-                simulationThread.interrupt();
-            }
+            stopSimulation();
+            setStoppedButtonsState();
         });
 
         addMapButton.setOnAction(event -> {
@@ -153,18 +209,19 @@ public class MainApplicationController extends AbstractController implements Ini
         });
 
         loadButton.setOnAction(event -> {
-            startButton.setDisable(false);
+            stopSimulation();
+            setStoppedButtonsState();
             loadParametersFromFile();
         });
 
         followButton.setOnAction(event -> {
             if(selectedAnimal != null) {
                 followedAnimal = selectedAnimal;
-                simulationManager.setFollowedAnimal(followedAnimal);
+                simulationRunner.setFollowedAnimal(followedAnimal);
 
                 Optional<Integer> dayToShowPopup = loadNumber("Give number of days");
                 if(dayToShowPopup.isPresent() && dayToShowPopup.get() > 0) {
-                    daysToShowStatisticsPopup = dayToShowPopup.get();
+                    statisticsPopupDay = simulationManager.getCurrentDay() + dayToShowPopup.get();
                 } else {
                     showAlertBox("Ups! Wrong value!");
                 }
@@ -175,117 +232,465 @@ public class MainApplicationController extends AbstractController implements Ini
             Optional<Integer> dayToShowPopup = loadNumber("Give number of days");
 
             if(dayToShowPopup.isPresent() && dayToShowPopup.get() > 0) {
-                daysToSaveStatisticsToAFile = dayToShowPopup.get();
+                statisticsFileDay = simulationManager.getCurrentDay() + dayToShowPopup.get();
             } else {
                 showAlertBox("Ups! Wrong value!");
             }
         });
+
+        checkpointButton.setOnAction(event -> {
+            // Pausing doesn't wait for the current day, the state can be saved once the pause is applied
+            if(simulationRunner != null && !simulationRunner.isPaused()) {
+                showAlertBox("The simulation is finishing the current day, try again in a moment");
+            } else if(saveCheckpoint()) {
+                showAlertBox("State saved");
+            } else {
+                showAlertBox("Error while saving the state");
+            }
+        });
+
+        restoreButton.setOnAction(event -> restoreFromCheckpoint());
+    }
+
+    /**
+     * Clears the charts, the statistics popup countdown and the highlighted cells
+     */
+    private void resetView() {
+        // Clearing the charts
+        lifespanChart.clear();
+        childrenChart.clear();
+        populationsAndEnergyChart.clear();
+        genesChart.getData().clear();
+
+        // Resetting the countdown until statistics box
+        statisticsPopupDay = -1;
+        statisticsFileDay = -1;
+        runDaysTargetDay = -1;
+
+        // Unhighlighting all cells
+        if(grid != null) {
+            grid.unhighlightAll();
+        }
+    }
+
+    private void setRunningButtonsState() {
+        pauseButton.setDisable(false);
+        stopButton.setDisable(false);
+        startButton.setDisable(true);
+        followButton.setDisable(true);
+        resumeButton.setDisable(true);
+        runDaysButton.setDisable(true);
+        saveStatisticsButton.setDisable(true);
+        checkpointButton.setDisable(true);
+
+        if(grid != null) {
+            grid.setClickable(false);
+        }
+    }
+
+    private void resumeSimulation() {
+        if(simulationRunner == null) {
+            return;
+        }
+
+        followButton.setDisable(true);
+        resumeButton.setDisable(true);
+        runDaysButton.setDisable(true);
+        saveStatisticsButton.setDisable(true);
+        checkpointButton.setDisable(true);
+
+        if(grid != null) {
+            grid.setClickable(false);
+            grid.unhighlightAll();
+        }
+
+        simulationRunner.runUntil(getNextPauseDay());
+    }
+
+    private void setStoppedButtonsState() {
+        runDaysButton.setDisable(true);
+        resumeButton.setDisable(true);
+        pauseButton.setDisable(true);
+        stopButton.setDisable(true);
+        saveStatisticsButton.setDisable(true);
+        checkpointButton.setDisable(true);
+        followButton.setDisable(true);
+        startButton.setDisable(false);
+    }
+
+    private void setPausedButtonsState() {
+        followButton.setDisable(false);
+        resumeButton.setDisable(false);
+        runDaysButton.setDisable(false);
+        saveStatisticsButton.setDisable(false);
+        checkpointButton.setDisable(false);
+
+        if(grid != null) {
+            grid.setClickable(true);
+        }
+    }
+
+    /**
+     * Returns the nearest day on which the simulation has to be paused, to show the statistics popup,
+     * save the statistics or finish running the chosen number of days
+     *
+     * @return The day, or -1 if the simulation doesn't have to be paused
+     */
+    private int getNextPauseDay() {
+        int result = -1;
+
+        for(int day : new int[]{statisticsPopupDay, statisticsFileDay, runDaysTargetDay}) {
+            if(day != -1 && (result == -1 || day < result)) {
+                result = day;
+            }
+        }
+
+        return result;
     }
 
     private void runSimulation() {
         if(parameters != null) {
             Optional<Integer> startingNumberOfAnimalsOptional = loadNumber("Choose the starting number of animals");
 
-            running = true;
+            long seed = parameters.seed != null ? parameters.seed : new Random().nextLong();
             simulationManager = new Simulation(parameters.width, parameters.height, parameters.startEnergy,
-                    parameters.plantEnergy, parameters.moveEnergy, parameters.jungleRatio, 32, 8);
-
-            populationsAndEnergyChartController = new LineChartController(populationsAndEnergyChart, "Day",
-                    List.of("Animals", "Plants", "Mean Energy"));
-            lifespanChartController = new LineChartController(lifespanChart, "Day",
-                    List.of("Mean Lifespan"));
-            childrenChartController = new LineChartController(childrenChart, "Day",
-                    List.of("Avg. number of children"));
-            genesChartController = new BarChartController(genesChart);
-
-            simulationThread = new Thread(() -> {
-                while(!Thread.currentThread().isInterrupted()){
-                    Platform.runLater(() -> {
-                        if (running) {
-                            try {
-                                simulationManager.simulateDay();
-
-                                refreshMap();
-
-                                // Getting the statistics at the ned of the day
-                                StatisticsContainer dayStatistics = simulationManager.getCurrentDayStatistics();
-                                //System.out.println(dayStatistics.meanLifespan);
-
-                                populationsAndEnergyChartController.addSeriesEntry("Animals",
-                                        dayStatistics.currentDay, dayStatistics.numberOfAnimals);
-                                populationsAndEnergyChartController.addSeriesEntry("Plants",
-                                        dayStatistics.currentDay, dayStatistics.numberOfPlants);
-                                populationsAndEnergyChartController.addSeriesEntry("Mean Energy",
-                                        dayStatistics.currentDay, dayStatistics.meanEnergyLevel);
-                                childrenChartController.addSeriesEntry("Avg. number of children",
-                                        dayStatistics.currentDay, dayStatistics.meanNumberOfChildren);
-                                lifespanChartController.addSeriesEntry("Mean Lifespan",
-                                        dayStatistics.currentDay, dayStatistics.meanLifespan);
-
-                                Map<Direction, Integer> genesCount = dayStatistics.genesCount;
-                                Map<String, Number> genesCountWithStringLabels = new LinkedHashMap<>();
-
-                                for(Direction direction : genesCount.keySet()) {
-                                    genesCountWithStringLabels.put(direction.toString(), genesCount.get(direction));
-                                }
-
-                                genesChartController.updateSeries(genesCountWithStringLabels);
-
-                                if(daysToShowStatisticsPopup == 0) {
-                                    running = false;
-                                    followButton.setDisable(false);
-                                    resumeButton.setDisable(false);
-
-                                    daysToShowStatisticsPopup = -1;
-                                    showStatisticsWindow(simulationManager.getFollowedAnimalStatistics());
-                                } else if(daysToShowStatisticsPopup != -1){
-                                    daysToShowStatisticsPopup -= 1;
-                                }
-
-                                if(daysToSaveStatisticsToAFile == 0) {
-                                    running = false;
-                                    followButton.setDisable(false);
-
-                                    daysToSaveStatisticsToAFile -= 1;
-                                    jsonParser.exportStatistics(simulationManager.getOverallStatistics());
-                                    showAlertBox("Statistics saved");
-                                } else if(daysToSaveStatisticsToAFile != -1) {
-                                    daysToSaveStatisticsToAFile -= 1;
-                                }
-
-                                if(simulationManager.getNumberOfAnimals() == 0) {
-                                    running = false;
-
-                                    if(daysToShowStatisticsPopup != -1) {
-                                        showStatisticsWindow(simulationManager.getFollowedAnimalStatistics());
-                                    }
-                                }
-                            } catch (Exception exception) {
-                                exception.printStackTrace();
-                                simulationThread.interrupt();
-                                showAlertBox("Ups! Something went wrong " + exception.getMessage());
-                            }
-                        }
-                    });
-
-                    try{
-                        Thread.sleep(90);
-                    } catch(InterruptedException e){
-                        break;
-                    }
-                }
-            });
+                    parameters.plantEnergy, parameters.moveEnergy, parameters.jungleRatio, GENOME_LENGTH, NUMBER_OF_GENES,
+                    seed);
+            simulationManager.setDoubleBuffered(parameters.doubleBuffered);
 
             if(startingNumberOfAnimalsOptional.isPresent()) {
-                int startingNumberOfAnimals = startingNumberOfAnimalsOptional.get();
-                if (simulationManager != null) {
-                    simulationManager.generateAnimalsAtRandomPositions(startingNumberOfAnimals);
-                    refreshMap();
-                    simulationThread.start();
+                simulationManager.generateAnimalsAtRandomPositions(startingNumberOfAnimalsOptional.get());
+                runDescriptor = new RunDescriptor(parameters, seed, startingNumberOfAnimalsOptional.get(),
+                        GENOME_LENGTH, NUMBER_OF_GENES);
+                startSimulationThread();
+            }
+        }
+    }
+
+    /**
+     * Prepares the charts and starts running the current simulation on the shared simulation host
+     */
+    private void startSimulationThread() {
+        populationsAndEnergyChart.setSeries("Day", List.of("Animals", "Plants", "Mean Energy"));
+        lifespanChart.setSeries("Day", List.of("Mean Lifespan"));
+        childrenChart.setSeries("Day", List.of("Avg. number of children"));
+        genesChartController = new BarChartController(genesChart);
+
+        openStatisticsExporter();
+        openColumnarStatisticsWriter();
+        openWorldRecorder();
+        simulationManager.addPhaseObserver(dayObserver);
+
+        simulationRunner = new SimulationRunner(simulationManager);
+        simulationRunner.setDaysPerSecond(SPEEDS.get(speedChoiceBox.getValue()));
+        simulationRunner.setPriority(getPriority());
+        simulationRunner.setPublishingBlockStatistics(overlayChoiceBox.getValue() != MapOverlay.NONE);
+        simulationRunner.setPipelineDepth(parameters.pipelineDepth);
+        simulationRunner.addStatisticsObserver(statisticsObserver);
+        simulationRunner.repaintAll();
+        simulationRunner.runUntil(getNextPauseDay());
+    }
+
+    /**
+     * Stops the simulation runner, if there is one, and finishes the export and the recording
+     */
+    private void stopSimulation() {
+        if(simulationRunner != null) {
+            simulationRunner.close();
+            simulationRunner = null;
+
+            simulationManager.removePhaseObserver(dayObserver);
+        }
+
+        closeStatisticsExporter();
+        closeColumnarStatisticsWriter();
+        closeWorldRecorder();
+    }
+
+    // Simulation thread
+    private void phaseFinished(Simulation simulation, SimulationPhase phase) {
+        if(!phase.isLastPhaseOfTheDay()) {
+            return;
+        }
+
+        StatisticsContainer dayStatistics = simulation.getCurrentDayStatistics();
+
+        // Checkpoints need the simulation itself, so they can't wait for the downstream stage
+        if(parameters.checkpointIntervalDays > 0
+                && dayStatistics.currentDay % parameters.checkpointIntervalDays == 0) {
+            saveCheckpoint();
+        }
+    }
+
+    // Simulation thread, or the downstream thread in the pipelined mode
+    private void dayStatisticsReady(StatisticsContainer dayStatistics) {
+        if(statisticsExporter != null) {
+            statisticsExporter.record(dayStatistics);
+        }
+
+        if(columnarStatisticsWriter != null) {
+            try {
+                columnarStatisticsWriter.append(dayStatistics);
+            } catch (IOException e) {
+                // The log stops, but the simulation can go on
+                e.printStackTrace();
+                closeColumnarStatisticsWriter();
+            }
+        }
+    }
+
+    /**
+     * Shows the newest frame published by the simulation thread, if there is one
+     */
+    private void showNewestFrame() {
+        if(simulationRunner == null) {
+            return;
+        }
+
+        SimulationFrame frame = simulationRunner.takeFrame();
+
+        if(frame == null) {
+            return;
+        }
+
+        if(grid != null) {
+            for(int i = 0; i < frame.getNumberOfChangedCells(); i++) {
+                int cellIndex = frame.getChangedCell(i);
+                grid.setColour(cellIndex % parameters.width, cellIndex / parameters.width, frame.getColour(i));
+            }
+
+            if(frame.blockStatistics != null) {
+                grid.setBlockStatistics(frame.blockStatistics);
+            }
+
+            grid.repaint();
+        }
+
+        List<StatisticsContainer> statistics = frame.getStatistics();
+
+        for(StatisticsContainer dayStatistics : statistics) {
+            populationsAndEnergyChart.addPoint(dayStatistics.currentDay, dayStatistics.numberOfAnimals,
+                    dayStatistics.numberOfPlants, dayStatistics.meanEnergyLevel);
+            childrenChart.addPoint(dayStatistics.currentDay, dayStatistics.meanNumberOfChildren);
+            lifespanChart.addPoint(dayStatistics.currentDay, dayStatistics.meanLifespan);
+        }
+
+        if(!statistics.isEmpty()) {
+            // Charts are drawn once per frame, no matter how many days it contains
+            populationsAndEnergyChart.redraw();
+            childrenChart.redraw();
+            lifespanChart.redraw();
+
+            Map<Direction, Integer> genesCount = statistics.get(statistics.size() - 1).genesCount;
+            Map<String, Number> genesCountWithStringLabels = new LinkedHashMap<>();
+
+            for(Direction direction : genesCount.keySet()) {
+                genesCountWithStringLabels.put(direction.toString(), genesCount.get(direction));
+            }
+
+            genesChartController.updateSeries(genesCountWithStringLabels);
+        }
+
+        if(frame.failure != null) {
+            setPausedButtonsState();
+            // Windows can't be shown and waited for during an animation pulse
+            Platform.runLater(() -> showAlertBox("Ups! Something went wrong " + frame.failure.getMessage()));
+        } else if(frame.paused) {
+            setPausedButtonsState();
+            Platform.runLater(() -> simulationPausedItself(frame.day));
+        }
+    }
+
+    /**
+     * Shows the statistics popup or saves the statistics, if the simulation paused itself for that
+     *
+     * @param day
+     *      Day after which the simulation paused
+     */
+    private void simulationPausedItself(int day) {
+        if(day == runDaysTargetDay) {
+            runDaysTargetDay = -1;
+        }
+
+        if(day == statisticsPopupDay || simulationManager.getNumberOfAnimals() == 0 && statisticsPopupDay != -1) {
+            statisticsPopupDay = -1;
+            showStatisticsWindow(simulationManager.getFollowedAnimalStatistics());
+        }
+
+        if(day == statisticsFileDay) {
+            statisticsFileDay = -1;
+            jsonParser.exportStatistics(simulationManager.getOverallStatistics());
+            showAlertBox("Statistics saved");
+        }
+    }
+
+    /**
+     * Saves the state of the current simulation to the checkpoint file in the working directory
+     *
+     * @return True if the state was saved
+     */
+    private boolean saveCheckpoint() {
+        String currentDirectory = System.getProperty("user.dir");
+
+        try {
+            simulationManager.saveCheckpoint(Path.of(currentDirectory, CHECKPOINT_FILE_NAME));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Replaces the current simulation with the one saved in the checkpoint file in the working directory,
+     * and continues running it
+     */
+    private void restoreFromCheckpoint() {
+        String currentDirectory = System.getProperty("user.dir");
+
+        Simulation restoredSimulation;
+        try {
+            restoredSimulation = Simulation.loadCheckpoint(Path.of(currentDirectory, CHECKPOINT_FILE_NAME));
+        } catch (IOException e) {
+            showAlertBox("Error while loading the state. " +
+                    "Make sure that the " + CHECKPOINT_FILE_NAME + " file exists in the working directory");
+            return;
+        }
+
+        stopSimulation();
+
+        simulationManager = restoredSimulation;
+        runDescriptor = null;
+
+        // Optional parameters are not a part of the simulation state
+        Parameters restoredParameters = simulationManager.getParameters();
+        if(parameters != null) {
+            restoredParameters.copyOptionalParametersFrom(parameters);
+        }
+        parameters = restoredParameters;
+
+        setMapPane();
+        resetView();
+
+        try {
+            startSimulationThread();
+            setRunningButtonsState();
+        } catch (IllegalArgumentException e) {
+            showAlertBox(e.getMessage());
+        }
+    }
+
+    /**
+     * Starts the daily statistics export, if it's enabled in the parameters.
+     * Any previously running export is finished first
+     *
+     * @throws IllegalArgumentException
+     *      If the export parameters are incorrect
+     */
+    private void openStatisticsExporter() throws IllegalArgumentException {
+        closeStatisticsExporter();
+
+        if(parameters.statisticsExportFormat != null) {
+            String currentDirectory = System.getProperty("user.dir");
+
+            String baseName = "statistics-" + System.currentTimeMillis();
+
+            int queueCapacity = parameters.statisticsExportQueueCapacity > 0
+                    ? parameters.statisticsExportQueueCapacity : StreamingStatisticsExporter.DEFAULT_QUEUE_CAPACITY;
+
+            ExportFormat format = ExportFormat.fromName(parameters.statisticsExportFormat);
+
+            statisticsExporter = new StreamingStatisticsExporter(Path.of(currentDirectory), baseName, format,
+                    parameters.statisticsExportCompressed, parameters.statisticsExportRecordsPerFile, queueCapacity);
+
+            // Together with the exported statistics, the descriptor allows to replay the run.
+            // Only the JSON lines export can be read back by the replay
+            if(runDescriptor != null && format == ExportFormat.JSON_LINES) {
+                try {
+                    jsonParser.writeRunDescriptor(runDescriptor,
+                            Path.of(currentDirectory, baseName + ".run.json").toString());
+                } catch (IOException e) {
+                    e.printStackTrace();
                 }
             }
         }
+    }
+
+    private void closeStatisticsExporter() {
+        if(statisticsExporter != null) {
+            statisticsExporter.close();
+
+            // The export isn't complete, so the user has to know - a bigger queue may help
+            if(statisticsExporter.hasFailed()) {
+                showAlertBox("Statistics export failed, " + statisticsExporter.getDroppedRecords() +
+                        " days weren't saved");
+            } else if(statisticsExporter.getDroppedRecords() > 0) {
+                showAlertBox("Statistics export dropped " + statisticsExporter.getDroppedRecords() + " days. " +
+                        "Increase statisticsExportQueueCapacity to export the whole run");
+            }
+
+            statisticsExporter = null;
+        }
+    }
+
+    /**
+     * Starts the columnar statistics log, if it's enabled in the parameters.
+     * Any previously running log is finished first
+     *
+     * @throws IllegalArgumentException
+     *      If the log can't be started
+     */
+    private void openColumnarStatisticsWriter() throws IllegalArgumentException {
+        closeColumnarStatisticsWriter();
+
+        if(parameters.columnarStatisticsLog) {
+            String currentDirectory = System.getProperty("user.dir");
+
+            try {
+                columnarStatisticsWriter = new ColumnarStatisticsWriter(Path.of(currentDirectory,
+                        "statistics-" + System.currentTimeMillis() + ".columns"));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Can't create the columnar statistics log", e);
+            }
+        }
+    }
+
+    private void closeColumnarStatisticsWriter() {
+        if(columnarStatisticsWriter != null) {
+            columnarStatisticsWriter.close();
+            columnarStatisticsWriter = null;
+        }
+    }
+
+    /**
+     * Starts recording the current simulation, if it's enabled in the parameters.
+     * Any previously running recording is finished first
+     *
+     * @throws IllegalArgumentException
+     *      If the recording can't be started
+     */
+    private void openWorldRecorder() throws IllegalArgumentException {
+        closeWorldRecorder();
+
+        if(parameters.recordingKeyframeInterval > 0) {
+            String currentDirectory = System.getProperty("user.dir");
+
+            try {
+                worldRecorder = new WorldRecorder(Path.of(currentDirectory, "recording-" + System.currentTimeMillis()),
+                        parameters.recordingKeyframeInterval);
+                simulationManager.addPhaseObserver(worldRecorder);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Can't create the recording files", e);
+            }
+        }
+    }
 
+    private void closeWorldRecorder() {
+        if(worldRecorder != null) {
+            simulationManager.removePhaseObserver(worldRecorder);
+            worldRecorder.close();
+            worldRecorder = null;
+        }
     }
 
     private void showStatisticsWindow(FollowedAnimalStatisticsContainer statistics) {
@@ -371,9 +776,10 @@ public class MainApplicationController extends AbstractController implements Ini
         try {
             parameters = jsonParser.readParameters(currentDirectory + "/parameters.json");
             simulationManager = new Simulation(parameters.width, parameters.height, parameters.startEnergy,
-                    parameters.plantEnergy, parameters.moveEnergy, parameters.jungleRatio, 32, 8);
+                    parameters.plantEnergy, parameters.moveEnergy, parameters.jungleRatio, GENOME_LENGTH, NUMBER_OF_GENES);
 
             setMapPane();
+            refreshMap();
             showAlertBox("Parameters loaded");
         } catch (IOException e) {
             showAlertBox("Error while loading parameters. " +
@@ -381,56 +787,34 @@ public class MainApplicationController extends AbstractController implements Ini
         }
     }
 
+    /**
+     * Repaints all cells of the map. Used only when no simulation is running
+     */
     private void refreshMap() {
         if(grid != null) {
+            MapPainter painter = new MapPainter(simulationManager);
+
             for(int i = 0; i < parameters.height; i++) {
                 for(int j = 0; j < parameters.width; j++) {
-                    Vector2d currentPosition = new Vector2d(j, i);
-
-                    Optional<Animal> animalAtPosition = simulationManager.animalAt(currentPosition);
-
-                    if (animalAtPosition.isPresent()) {
-                        if(animalAtPosition.get().equals(simulationManager.getFollowedAnimal())) {
-                            grid.getCell(j, i).setColour(Color.rgb(237, 7, 214, 1));
-                        } else {
-                            // We choose the red value based on the animal energy
-                            // 0 energy - black
-                            // starting energy - orange
-                            float energyMultiplayer = (float) animalAtPosition.get().getEnergy() / parameters.startEnergy;
-                            int redValue = (int) (255 * energyMultiplayer);
-                            int greenValue = (int) (132 * energyMultiplayer);
-
-                            if(redValue > 255) {
-                                redValue = 255;
-                            }
-
-                            if(greenValue > 132) {
-                                greenValue = 132;
-                            }
-
-                            grid.getCell(j, i).setColour(Color.rgb(redValue, greenValue, 34, 1));
-                        }
-                    } else if(simulationManager.plantAt(currentPosition).isPresent()) {
-                        grid.getCell(j, i).setColour(Color.rgb(33, 84, 30, 1));
-                    } else {
-                        grid.getCell(j, i).setColour(Color.rgb(126, 201, 119, 1));
-                    }
+                    grid.setColour(j, i, painter.getCellColour(i * parameters.width + j));
                 }
             }
+
+            if(grid.getOverlay() != MapOverlay.NONE) {
+                grid.setBlockStatistics(simulationManager.getMap().getBlockStatistics());
+            }
+
+            simulationManager.takeChangedCells();
+            grid.repaint();
         }
     }
 
     private void setMapPane() {
         mapPane.getChildren().clear();
 
-        grid = new Grid(parameters.height, parameters.width, mapPane.getWidth(),
+        grid = new Grid(parameters.width, parameters.height, mapPane.getWidth(),
                 mapPane.getHeight(), this);
-
-        for(int i = 0; i < parameters.height; i++) {
-            for(int j = 0; j < parameters.width; j++) {
-                grid.add(j, i);
-            }
-        }
+        grid.setOverlay(overlayChoiceBox.getValue());
 
         mapPane.getChildren().add(grid);
     }
@@ -460,11 +844,23 @@ public class MainApplicationController extends AbstractController implements Ini
         statisticsList.getItems().clear();
     }
 
-    public void close() {
-        if(simulationThread != null) {
-            if(simulationThread.isAlive()) {
-                simulationThread.interrupt();
-            }
+    /**
+     * Called when the window gains or loses focus
+     */
+    public void setFocused(boolean focused) {
+        this.focused = focused;
+
+        if(simulationRunner != null) {
+            simulationRunner.setPriority(getPriority());
         }
     }
+
+    private int getPriority() {
+        return focused ? SimulationRunner.MAX_PRIORITY : SimulationRunner.NORM_PRIORITY;
+    }
+
+    public void close() {
+        frameTimer.stop();
+        stopSimulation();
+    }
 }
@@ -20,12 +20,41 @@ public class BarChartController {
         chart.getData().add(series);
     }
 
+    /**
+     * Shows the given values. If the categories didn't change, existing bars are updated instead of being recreated
+     */
     public void updateSeries(Map<String, Number> values) {
-        series.getData().clear();
+        if(hasCategories(values)) {
+            int i = 0;
+            for(Number value : values.values()) {
+                XYChart.Data<String, Number> bar = series.getData().get(i++);
+
+                if(!bar.getYValue().equals(value)) {
+                    bar.setYValue(value);
+                }
+            }
+            return;
+        }
 
+        series.getData().clear();
 
         for(String name : values.keySet()) {
             series.getData().add(new XYChart.Data<>(name, values.get(name)));
         }
     }
+
+    private boolean hasCategories(Map<String, Number> values) {
+        if(series.getData().size() != values.size()) {
+            return false;
+        }
+
+        int i = 0;
+        for(String name : values.keySet()) {
+            if(!series.getData().get(i++).getXValue().equals(name)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
 }
@@ -0,0 +1,77 @@
+package datatypes;
+
+import java.util.Arrays;
+
+/**
+ * Two dimensional Fenwick tree over a grid of values. Both changing a value and summing the values
+ * in a rectangle take O(log width * log height) time
+ */
+public class FenwickTree2D {
+    private final int width;
+    private final int height;
+    // Indexed from 1, row by row
+    private final long[] tree;
+
+    public FenwickTree2D(int width, int height) {
+        if(width < 1 || height < 1) {
+            throw new IllegalArgumentException("Tree dimensions can't be zero or negative");
+        }
+
+        this.width = width;
+        this.height = height;
+        tree = new long[(width + 1) * (height + 1)];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Adds the given amount to the value at the given position
+     */
+    public void add(int x, int y, long amount) {
+        for(int i = x + 1; i <= width; i += i & -i) {
+            for(int j = y + 1; j <= height; j += j & -j) {
+                tree[j * (width + 1) + i] += amount;
+            }
+        }
+    }
+
+    /**
+     * Returns the sum of values in the rectangle with the given corners, both included
+     *
+     * @throws IllegalArgumentException
+     *      If the rectangle isn't inside the grid, or its corners are in the wrong order
+     */
+    public long sum(int fromX, int fromY, int toX, int toY) throws IllegalArgumentException {
+        if(fromX < 0 || fromY < 0 || toX >= width || toY >= height || fromX > toX || fromY > toY) {
+            throw new IllegalArgumentException("Rectangle must be inside the grid");
+        }
+
+        return prefixSum(toX + 1, toY + 1) - prefixSum(fromX, toY + 1)
+                - prefixSum(toX + 1, fromY) + prefixSum(fromX, fromY);
+    }
+
+    /**
+     * Returns the sum of values with x lower than the given x and y lower than the given y
+     */
+    private long prefixSum(int x, int y) {
+        long result = 0;
+
+        for(int i = x; i > 0; i -= i & -i) {
+            for(int j = y; j > 0; j -= j & -j) {
+                result += tree[j * (width + 1) + i];
+            }
+        }
+
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(tree, 0);
+    }
+}
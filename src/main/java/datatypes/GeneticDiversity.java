@@ -0,0 +1,143 @@
+package datatypes;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Genetic diversity of a population of genotypes of the same length, updated whenever a genotype
+ * joins or leaves the population. Every update takes time proportional to the genome length,
+ * and every measure is computed without going through the population
+ */
+public class GeneticDiversity {
+    private int populationSize;
+    private final Map<Genotype, Integer> genotypesCount;
+
+    // Created along with the first genotype, when its length and number of gene types are known
+    private long[] geneTypesCount;
+    // Number of genotypes with the given gene type at the given position, position by position
+    private int[][] positionGenesCount;
+    // Sum of squares of all position genes counts, the number of pairs of genotypes
+    // with the same gene at the same position, summed over positions (pairs of a genotype with itself included)
+    private long sumOfSquaredCounts;
+
+    public GeneticDiversity() {
+        genotypesCount = new HashMap<>();
+    }
+
+    /**
+     * Adds a genotype to the population
+     *
+     * @throws IllegalArgumentException
+     *      If the genotype has a different length or number of gene types than the first added one
+     */
+    public void add(Genotype genotype) throws IllegalArgumentException {
+        if(positionGenesCount == null) {
+            geneTypesCount = new long[genotype.getGeneTypesNumber()];
+            positionGenesCount = new int[genotype.getGenotypeLength()][genotype.getGeneTypesNumber()];
+        }
+
+        checkCompatibility(genotype);
+
+        populationSize += 1;
+        genotypesCount.merge(genotype, 1, Integer::sum);
+
+        for(int i = 0; i < positionGenesCount.length; i++) {
+            int gene = genotype.getGene(i);
+
+            // (c + 1)^2 - c^2 = 2c + 1
+            sumOfSquaredCounts += 2L * positionGenesCount[i][gene] + 1;
+            positionGenesCount[i][gene] += 1;
+            geneTypesCount[gene] += 1;
+        }
+    }
+
+    /**
+     * Removes a genotype added before from the population
+     *
+     * @throws IllegalArgumentException
+     *      If the genotype isn't in the population
+     */
+    public void remove(Genotype genotype) throws IllegalArgumentException {
+        Integer count = genotypesCount.get(genotype);
+
+        if(count == null) {
+            throw new IllegalArgumentException("Genotype isn't in the population");
+        }
+
+        if(count == 1) {
+            genotypesCount.remove(genotype);
+        } else {
+            genotypesCount.put(genotype, count - 1);
+        }
+
+        populationSize -= 1;
+
+        for(int i = 0; i < positionGenesCount.length; i++) {
+            int gene = genotype.getGene(i);
+
+            positionGenesCount[i][gene] -= 1;
+            sumOfSquaredCounts -= 2L * positionGenesCount[i][gene] + 1;
+            geneTypesCount[gene] -= 1;
+        }
+    }
+
+    public void clear() {
+        populationSize = 0;
+        genotypesCount.clear();
+        geneTypesCount = null;
+        positionGenesCount = null;
+        sumOfSquaredCounts = 0;
+    }
+
+    public int getPopulationSize() {
+        return populationSize;
+    }
+
+    public int getNumberOfDistinctGenotypes() {
+        return genotypesCount.size();
+    }
+
+    /**
+     * Returns the Shannon entropy, in bits, of the distribution of gene types over all genes of the population
+     */
+    public double getGeneEntropy() {
+        if(populationSize == 0) {
+            return 0;
+        }
+
+        double total = (double) populationSize * positionGenesCount.length;
+        double entropy = 0;
+
+        for(long count : geneTypesCount) {
+            if(count > 0) {
+                double probability = count / total;
+                entropy -= probability * Math.log(probability) / Math.log(2);
+            }
+        }
+
+        return entropy;
+    }
+
+    /**
+     * Returns the mean number of positions at which two different genotypes of the population differ,
+     * or 0 if there are less than two genotypes
+     */
+    public double getMeanHammingDistance() {
+        if(populationSize < 2) {
+            return 0;
+        }
+
+        long n = populationSize;
+        // Ordered pairs of different genotypes, times the genome length, minus the pairs with the same genes
+        long differingPairs = positionGenesCount.length * n * n - sumOfSquaredCounts;
+
+        return (double) differingPairs / (n * (n - 1));
+    }
+
+    private void checkCompatibility(Genotype genotype) throws IllegalArgumentException {
+        if(genotype.getGenotypeLength() != positionGenesCount.length
+                || genotype.getGeneTypesNumber() != geneTypesCount.length) {
+            throw new IllegalArgumentException("Genomes are not compatible");
+        }
+    }
+}
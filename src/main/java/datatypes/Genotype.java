@@ -62,12 +62,15 @@ public class Genotype {
     }
 
     /**
-     * Constructor for class testing
+     * Creates a correct genome based on given parent's genomes, using the given random generator.
+     * The generator is also used later for choosing random directions
      *
      * @param firstParentGenotype
      *      Genome of the first parent
      * @param secondParentGenotype
      *      Genome of the second parent
+     * @param mockupRandom
+     *      Random generator, or a random function mockup for testing
      *
      * @throws IllegalArgumentException
      *          If the given parameters are incorrect
@@ -90,14 +93,15 @@ public class Genotype {
     }
 
     /**
-     * Constructor for class testing
+     * Creates a correct, random genome using the given random generator.
+     * The generator is also used later for choosing random directions
      *
      * @param lengthOfGenome
      *      Length of the genome
      * @param geneTypesNumber
      *      Number of gene types
      * @param mockupRandom
-     *      Random function mockup for testing
+     *      Random generator, or a random function mockup for testing
      *
      * @throws IllegalArgumentException
      *          If the given parameters are incorrect
@@ -118,6 +122,22 @@ public class Genotype {
         createRandomGenotype();
     }
 
+    /**
+     * Recreates a genome from previously saved genes, without any validation or repairing
+     *
+     * @param genes
+     *      Genes of the genome, sorted
+     * @param geneTypesNumber
+     *      Number of gene types
+     * @param random
+     *      Random generator used for choosing random directions
+     */
+    public Genotype(int[] genes, int geneTypesNumber, Random random) {
+        this.genes = genes.clone();
+        this.geneTypesNumber = geneTypesNumber;
+        this.random = random;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -204,6 +224,16 @@ public class Genotype {
             System.arraycopy(parentGenome.genes, startIndex, genes, startIndex, endIndex + 1 - startIndex);
     }
 
+    /**
+     * Returns a genome with the same genes, which uses the given generator for choosing random directions
+     *
+     * @param random
+     *      Random generator of the new genome
+     */
+    public Genotype copyWithRandom(Random random) {
+        return new Genotype(genes, geneTypesNumber, random);
+    }
+
     //Accessors
     public int getGeneTypesNumber() {
         return geneTypesNumber;
@@ -213,6 +243,10 @@ public class Genotype {
         return genes.length;
     }
 
+    public int getGene(int index) {
+        return genes[index];
+    }
+
     /**
      * Returns a map where directions are keys, adn values
      * represent the number of the gene of the given type in the genome
@@ -239,8 +273,15 @@ public class Genotype {
      * @return A Direction enum value
      */
     public Direction getRandomDirection() {
-        int randomGene = genes[random.nextInt(genes.length)];
-        return Direction.intToDirection(randomGene);
+        return getDirectionOfGene(random.nextInt(genes.length));
+    }
+
+    /**
+     * Returns the direction of the gene at the given index, e.g. chosen by a random generator
+     * other than the genome's own
+     */
+    public Direction getDirectionOfGene(int index) {
+        return Direction.intToDirection(genes[index]);
     }
 
     /**
@@ -0,0 +1,147 @@
+package datatypes;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of non negative integer values with logarithmic buckets, for estimating quantiles.
+ * Values below 16 have their own buckets, every higher power of two range is split into 16 buckets,
+ * so an estimated quantile differs from the exact one by less than 1/16 of its value.
+ * Adding and removing a value takes constant time, and histograms filled by different workers
+ * can be merged by adding their counts
+ */
+public class LogHistogram {
+    // Number of buckets per power of two range, a power of two itself
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Enough buckets for every non negative int
+    public static final int NUMBER_OF_BUCKETS = SUB_BUCKETS + (31 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts;
+    private long totalCount;
+
+    public LogHistogram() {
+        counts = new long[NUMBER_OF_BUCKETS];
+    }
+
+    /**
+     * Adds a value. Negative values are counted as zero
+     */
+    public void add(int value) {
+        counts[getBucketIndex(value)] += 1;
+        totalCount += 1;
+    }
+
+    /**
+     * Removes a value added before. Negative values are counted as zero
+     */
+    public void remove(int value) {
+        counts[getBucketIndex(value)] -= 1;
+        totalCount -= 1;
+    }
+
+    /**
+     * Replaces a value added before with a new one
+     */
+    public void replace(int oldValue, int newValue) {
+        counts[getBucketIndex(oldValue)] -= 1;
+        counts[getBucketIndex(newValue)] += 1;
+    }
+
+    /**
+     * Adds all values of the other histogram to this one
+     */
+    public void merge(LogHistogram other) {
+        for(int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+
+        totalCount += other.totalCount;
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getBucketCount(int bucketIndex) {
+        return counts[bucketIndex];
+    }
+
+    /**
+     * Sets the number of values in a bucket, e.g. when the histogram is restored from a checkpoint
+     */
+    public void setBucketCount(int bucketIndex, long count) {
+        totalCount += count - counts[bucketIndex];
+        counts[bucketIndex] = count;
+    }
+
+    /**
+     * Estimates the value below which the given fraction of values lies
+     *
+     * @param quantile
+     *      Fraction of values, between 0 and 1
+     * @return Middle of the bucket containing the quantile, or NaN if the histogram is empty
+     *
+     * @throws IllegalArgumentException
+     *      If the fraction is out of range
+     */
+    public float getQuantile(double quantile) throws IllegalArgumentException {
+        if(quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+
+        if(totalCount == 0) {
+            return Float.NaN;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * totalCount));
+        long seen = 0;
+
+        for(int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            seen += counts[i];
+
+            if(seen >= rank) {
+                return (getLowestValue(i) + getHighestValue(i)) / 2f;
+            }
+        }
+
+        return getHighestValue(NUMBER_OF_BUCKETS - 1);
+    }
+
+    static int getBucketIndex(int value) {
+        if(value < SUB_BUCKETS) {
+            return Math.max(value, 0);
+        }
+
+        int exponent = 31 - Integer.numberOfLeadingZeros(value);
+        int subBucket = (value >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long getLowestValue(int bucketIndex) {
+        if(bucketIndex < SUB_BUCKETS) {
+            return bucketIndex;
+        }
+
+        int shift = (bucketIndex - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucketIndex - SUB_BUCKETS) % SUB_BUCKETS;
+
+        return (long) (SUB_BUCKETS + subBucket) << shift;
+    }
+
+    static long getHighestValue(int bucketIndex) {
+        if(bucketIndex < SUB_BUCKETS) {
+            return bucketIndex;
+        }
+
+        int shift = (bucketIndex - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucketIndex - SUB_BUCKETS) % SUB_BUCKETS;
+
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,19 @@
+package datatypes;
+
+/**
+ * Phases of a simulated day, in the order of execution
+ */
+public enum SimulationPhase {
+    REMOVE_DEAD_ANIMALS,
+    MOVE_ANIMALS,
+    EAT_PLANTS,
+    REPRODUCE_ANIMALS,
+    GENERATE_PLANTS;
+
+    /**
+     * Returns true if this is the last phase of a day
+     */
+    public boolean isLastPhaseOfTheDay() {
+        return this == GENERATE_PLANTS;
+    }
+}
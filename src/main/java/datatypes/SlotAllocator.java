@@ -0,0 +1,50 @@
+package datatypes;
+
+import java.util.Arrays;
+
+/**
+ * Hands out small non negative integers, so that objects can keep their data in arrays instead of maps.
+ * Released slots are handed out again before any new one, so the highest slot stays close
+ * to the number of slots in use
+ */
+public class SlotAllocator {
+    private int[] releasedSlots;
+    private int numberOfReleasedSlots;
+    // Lowest slot which was never handed out
+    private int nextSlot;
+
+    public SlotAllocator() {
+        releasedSlots = new int[16];
+    }
+
+    public int allocate() {
+        if(numberOfReleasedSlots > 0) {
+            return releasedSlots[--numberOfReleasedSlots];
+        }
+
+        return nextSlot++;
+    }
+
+    /**
+     * Makes the slot available again. The slot must have been handed out and not released since
+     */
+    public void release(int slot) {
+        if(numberOfReleasedSlots == releasedSlots.length) {
+            releasedSlots = Arrays.copyOf(releasedSlots, releasedSlots.length * 2);
+        }
+
+        releasedSlots[numberOfReleasedSlots++] = slot;
+    }
+
+    /**
+     * Returns the number of slots ever handed out, so every slot is lower than it
+     */
+    public int getCapacity() {
+        return nextSlot;
+    }
+
+    public void clear() {
+        numberOfReleasedSlots = 0;
+        nextSlot = 0;
+    }
+}
@@ -2,7 +2,6 @@ package datatypes;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
 
 public class Vector2d {
     public final int x_coordinate;
@@ -124,7 +123,9 @@ public class Vector2d {
 
     @Override
     public int hashCode() {
-        return Objects.hash(x_coordinate, y_coordinate);
+        // Objects.hash gives only a few thousand distinct values for the coordinates of a large map,
+        // which turns hash map buckets into trees. Multiplicative hashing spreads them evenly
+        return x_coordinate * 0x9E3779B1 ^ y_coordinate * 0x85EBCA77;
     }
 
     @Override
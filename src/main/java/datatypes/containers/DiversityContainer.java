@@ -0,0 +1,44 @@
+package datatypes.containers;
+
+/**
+ * Genetic diversity of the living animals
+ */
+public class DiversityContainer {
+    // Shannon entropy of the gene types, in bits
+    public final float geneEntropy;
+    public final int numberOfDistinctGenotypes;
+    public final float meanHammingDistance;
+
+    public DiversityContainer(float geneEntropy, int numberOfDistinctGenotypes, float meanHammingDistance) {
+        this.geneEntropy = geneEntropy;
+        this.numberOfDistinctGenotypes = numberOfDistinctGenotypes;
+        this.meanHammingDistance = meanHammingDistance;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if(this == other) {
+            return true;
+        }
+        if(!(other instanceof DiversityContainer)) {
+            return false;
+        }
+
+        DiversityContainer that = (DiversityContainer) other;
+        return Float.compare(geneEntropy, that.geneEntropy) == 0
+                && numberOfDistinctGenotypes == that.numberOfDistinctGenotypes
+                && Float.compare(meanHammingDistance, that.meanHammingDistance) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Float.hashCode(geneEntropy) + numberOfDistinctGenotypes)
+                + Float.hashCode(meanHammingDistance);
+    }
+
+    @Override
+    public String toString() {
+        return "geneEntropy=" + geneEntropy + ", numberOfDistinctGenotypes=" + numberOfDistinctGenotypes
+                + ", meanHammingDistance=" + meanHammingDistance;
+    }
+}
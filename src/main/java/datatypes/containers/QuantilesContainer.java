@@ -0,0 +1,40 @@
+package datatypes.containers;
+
+/**
+ * Estimated median, 90th and 99th percentile of a statistic. All of them are NaN if there were no values
+ */
+public class QuantilesContainer {
+    public final float p50;
+    public final float p90;
+    public final float p99;
+
+    public QuantilesContainer(float p50, float p90, float p99) {
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if(this == other) {
+            return true;
+        }
+        if(!(other instanceof QuantilesContainer)) {
+            return false;
+        }
+
+        QuantilesContainer that = (QuantilesContainer) other;
+        return Float.compare(p50, that.p50) == 0 && Float.compare(p90, that.p90) == 0
+                && Float.compare(p99, that.p99) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Float.hashCode(p50) + Float.hashCode(p90)) + Float.hashCode(p99);
+    }
+
+    @Override
+    public String toString() {
+        return "p50=" + p50 + ", p90=" + p90 + ", p99=" + p99;
+    }
+}
@@ -0,0 +1,48 @@
+package datatypes.containers;
+
+import datatypes.Direction;
+import datatypes.Vector2d;
+
+/**
+ * State of a single animal in a recorded day
+ */
+public class RecordedAnimal {
+    public final int id;
+    public final Vector2d position;
+    public final int energy;
+    public final Direction orientation;
+    private final int[] genes;
+
+    public RecordedAnimal(int id, Vector2d position, int energy, Direction orientation, int[] genes) {
+        this.id = id;
+        this.position = position;
+        this.energy = energy;
+        this.orientation = orientation;
+        this.genes = genes;
+    }
+
+    /**
+     * Returns the same animal in a different state. Genes are shared between both objects
+     */
+    public RecordedAnimal withState(Vector2d position, int energy, Direction orientation) {
+        return new RecordedAnimal(id, position, energy, orientation, genes);
+    }
+
+    public int getGenotypeLength() {
+        return genes.length;
+    }
+
+    public int getGene(int index) {
+        return genes[index];
+    }
+
+    @Override
+    public String toString() {
+        return "RecordedAnimal{" +
+                "id=" + id +
+                ", position=" + position +
+                ", energy=" + energy +
+                ", orientation=" + orientation +
+                '}';
+    }
+}
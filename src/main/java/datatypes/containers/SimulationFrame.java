@@ -0,0 +1,114 @@
+package datatypes.containers;
+
+import entities.BlockStatistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable state of the simulation published for the user interface.
+ * A frame contains the map cells whose colour changed since the previously taken frame
+ * and the statistics of every day simulated since then. Frames which weren't taken in time
+ * are merged into the newer ones, so no change is lost
+ */
+public class SimulationFrame {
+    public final int day;
+    // True if the simulation paused itself after this day
+    public final boolean paused;
+    // If not null, the simulation stopped because of this error
+    public final Throwable failure;
+    // Copy of the map's block statistics, or null if they weren't published
+    public final BlockStatistics blockStatistics;
+
+    // Cell indices (y * width + x) and their new colours in the ARGB format
+    private final int[] cells;
+    private final int[] colours;
+    private final StatisticsNode statistics;
+
+    private SimulationFrame(int day, boolean paused, Throwable failure, BlockStatistics blockStatistics,
+                            int[] cells, int[] colours, StatisticsNode statistics) {
+        this.day = day;
+        this.paused = paused;
+        this.failure = failure;
+        this.blockStatistics = blockStatistics;
+        this.cells = cells;
+        this.colours = colours;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Creates a frame
+     *
+     * @param day
+     *      Current day of the simulation
+     * @param paused
+     *      True if the simulation paused itself after this day
+     * @param failure
+     *      Error which stopped the simulation, or null
+     * @param cells
+     *      Indices of the changed cells. The array can't be modified afterwards
+     * @param colours
+     *      New colours of the changed cells. The array can't be modified afterwards
+     * @param dayStatistics
+     *      Statistics of the day, or null if no day was simulated since the previous frame
+     * @param blockStatistics
+     *      Copy of the map's block statistics, or null if they aren't published
+     * @param skippedFrame
+     *      Frame which wasn't taken and is replaced by the new one, or null.
+     *      Its statistics are kept, its cells must be already merged by the caller
+     */
+    public static SimulationFrame create(int day, boolean paused, Throwable failure, int[] cells, int[] colours,
+                                         StatisticsContainer dayStatistics, BlockStatistics blockStatistics,
+                                         SimulationFrame skippedFrame) {
+        if(cells.length != colours.length) {
+            throw new IllegalArgumentException("Every changed cell must have a colour");
+        }
+
+        StatisticsNode statistics = skippedFrame != null ? skippedFrame.statistics : null;
+        if(dayStatistics != null) {
+            statistics = new StatisticsNode(dayStatistics, statistics);
+        }
+
+        return new SimulationFrame(day, paused, failure, blockStatistics, cells, colours, statistics);
+    }
+
+    public int getNumberOfChangedCells() {
+        return cells.length;
+    }
+
+    public int getChangedCell(int index) {
+        return cells[index];
+    }
+
+    public int getColour(int index) {
+        return colours[index];
+    }
+
+    /**
+     * Returns statistics of the days simulated since the previously taken frame
+     *
+     * @return Statistics ordered by day
+     */
+    public List<StatisticsContainer> getStatistics() {
+        List<StatisticsContainer> result = new ArrayList<>();
+
+        for(StatisticsNode node = statistics; node != null; node = node.previous) {
+            result.add(node.statistics);
+        }
+        Collections.reverse(result);
+
+        return result;
+    }
+
+    // Statistics are chained, so merging frames doesn't copy them
+    private static class StatisticsNode {
+        private final StatisticsContainer statistics;
+        private final StatisticsNode previous;
+
+        private StatisticsNode(StatisticsContainer statistics, StatisticsNode previous) {
+            this.statistics = statistics;
+            this.previous = previous;
+        }
+    }
+}
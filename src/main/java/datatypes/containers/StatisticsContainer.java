@@ -2,9 +2,20 @@ package datatypes.containers;
 
 import datatypes.Direction;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
+/**
+ * Statistics of one day. Containers created by the simulation are never modified, so they can be
+ * read by any number of threads at once without locking
+ */
 public class StatisticsContainer {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
     public final int currentDay;
 
     public final int numberOfAnimals;
@@ -12,17 +23,125 @@ public class StatisticsContainer {
     public final float meanEnergyLevel;
     public final float meanLifespan;
     public final float meanNumberOfChildren;
+    // Number of genes of every type, read only
     public final Map<Direction, Integer> genesCount;
 
+    // Estimated quantiles, null if they weren't computed, e.g. for overall statistics
+    public final QuantilesContainer energyQuantiles;
+    public final QuantilesContainer lifespanQuantiles;
+    public final QuantilesContainer numberOfChildrenQuantiles;
+    // Genetic diversity, null if it wasn't computed
+    public final DiversityContainer diversity;
+
     public StatisticsContainer(int numberOfAnimals, int numberOfPlants, float meanEnergyLevel,
                                float meanLifespan, float meanNumberOfChildren, int currentDay,
                                Map<Direction, Integer> genesCount) {
+        this(numberOfAnimals, numberOfPlants, meanEnergyLevel, meanLifespan, meanNumberOfChildren, currentDay,
+                toArray(genesCount), null, null, null, null);
+    }
+
+    public StatisticsContainer(int numberOfAnimals, int numberOfPlants, float meanEnergyLevel,
+                               float meanLifespan, float meanNumberOfChildren, int currentDay,
+                               Map<Direction, Integer> genesCount, QuantilesContainer energyQuantiles,
+                               QuantilesContainer lifespanQuantiles, QuantilesContainer numberOfChildrenQuantiles,
+                               DiversityContainer diversity) {
+        this(numberOfAnimals, numberOfPlants, meanEnergyLevel, meanLifespan, meanNumberOfChildren, currentDay,
+                toArray(genesCount), energyQuantiles, lifespanQuantiles, numberOfChildrenQuantiles, diversity);
+    }
+
+    /**
+     * Creates a container taking over the array of genes counts, without copying it
+     *
+     * @param genesCountByGene
+     *      Number of genes of every type, indexed by the gene. Mustn't be modified afterwards
+     */
+    public StatisticsContainer(int numberOfAnimals, int numberOfPlants, float meanEnergyLevel,
+                               float meanLifespan, float meanNumberOfChildren, int currentDay,
+                               int[] genesCountByGene, QuantilesContainer energyQuantiles,
+                               QuantilesContainer lifespanQuantiles, QuantilesContainer numberOfChildrenQuantiles,
+                               DiversityContainer diversity) {
         this.numberOfAnimals = numberOfAnimals;
         this.numberOfPlants = numberOfPlants;
         this.meanEnergyLevel = meanEnergyLevel;
         this.meanLifespan = meanLifespan;
         this.meanNumberOfChildren = meanNumberOfChildren;
         this.currentDay = currentDay;
-        this.genesCount = genesCount;
+        this.genesCount = new GenesCountView(genesCountByGene);
+        this.energyQuantiles = energyQuantiles;
+        this.lifespanQuantiles = lifespanQuantiles;
+        this.numberOfChildrenQuantiles = numberOfChildrenQuantiles;
+        this.diversity = diversity;
+    }
+
+    private static int[] toArray(Map<Direction, Integer> genesCount) {
+        int[] result = new int[DIRECTIONS.length];
+
+        for(Map.Entry<Direction, Integer> entry : genesCount.entrySet()) {
+            result[entry.getKey().ordinal()] = entry.getValue();
+        }
+
+        return result;
+    }
+
+    /**
+     * Read only map of directions to the numbers of genes, backed by an array indexed by the gene
+     */
+    private static class GenesCountView extends AbstractMap<Direction, Integer> {
+        private final int[] counts;
+
+        GenesCountView(int[] counts) {
+            this.counts = counts;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            if(!(key instanceof Direction) || ((Direction) key).ordinal() >= counts.length) {
+                return null;
+            }
+
+            return counts[((Direction) key).ordinal()];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return counts.length;
+        }
+
+        @Override
+        public Set<Entry<Direction, Integer>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Direction, Integer>> iterator() {
+                    return new Iterator<>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < counts.length;
+                        }
+
+                        @Override
+                        public Entry<Direction, Integer> next() {
+                            if(!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+
+                            index += 1;
+                            return Map.entry(DIRECTIONS[index - 1], counts[index - 1]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return counts.length;
+                }
+            };
+        }
     }
 }
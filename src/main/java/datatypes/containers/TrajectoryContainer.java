@@ -0,0 +1,73 @@
+package datatypes.containers;
+
+import datatypes.Vector2d;
+
+/**
+ * Trajectory of a single tracked animal - its positions and energies at the end of the tracked days,
+ * its children and the day of its death
+ */
+public class TrajectoryContainer {
+    public final int id;
+    // Day of the animal's death, or -1 if it was alive when the tracking ended
+    public final int deathDay;
+    private final int[] days;
+    private final int[] xCoordinates;
+    private final int[] yCoordinates;
+    private final int[] energies;
+    private final int[] birthDays;
+    private final int[] childrenIds;
+
+    public TrajectoryContainer(int id, int deathDay, int[] days, int[] xCoordinates, int[] yCoordinates,
+                               int[] energies, int[] birthDays, int[] childrenIds) {
+        this.id = id;
+        this.deathDay = deathDay;
+        this.days = days;
+        this.xCoordinates = xCoordinates;
+        this.yCoordinates = yCoordinates;
+        this.energies = energies;
+        this.birthDays = birthDays;
+        this.childrenIds = childrenIds;
+    }
+
+    public int getNumberOfSamples() {
+        return days.length;
+    }
+
+    public int getDay(int sample) {
+        return days[sample];
+    }
+
+    public Vector2d getPosition(int sample) {
+        return new Vector2d(xCoordinates[sample], yCoordinates[sample]);
+    }
+
+    public int getEnergy(int sample) {
+        return energies[sample];
+    }
+
+    public int getNumberOfChildren() {
+        return childrenIds.length;
+    }
+
+    public int getBirthDay(int child) {
+        return birthDays[child];
+    }
+
+    public int getChildId(int child) {
+        return childrenIds[child];
+    }
+
+    public boolean isDead() {
+        return deathDay != -1;
+    }
+
+    @Override
+    public String toString() {
+        return "TrajectoryContainer{" +
+                "id=" + id +
+                ", numberOfSamples=" + days.length +
+                ", numberOfChildren=" + childrenIds.length +
+                ", deathDay=" + deathDay +
+                '}';
+    }
+}
@@ -1,5 +1,7 @@
 package datatypes.observers;
 
+import entities.Animal;
+
 public interface IAnimalEnergyObserver {
-    void energyChanged(int energyChange);
+    void energyChanged(Animal animal, int oldEnergy, int newEnergy);
 }
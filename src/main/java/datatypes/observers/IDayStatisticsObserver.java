@@ -0,0 +1,13 @@
+package datatypes.observers;
+
+import datatypes.containers.StatisticsContainer;
+
+public interface IDayStatisticsObserver {
+    /**
+     * Called with the statistics of every simulated day, in the order of days
+     *
+     * @param statistics
+     *      Statistics of the day, which aren't modified afterwards
+     */
+    void dayStatisticsReady(StatisticsContainer statistics);
+}
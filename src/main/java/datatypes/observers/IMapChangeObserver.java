@@ -0,0 +1,28 @@
+package datatypes.observers;
+
+import entities.Animal;
+import entities.Plant;
+
+/**
+ * Observer of every change of the content of a map, notified as the changes happen
+ */
+public interface IMapChangeObserver {
+    /**
+     * Called when an animal is placed on the map, e.g. when it's born
+     */
+    void animalPlaced(Animal animal);
+
+    /**
+     * Called when an animal is removed from the map
+     */
+    void animalRemoved(Animal animal);
+
+    /**
+     * Called when the position, orientation or energy of an animal on the map may have changed
+     */
+    void animalChanged(Animal animal);
+
+    void plantAdded(Plant plant);
+
+    void plantRemoved(Plant plant);
+}
@@ -0,0 +1,16 @@
+package datatypes.observers;
+
+import datatypes.SimulationPhase;
+import entities.Simulation;
+
+public interface ISimulationPhaseObserver {
+    /**
+     * Called after every phase of a simulated day
+     *
+     * @param simulation
+     *      Simulation which finished the phase
+     * @param phase
+     *      The finished phase
+     */
+    void phaseFinished(Simulation simulation, SimulationPhase phase);
+}
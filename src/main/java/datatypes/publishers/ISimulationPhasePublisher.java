@@ -0,0 +1,22 @@
+package datatypes.publishers;
+
+import datatypes.observers.ISimulationPhaseObserver;
+
+public interface ISimulationPhasePublisher {
+    /**
+     * Adds the given observer to the observer list of this object
+     *
+     * @param observer
+     *          Object implementing ISimulationPhaseObserver
+     */
+    void addPhaseObserver(ISimulationPhaseObserver observer);
+
+    /**
+     * Removes the given observer from the observer list of this object.
+     * If given observer is not on the list, the method does nothing
+     *
+     * @param observer
+     *          Object implementing ISimulationPhaseObserver
+     */
+    void removePhaseObserver(ISimulationPhaseObserver observer);
+}
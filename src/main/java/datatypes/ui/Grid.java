@@ -2,74 +2,379 @@ package datatypes.ui;
 
 import application.controllers.MainApplicationController;
 import datatypes.Vector2d;
+import entities.BlockStatistics;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
 import javafx.scene.layout.Pane;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Map view, drawn as a single image with one pixel per screen pixel. The view can be zoomed with
+ * the mouse wheel and panned by dragging. When a screen pixel covers many cells, it shows the average
+ * colour of a block from the map pyramid instead of a single cell, so drawing costs the same
+ * no matter how large the map is. Clicked cells are found from the mouse position, so there is no node per cell.
+ * A heatmap overlay can be blended over the map, with one colour per block of the map's block statistics
+ */
 public class Grid extends Pane {
+    private static final int HIGHLIGHT_COLOUR = MapPainter.argb(28, 53, 128);
+    private static final int BACKGROUND_COLOUR = MapPainter.argb(244, 244, 244);
+    // Largest zoom, in screen pixels per cell
+    private static final double MAX_SCALE = 64;
+    // Mouse moved by more pixels than this while pressed is dragging, not clicking
+    private static final double DRAG_THRESHOLD = 3;
+
     // Grid dimensions
-    int rows;
-    int columns;
-    double width;
-    double height;
+    private final int rows;
+    private final int columns;
+    // Viewport dimensions, in screen pixels
+    private final int width;
+    private final int height;
+
+    private final MapPyramid pyramid;
+    // Pixels shown on the screen, modified only while the image is updated
+    private final IntBuffer pixels;
+    private final PixelBuffer<IntBuffer> pixelBuffer;
+    // Row and column of the used pyramid level shown by every screen pixel, or -1 outside of the map
+    private final int[] pixelColumns;
+    private final int[] pixelRows;
+
+    // Overlay colours of the blocks, blended with the map according to their alpha components
+    private MapOverlay overlay;
+    private int[] overlayColours;
+    private int overlayBlockColumns;
+    // Block column and row of every screen pixel, or -1 outside of the map
+    private final int[] pixelBlockColumns;
+    private final int[] pixelBlockRows;
+
+    // Screen pixels per cell, and the map position shown in the top left corner, in cells
+    private final double minScale;
+    private double scale;
+    private double viewX;
+    private double viewY;
+
+    // True if the image doesn't show the current colours or view
+    private boolean dirty;
+
+    // Mouse position when it was pressed, and the view position at that time
+    private double pressX;
+    private double pressY;
+    private double pressViewX;
+    private double pressViewY;
+    private boolean dragged;
 
-    Cell[][] cells;
+    // If set to -1, no cell is highlighted
+    private int highlightedCell;
+    private boolean clickable;
 
     private final MainApplicationController mainApplicationController;
 
     public Grid(int columns, int rows, double width, double height, MainApplicationController mainApplicationController) {
         this.columns = columns;
         this.rows = rows;
-        this.width = width;
-        this.height = height;
-        cells = new Cell[rows][columns];
-
+        this.width = Math.max(1, (int) width);
+        this.height = Math.max(1, (int) height);
         this.mainApplicationController = mainApplicationController;
+
+        pyramid = new MapPyramid(columns, rows);
+        pixels = ByteBuffer.allocateDirect(this.width * this.height * Integer.BYTES)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+        pixelBuffer = new PixelBuffer<>(this.width, this.height, pixels, PixelFormat.getIntArgbPreInstance());
+        pixelColumns = new int[this.width];
+        pixelRows = new int[this.height];
+        pixelBlockColumns = new int[this.width];
+        pixelBlockRows = new int[this.height];
+        overlay = MapOverlay.NONE;
+        overlayColours = new int[0];
+        highlightedCell = -1;
+
+        // Whole map fits in the view at the smallest zoom
+        minScale = Math.min((double) this.width / columns, (double) this.height / rows);
+        scale = minScale;
+        clampView();
+        dirty = true;
+
+        getChildren().add(new ImageView(new WritableImage(pixelBuffer)));
+
+        setOnMousePressed(event -> {
+            pressX = event.getX();
+            pressY = event.getY();
+            pressViewX = viewX;
+            pressViewY = viewY;
+            dragged = false;
+        });
+
+        setOnMouseDragged(event -> {
+            if(Math.abs(event.getX() - pressX) > DRAG_THRESHOLD || Math.abs(event.getY() - pressY) > DRAG_THRESHOLD) {
+                dragged = true;
+            }
+
+            if(dragged) {
+                viewX = pressViewX - (event.getX() - pressX) / scale;
+                viewY = pressViewY - (event.getY() - pressY) / scale;
+                clampView();
+                dirty = true;
+                repaint();
+            }
+        });
+
+        setOnMouseReleased(event -> {
+            if(!clickable || dragged) {
+                return;
+            }
+
+            int column = (int) Math.floor(viewX + event.getX() / scale);
+            int row = (int) Math.floor(viewY + event.getY() / scale);
+
+            if(column < 0 || column >= columns || row < 0 || row >= rows) {
+                return;
+            }
+
+            if(event.getButton() == MouseButton.PRIMARY) {
+                highlight(column, row);
+                mainApplicationController.cellHighlighted(new Vector2d(column, row));
+            } else if(event.getButton() == MouseButton.SECONDARY) {
+                unhighlightAll();
+                mainApplicationController.cellUnhighlighted();
+            }
+        });
+
+        setOnScroll(event -> {
+            if(event.getDeltaY() == 0) {
+                return;
+            }
+
+            // The cell under the mouse stays in place
+            double mouseColumn = viewX + event.getX() / scale;
+            double mouseRow = viewY + event.getY() / scale;
+
+            scale = Math.max(minScale, Math.min(MAX_SCALE, scale * Math.pow(1.25, event.getDeltaY() / 40)));
+            viewX = mouseColumn - event.getX() / scale;
+            viewY = mouseRow - event.getY() / scale;
+            clampView();
+            dirty = true;
+            repaint();
+        });
+    }
+
+    /**
+     * Sets the colour of a cell. The change becomes visible after the next repaint
+     *
+     * @param column
+     *      Column of the cell
+     * @param row
+     *      Row of the cell
+     * @param colour
+     *      Opaque colour in the ARGB format
+     */
+    public void setColour(int column, int row, int colour) {
+        if(pyramid.setColour(column, row, colour)) {
+            dirty = true;
+        }
     }
 
     /**
-     * Add cell to array and to the UI.
+     * Sets the heatmap drawn over the map. It becomes visible after the next repaint
      */
-    public void add(int column, int row) {
-        double w = width / columns;
-        double h = height / rows;
-        double x = w * column;
-        double y = h * row;
+    public void setOverlay(MapOverlay overlay) {
+        this.overlay = overlay;
+        dirty = true;
+    }
+
+    public MapOverlay getOverlay() {
+        return overlay;
+    }
 
-        Cell cell = new Cell(column, row, w, h,this);
-        cells[row][column] = cell;
+    /**
+     * Computes the overlay from the given block statistics. It becomes visible after the next repaint
+     *
+     * @param blockStatistics
+     *      Statistics of the blocks of the map, not modified while they're used
+     */
+    public void setBlockStatistics(BlockStatistics blockStatistics) {
+        int numberOfBlocks = blockStatistics.getBlockColumns() * blockStatistics.getBlockRows();
 
-        cell.setLayoutX(x);
-        cell.setLayoutY(y);
-        cell.setPrefWidth(w);
-        cell.setPrefHeight(h);
+        if(overlayColours.length != numberOfBlocks) {
+            overlayColours = new int[numberOfBlocks];
+        }
 
-        getChildren().add(cell);
+        overlayBlockColumns = blockStatistics.getBlockColumns();
+        overlay.getBlockColours(blockStatistics, overlayColours);
+        dirty = true;
     }
 
-    public Cell getCell(int column, int row) {
-        return cells[row][column];
+    /**
+     * Shows the current colours on the screen, if they changed since the previous repaint
+     */
+    public void repaint() {
+        if(!dirty) {
+            return;
+        }
+
+        // The coarsest level with blocks not larger than a screen pixel
+        int level = 0;
+        while (level < pyramid.getNumberOfLevels() - 1 && (1 << (level + 1)) * scale <= 1) {
+            level += 1;
+        }
+
+        int[] blocks = pyramid.getLevel(level);
+        int levelColumns = pyramid.getColumns(level);
+        mapPixels(pixelColumns, viewX, columns, level);
+        mapPixels(pixelRows, viewY, rows, level);
+
+        boolean overlayShown = overlay != MapOverlay.NONE && overlayColours.length > 0;
+        if(overlayShown) {
+            mapPixels(pixelBlockColumns, viewX, columns, 0);
+            mapPixels(pixelBlockRows, viewY, rows, 0);
+
+            toBlocks(pixelBlockColumns);
+            toBlocks(pixelBlockRows);
+        }
+
+        pixelBuffer.updateBuffer(buffer -> {
+            for(int y = 0; y < height; y++) {
+                int rowStart = pixelRows[y] * levelColumns;
+                int pixelIndex = y * width;
+
+                for(int x = 0; x < width; x++) {
+                    if(pixelRows[y] == -1 || pixelColumns[x] == -1) {
+                        pixels.put(pixelIndex + x, BACKGROUND_COLOUR);
+                    } else if(overlayShown) {
+                        int overlayIndex = pixelBlockRows[y] * overlayBlockColumns + pixelBlockColumns[x];
+                        int mapColour = blocks[rowStart + pixelColumns[x]];
+                        pixels.put(pixelIndex + x, blend(mapColour, overlayColours[overlayIndex]));
+                    } else {
+                        pixels.put(pixelIndex + x, blocks[rowStart + pixelColumns[x]]);
+                    }
+                }
+            }
+
+            if(highlightedCell != -1) {
+                paintHighlight();
+            }
+
+            // Whole image is updated
+            return null;
+        });
+
+        dirty = false;
+    }
+
+    // Changes cell columns or rows into block columns or rows
+    private static void toBlocks(int[] pixelCells) {
+        for(int i = 0; i < pixelCells.length; i++) {
+            if(pixelCells[i] != -1) {
+                pixelCells[i] /= BlockStatistics.BLOCK_SIZE;
+            }
+        }
     }
 
-    public void cellHighlighted(Cell cell) {
-        mainApplicationController.cellHighlighted(new Vector2d(cell.getColumn(), cell.getRow()));
+    /**
+     * Blends the overlay colour over the map colour, using the alpha component of the overlay as its weight
+     */
+    private static int blend(int mapColour, int overlayColour) {
+        int weight = overlayColour >>> 24;
+
+        if(weight == 0) {
+            return mapColour;
+        }
+
+        int red = blendComponent(mapColour >> 16, overlayColour >> 16, weight);
+        int green = blendComponent(mapColour >> 8, overlayColour >> 8, weight);
+        int blue = blendComponent(mapColour, overlayColour, weight);
+
+        return MapPainter.argb(red, green, blue);
     }
 
-    public void cellUnhighlighted() {
-        mainApplicationController.cellUnhighlighted();
+    private static int blendComponent(int mapComponent, int overlayComponent, int weight) {
+        return ((mapComponent & 0xFF) * (255 - weight) + (overlayComponent & 0xFF) * weight) / 255;
     }
 
     /**
-     * Unhighlights all cells
+     * Finds the block of the given level shown by every screen pixel along one axis
      */
-    public void unhighlightAll() {
-        for( int row=0; row < rows; row++) {
-            for( int col=0; col < columns; col++) {
-                cells[row][col].unhighlight();
+    private void mapPixels(int[] pixelBlocks, double viewStart, int numberOfCells, int level) {
+        for(int i = 0; i < pixelBlocks.length; i++) {
+            double cell = viewStart + (i + 0.5) / scale;
+
+            if(cell < 0 || cell >= numberOfCells) {
+                pixelBlocks[i] = -1;
+            } else {
+                pixelBlocks[i] = (int) cell >> level;
             }
         }
     }
-}
 
+    // Highlighted cell takes at least one pixel, even if the view is zoomed out
+    private void paintHighlight() {
+        int column = highlightedCell % columns;
+        int row = highlightedCell / columns;
+
+        int left = (int) Math.floor((column - viewX) * scale);
+        int top = (int) Math.floor((row - viewY) * scale);
+        int right = Math.max(left + 1, (int) Math.floor((column + 1 - viewX) * scale));
+        int bottom = Math.max(top + 1, (int) Math.floor((row + 1 - viewY) * scale));
+
+        for(int y = Math.max(top, 0); y < Math.min(bottom, height); y++) {
+            for(int x = Math.max(left, 0); x < Math.min(right, width); x++) {
+                pixels.put(y * width + x, HIGHLIGHT_COLOUR);
+            }
+        }
+    }
+
+    /**
+     * Keeps the map in the view. If the map is smaller than the view along an axis, it's centred
+     */
+    private void clampView() {
+        viewX = clamp(viewX, columns, width / scale);
+        viewY = clamp(viewY, rows, height / scale);
+    }
+
+    private static double clamp(double viewStart, int numberOfCells, double visibleCells) {
+        if(visibleCells >= numberOfCells) {
+            return (numberOfCells - visibleCells) / 2;
+        }
+
+        return Math.max(0, Math.min(numberOfCells - visibleCells, viewStart));
+    }
+
+    /**
+     * Highlights a cell, replacing the previous highlight
+     */
+    public void highlight(int column, int row) {
+        highlightedCell = row * columns + column;
+        dirty = true;
+        repaint();
+    }
 
+    /**
+     * Unhighlights all cells
+     */
+    public void unhighlightAll() {
+        if(highlightedCell != -1) {
+            highlightedCell = -1;
+            dirty = true;
+            repaint();
+        }
+    }
 
+    /**
+     * Enables or disables selecting cells with the mouse
+     */
+    public void setClickable(boolean clickable) {
+        this.clickable = clickable;
+    }
 
+    public int getRows() {
+        return rows;
+    }
 
+    public int getColumns() {
+        return columns;
+    }
+}
@@ -0,0 +1,84 @@
+package datatypes.ui;
+
+import entities.BlockStatistics;
+
+/**
+ * Heatmaps which can be drawn over the map, one colour per block of the map's block statistics
+ */
+public enum MapOverlay {
+    NONE("No overlay"),
+    ANIMAL_DENSITY("Animal density"),
+    MEAN_ENERGY("Mean energy"),
+    PLANT_COVERAGE("Plant coverage");
+
+    // Colours of the lowest and the highest values
+    private static final int LOW_RED = 255;
+    private static final int LOW_GREEN = 237;
+    private static final int LOW_BLUE = 160;
+    private static final int HIGH_RED = 189;
+    private static final int HIGH_GREEN = 0;
+    private static final int HIGH_BLUE = 38;
+
+    private final String label;
+
+    MapOverlay(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    /**
+     * Computes the overlay colour of every block. Density and energy are relative to the highest value
+     * among the blocks, plant coverage is the fraction of the block's cells with a plant
+     *
+     * @param blockStatistics
+     *      Statistics of the blocks
+     * @param colours
+     *      Array for the colours, of length at least the number of blocks. The alpha component of a colour
+     *      is its weight when blended with the map, zero for blocks with nothing to show
+     */
+    public void getBlockColours(BlockStatistics blockStatistics, int[] colours) {
+        int numberOfBlocks = blockStatistics.getBlockColumns() * blockStatistics.getBlockRows();
+
+        double maxValue = 0;
+        for(int i = 0; i < numberOfBlocks; i++) {
+            maxValue = Math.max(maxValue, getValue(blockStatistics, i));
+        }
+
+        if(this == PLANT_COVERAGE) {
+            maxValue = 1;
+        }
+
+        for(int i = 0; i < numberOfBlocks; i++) {
+            double value = maxValue == 0 ? 0 : getValue(blockStatistics, i) / maxValue;
+            colours[i] = value == 0 ? 0 : heatColour(value);
+        }
+    }
+
+    private double getValue(BlockStatistics blockStatistics, int blockIndex) {
+        switch (this) {
+            case ANIMAL_DENSITY:
+                return (double) blockStatistics.getNumberOfAnimals(blockIndex)
+                        / blockStatistics.getNumberOfCells(blockIndex);
+            case MEAN_ENERGY:
+                return blockStatistics.getMeanEnergy(blockIndex);
+            case PLANT_COVERAGE:
+                return (double) blockStatistics.getNumberOfPlants(blockIndex)
+                        / blockStatistics.getNumberOfCells(blockIndex);
+            default:
+                return 0;
+        }
+    }
+
+    private static int heatColour(double value) {
+        int red = (int) (LOW_RED + (HIGH_RED - LOW_RED) * value);
+        int green = (int) (LOW_GREEN + (HIGH_GREEN - LOW_GREEN) * value);
+        int blue = (int) (LOW_BLUE + (HIGH_BLUE - LOW_BLUE) * value);
+        int weight = (int) (255 * (0.3 + 0.45 * value));
+
+        return weight << 24 | red << 16 | green << 8 | blue;
+    }
+}
@@ -0,0 +1,81 @@
+package datatypes.ui;
+
+import datatypes.Vector2d;
+import entities.Animal;
+import entities.Simulation;
+
+import java.util.Optional;
+
+/**
+ * Chooses colours of the map cells
+ */
+public class MapPainter {
+    private static final int FOLLOWED_ANIMAL_COLOUR = argb(237, 7, 214);
+    private static final int PLANT_COLOUR = argb(33, 84, 30);
+    private static final int EMPTY_CELL_COLOUR = argb(126, 201, 119);
+
+    private final Simulation simulation;
+    private final int width;
+    private final int startEnergy;
+
+    public MapPainter(Simulation simulation) {
+        this.simulation = simulation;
+        this.width = simulation.getMap().getWidth();
+        this.startEnergy = simulation.getParameters().startEnergy;
+    }
+
+    /**
+     * Converts colour components to the format used by the map view
+     *
+     * @param red
+     *      Red component, from 0 to 255
+     * @param green
+     *      Green component, from 0 to 255
+     * @param blue
+     *      Blue component, from 0 to 255
+     * @return Opaque colour in the ARGB format
+     */
+    public static int argb(int red, int green, int blue) {
+        return 0xFF000000 | red << 16 | green << 8 | blue;
+    }
+
+    /**
+     * Returns the colour of a cell
+     *
+     * @param cellIndex
+     *      Index of the cell (y * width + x)
+     * @return Colour in the ARGB format
+     */
+    public int getCellColour(int cellIndex) {
+        Vector2d position = new Vector2d(cellIndex % width, cellIndex / width);
+
+        Optional<Animal> animalAtPosition = simulation.animalAt(position);
+
+        if (animalAtPosition.isPresent()) {
+            if(animalAtPosition.get().equals(simulation.getFollowedAnimal())) {
+                return FOLLOWED_ANIMAL_COLOUR;
+            } else {
+                // We choose the red value based on the animal energy
+                // 0 energy - black
+                // starting energy - orange
+                float energyMultiplayer = Math.max(0f, (float) animalAtPosition.get().getEnergy() / startEnergy);
+                int redValue = (int) (255 * energyMultiplayer);
+                int greenValue = (int) (132 * energyMultiplayer);
+
+                if(redValue > 255) {
+                    redValue = 255;
+                }
+
+                if(greenValue > 132) {
+                    greenValue = 132;
+                }
+
+                return argb(redValue, greenValue, 34);
+            }
+        } else if(simulation.plantAt(position).isPresent()) {
+            return PLANT_COLOUR;
+        } else {
+            return EMPTY_CELL_COLOUR;
+        }
+    }
+}
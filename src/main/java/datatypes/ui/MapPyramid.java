@@ -0,0 +1,136 @@
+package datatypes.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Colours of the map cells at multiple resolutions. Level 0 keeps the colour of every cell,
+ * every next level keeps the average colour of 2x2 blocks of the level below, up to a single block
+ * covering the whole map. Changing a cell updates only the blocks containing it, one per level
+ */
+public class MapPyramid {
+    private final List<int[]> levels;
+    private final int[] levelColumns;
+    private final int[] levelRows;
+
+    public MapPyramid(int columns, int rows) {
+        if(columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Map must have at least one cell");
+        }
+
+        List<Integer> columnsList = new ArrayList<>();
+        List<Integer> rowsList = new ArrayList<>();
+        levels = new ArrayList<>();
+
+        while (true) {
+            columnsList.add(columns);
+            rowsList.add(rows);
+            // Black cells are consistent with black blocks, so every level is a correct summary from the start
+            int[] level = new int[columns * rows];
+            Arrays.fill(level, MapPainter.argb(0, 0, 0));
+            levels.add(level);
+
+            if(columns == 1 && rows == 1) {
+                break;
+            }
+
+            columns = (columns + 1) / 2;
+            rows = (rows + 1) / 2;
+        }
+
+        levelColumns = columnsList.stream().mapToInt(Integer::intValue).toArray();
+        levelRows = rowsList.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public int getNumberOfLevels() {
+        return levels.size();
+    }
+
+    public int getColumns(int level) {
+        return levelColumns[level];
+    }
+
+    public int getRows(int level) {
+        return levelRows[level];
+    }
+
+    /**
+     * Returns the colour of a block of the given level
+     */
+    public int getColour(int level, int column, int row) {
+        return levels.get(level)[row * levelColumns[level] + column];
+    }
+
+    /**
+     * Returns colours of the blocks of the given level, row by row. The array must not be modified
+     */
+    int[] getLevel(int level) {
+        return levels.get(level);
+    }
+
+    /**
+     * Sets the colour of a cell and updates the blocks containing it
+     *
+     * @param column
+     *      Column of the cell
+     * @param row
+     *      Row of the cell
+     * @param colour
+     *      Opaque colour in the ARGB format
+     * @return True if the colour was changed
+     */
+    public boolean setColour(int column, int row, int colour) {
+        int[] cells = levels.get(0);
+        int cellIndex = row * levelColumns[0] + column;
+
+        if(cells[cellIndex] == colour) {
+            return false;
+        }
+
+        cells[cellIndex] = colour;
+
+        for(int level = 1; level < levels.size(); level++) {
+            column /= 2;
+            row /= 2;
+
+            int[] blocks = levels.get(level);
+            int blockIndex = row * levelColumns[level] + column;
+            int average = averageOfChildren(level - 1, column * 2, row * 2);
+
+            // Blocks higher up contain the same average too
+            if(blocks[blockIndex] == average) {
+                break;
+            }
+
+            blocks[blockIndex] = average;
+        }
+
+        return true;
+    }
+
+    private int averageOfChildren(int level, int firstColumn, int firstRow) {
+        int[] children = levels.get(level);
+        int columns = levelColumns[level];
+        int lastColumn = Math.min(firstColumn + 1, columns - 1);
+        int lastRow = Math.min(firstRow + 1, levelRows[level] - 1);
+
+        int red = 0;
+        int green = 0;
+        int blue = 0;
+        int count = 0;
+
+        for(int row = firstRow; row <= lastRow; row++) {
+            for(int column = firstColumn; column <= lastColumn; column++) {
+                int colour = children[row * columns + column];
+
+                red += (colour >> 16) & 0xFF;
+                green += (colour >> 8) & 0xFF;
+                blue += colour & 0xFF;
+                count += 1;
+            }
+        }
+
+        return MapPainter.argb(red / count, green / count, blue / count);
+    }
+}
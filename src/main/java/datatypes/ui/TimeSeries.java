@@ -0,0 +1,309 @@
+package datatypes.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Series of points with increasing x values, which can be downsampled to a given number of points
+ * at a cost that doesn't depend on the length of the series.
+ * Besides all points, the series keeps coarser levels - every level keeps the lowest and the highest point
+ * of every four points of the level below, so peaks are never lost. Downsampling picks the coarsest level
+ * which still has enough points in the requested range, and reduces it with the
+ * largest-triangle-three-buckets algorithm
+ */
+public class TimeSeries {
+    // Points of a coarser level are created from every BUCKET_SIZE points of the finer level
+    private static final int BUCKET_SIZE = 4;
+    // Downsampling uses a level having up to this many times more points than requested
+    private static final int LEVEL_OVERSAMPLING = 4;
+
+    private final List<Level> levels;
+
+    // Points chosen for downsampling, reused between calls
+    private double[] selectedX;
+    private double[] selectedY;
+
+    public TimeSeries() {
+        levels = new ArrayList<>();
+        levels.add(new Level());
+        selectedX = new double[64];
+        selectedY = new double[64];
+    }
+
+    public int size() {
+        return levels.get(0).size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public double getFirstX() {
+        return levels.get(0).x[0];
+    }
+
+    public double getLastX() {
+        Level level = levels.get(0);
+        return level.x[level.size - 1];
+    }
+
+    /**
+     * Adds a point at the end of the series. Points with a NaN value are skipped
+     *
+     * @param x
+     *      X value of the point, not lower than the x value of the previous point
+     * @param y
+     *      Y value of the point
+     *
+     * @throws IllegalArgumentException
+     *      If the x value is lower than the x value of the previous point
+     */
+    public void add(double x, double y) throws IllegalArgumentException {
+        if(Double.isNaN(y)) {
+            return;
+        }
+
+        if(!isEmpty() && x < getLastX()) {
+            throw new IllegalArgumentException("Points must be added in the order of their x values");
+        }
+
+        levels.get(0).add(x, y);
+
+        // Creating points of the coarser levels
+        for(int i = 0; i < levels.size(); i++) {
+            Level level = levels.get(i);
+
+            if(level.size - level.summarized < BUCKET_SIZE) {
+                break;
+            }
+
+            if(i == levels.size() - 1) {
+                levels.add(new Level());
+            }
+
+            level.summarizeBucket(levels.get(i + 1));
+        }
+    }
+
+    public void clear() {
+        levels.clear();
+        levels.add(new Level());
+    }
+
+    /**
+     * Downsamples the part of the series between the given x values. The closest points outside
+     * the range are included, so lines drawn from the result reach the edges of the range
+     *
+     * @param fromX
+     *      Lowest x value of the range
+     * @param toX
+     *      Highest x value of the range
+     * @param maxPoints
+     *      Maximal number of points of the result, at least 3
+     * @param resultX
+     *      Array for x values of the result, of length at least maxPoints
+     * @param resultY
+     *      Array for y values of the result, of length at least maxPoints
+     * @return Number of points of the result
+     *
+     * @throws IllegalArgumentException
+     *      If the maximal number of points is lower than 3
+     */
+    public int downsample(double fromX, double toX, int maxPoints, double[] resultX, double[] resultY)
+            throws IllegalArgumentException {
+        if(maxPoints < 3) {
+            throw new IllegalArgumentException("Series can't be downsampled to less than 3 points");
+        }
+
+        int numberOfSelected = selectPoints(fromX, toX, maxPoints * LEVEL_OVERSAMPLING);
+
+        if(numberOfSelected <= maxPoints) {
+            System.arraycopy(selectedX, 0, resultX, 0, numberOfSelected);
+            System.arraycopy(selectedY, 0, resultY, 0, numberOfSelected);
+            return numberOfSelected;
+        }
+
+        return largestTriangleThreeBuckets(selectedX, selectedY, numberOfSelected, maxPoints, resultX, resultY);
+    }
+
+    /**
+     * Copies points of the range from the coarsest level which has at most the given number of points in it.
+     * Points not yet summarized by that level are taken from the finer levels
+     *
+     * @return Number of selected points
+     */
+    private int selectPoints(double fromX, double toX, int maxPoints) {
+        int levelIndex = 0;
+
+        while (levelIndex < levels.size() - 1 && levels.get(levelIndex).countInRange(fromX, toX) > maxPoints) {
+            levelIndex += 1;
+        }
+
+        Level level = levels.get(levelIndex);
+        int numberOfSelected = 0;
+
+        int from = Math.max(level.firstIndexFrom(fromX) - 1, 0);
+        int to = Math.min(level.firstIndexFrom(toX) + 1, level.size);
+        for(int i = from; i < to; i++) {
+            numberOfSelected = select(numberOfSelected, level.x[i], level.y[i]);
+        }
+
+        // Only the last point after the range is needed
+        boolean reachedEnd = to < level.size;
+
+        for(int i = levelIndex - 1; i >= 0 && !reachedEnd; i--) {
+            Level finerLevel = levels.get(i);
+
+            for(int j = finerLevel.summarized; j < finerLevel.size && !reachedEnd; j++) {
+                if(finerLevel.x[j] >= fromX) {
+                    numberOfSelected = select(numberOfSelected, finerLevel.x[j], finerLevel.y[j]);
+                    reachedEnd = finerLevel.x[j] > toX;
+                }
+            }
+        }
+
+        return numberOfSelected;
+    }
+
+    private int select(int numberOfSelected, double x, double y) {
+        if(numberOfSelected == selectedX.length) {
+            selectedX = Arrays.copyOf(selectedX, selectedX.length * 2);
+            selectedY = Arrays.copyOf(selectedY, selectedY.length * 2);
+        }
+
+        selectedX[numberOfSelected] = x;
+        selectedY[numberOfSelected] = y;
+
+        return numberOfSelected + 1;
+    }
+
+    /**
+     * Reduces the points to the given number, keeping the first and the last one.
+     * Points are divided into buckets, and from every bucket the point forming the largest triangle
+     * with the previously chosen point and the average of the next bucket is chosen
+     *
+     * @return Number of points of the result
+     */
+    static int largestTriangleThreeBuckets(double[] x, double[] y, int size, int threshold,
+                                           double[] resultX, double[] resultY) {
+        double bucketSize = (double) (size - 2) / (threshold - 2);
+        int chosen = 0;
+        int resultSize = 0;
+
+        resultX[resultSize] = x[0];
+        resultY[resultSize] = y[0];
+        resultSize += 1;
+
+        for(int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket
+            int nextFrom = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextTo = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+
+            double averageX = 0;
+            double averageY = 0;
+            for(int i = nextFrom; i < nextTo; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            averageX /= nextTo - nextFrom;
+            averageY /= nextTo - nextFrom;
+
+            // Point of the current bucket with the largest triangle
+            int from = (int) (bucket * bucketSize) + 1;
+            int to = (int) ((bucket + 1) * bucketSize) + 1;
+
+            double maxArea = -1;
+            int next = from;
+            for(int i = from; i < to; i++) {
+                double area = Math.abs((x[chosen] - averageX) * (y[i] - y[chosen])
+                        - (x[chosen] - x[i]) * (averageY - y[chosen]));
+
+                if(area > maxArea) {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+
+            resultX[resultSize] = x[next];
+            resultY[resultSize] = y[next];
+            resultSize += 1;
+            chosen = next;
+        }
+
+        resultX[resultSize] = x[size - 1];
+        resultY[resultSize] = y[size - 1];
+
+        return resultSize + 1;
+    }
+
+    private static class Level {
+        private double[] x = new double[64];
+        private double[] y = new double[64];
+        private int size;
+        // Number of points already summarized by the coarser level
+        private int summarized;
+
+        private void add(double pointX, double pointY) {
+            if(size == x.length) {
+                x = Arrays.copyOf(x, size * 2);
+                y = Arrays.copyOf(y, size * 2);
+            }
+
+            x[size] = pointX;
+            y[size] = pointY;
+            size += 1;
+        }
+
+        /**
+         * Adds the lowest and the highest point of the next bucket to the coarser level, in the order of x
+         */
+        private void summarizeBucket(Level coarserLevel) {
+            int lowest = summarized;
+            int highest = summarized;
+
+            for(int i = summarized + 1; i < summarized + BUCKET_SIZE; i++) {
+                if(y[i] < y[lowest]) {
+                    lowest = i;
+                }
+                if(y[i] > y[highest]) {
+                    highest = i;
+                }
+            }
+
+            int first = Math.min(lowest, highest);
+            int second = Math.max(lowest, highest);
+
+            coarserLevel.add(x[first], y[first]);
+            if(second != first) {
+                coarserLevel.add(x[second], y[second]);
+            }
+
+            summarized += BUCKET_SIZE;
+        }
+
+        /**
+         * Returns the index of the first point with x value not lower than the given one
+         */
+        private int firstIndexFrom(double value) {
+            int low = 0;
+            int high = size;
+
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+
+                if(x[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+
+        private int countInRange(double fromX, double toX) {
+            return firstIndexFrom(toX) - firstIndexFrom(fromX);
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package datatypes.ui;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Line chart drawn on a canvas, with a numeric x axis. Every series is downsampled to the width of the chart,
+ * so long histories are drawn at a constant cost.
+ * By default the whole history is shown. Scrolling zooms in and out around the mouse,
+ * dragging pans the chart and a double click goes back to showing the whole history
+ */
+public class TimeSeriesChart extends Pane {
+    private static final Color[] SERIES_COLOURS = {
+            Color.rgb(218, 112, 34), Color.rgb(33, 130, 60), Color.rgb(40, 90, 190), Color.rgb(170, 40, 140)
+    };
+    private static final Color AXIS_COLOUR = Color.rgb(90, 90, 90);
+    private static final Color GRID_COLOUR = Color.rgb(225, 225, 225);
+
+    // Space around the plot area, for the axes and the legend
+    private static final double LEFT_MARGIN = 55;
+    private static final double RIGHT_MARGIN = 10;
+    private static final double TOP_MARGIN = 22;
+    private static final double BOTTOM_MARGIN = 34;
+    private static final int NUMBER_OF_TICKS = 5;
+
+    private final Canvas canvas;
+
+    private String xAxisLabel;
+    private final List<String> seriesNames;
+    private final List<TimeSeries> series;
+
+    // If true, the visible range covers the whole history
+    private boolean automaticRange;
+    private double visibleFrom;
+    private double visibleTo;
+    // Mouse position and visible range at the start of dragging
+    private double dragStartX;
+    private double dragStartFrom;
+
+    // Downsampled points of a series, reused while drawing
+    private double[] pointsX;
+    private double[] pointsY;
+
+    public TimeSeriesChart() {
+        canvas = new Canvas();
+        // The canvas is sized by this pane, it doesn't affect the size of the pane
+        canvas.setManaged(false);
+        getChildren().add(canvas);
+
+        xAxisLabel = "";
+        seriesNames = new ArrayList<>();
+        series = new ArrayList<>();
+        automaticRange = true;
+        pointsX = new double[0];
+        pointsY = new double[0];
+
+        setOnScroll(event -> {
+            if(!hasData() || event.getDeltaY() == 0) {
+                return;
+            }
+
+            double mouseValue = toValue(event.getX());
+            double factor = Math.pow(1.2, -event.getDeltaY() / 40);
+
+            setVisibleRange(mouseValue - (mouseValue - visibleFrom) * factor,
+                    mouseValue + (visibleTo - mouseValue) * factor);
+        });
+
+        setOnMousePressed(event -> {
+            dragStartX = event.getX();
+            dragStartFrom = visibleFrom;
+        });
+
+        setOnMouseDragged(event -> {
+            if(!hasData()) {
+                return;
+            }
+
+            double shift = (dragStartX - event.getX()) * (visibleTo - visibleFrom) / getPlotWidth();
+            double range = visibleTo - visibleFrom;
+
+            setVisibleRange(dragStartFrom + shift, dragStartFrom + shift + range);
+        });
+
+        setOnMouseClicked(event -> {
+            if(event.getClickCount() == 2) {
+                automaticRange = true;
+                redraw();
+            }
+        });
+    }
+
+    /**
+     * Replaces all series of the chart with new, empty ones
+     *
+     * @param xAxisLabel
+     *      Label of the x axis
+     * @param names
+     *      Names of the series, in the order of values given to the addPoint method
+     */
+    public void setSeries(String xAxisLabel, List<String> names) {
+        this.xAxisLabel = xAxisLabel;
+        seriesNames.clear();
+        seriesNames.addAll(names);
+        series.clear();
+
+        for(int i = 0; i < names.size(); i++) {
+            series.add(new TimeSeries());
+        }
+
+        automaticRange = true;
+        redraw();
+    }
+
+    /**
+     * Adds a point to every series. The chart isn't redrawn until the redraw method is called
+     *
+     * @param x
+     *      X value of the points, not lower than the x value of the previous points
+     * @param values
+     *      Values of the series, in the order of their names
+     *
+     * @throws IllegalArgumentException
+     *      If the number of values differs from the number of series
+     */
+    public void addPoint(double x, double... values) throws IllegalArgumentException {
+        if(values.length != series.size()) {
+            throw new IllegalArgumentException("Every series must get a value");
+        }
+
+        for(int i = 0; i < values.length; i++) {
+            series.get(i).add(x, values[i]);
+        }
+    }
+
+    /**
+     * Removes all points from the chart
+     */
+    public void clear() {
+        for(TimeSeries timeSeries : series) {
+            timeSeries.clear();
+        }
+
+        automaticRange = true;
+        redraw();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        super.layoutChildren();
+
+        if(canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+            canvas.setWidth(getWidth());
+            canvas.setHeight(getHeight());
+            redraw();
+        }
+    }
+
+    /**
+     * Draws the chart
+     */
+    public void redraw() {
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        double plotWidth = getPlotWidth();
+        double plotHeight = getPlotHeight();
+
+        graphics.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        if(plotWidth < 10 || plotHeight < 10) {
+            return;
+        }
+
+        drawLegend(graphics);
+
+        if(!hasData()) {
+            return;
+        }
+
+        if(automaticRange) {
+            visibleFrom = Double.MAX_VALUE;
+            visibleTo = -Double.MAX_VALUE;
+
+            for(TimeSeries timeSeries : series) {
+                if(!timeSeries.isEmpty()) {
+                    visibleFrom = Math.min(visibleFrom, timeSeries.getFirstX());
+                    visibleTo = Math.max(visibleTo, timeSeries.getLastX());
+                }
+            }
+
+            if(visibleFrom == visibleTo) {
+                visibleTo = visibleFrom + 1;
+            }
+        }
+
+        // Downsampling every series to about one point per pixel
+        int maxPoints = Math.max(3, (int) plotWidth);
+        if(pointsX.length < maxPoints * series.size()) {
+            pointsX = new double[maxPoints * series.size()];
+            pointsY = new double[maxPoints * series.size()];
+        }
+
+        double[] resultX = new double[maxPoints];
+        double[] resultY = new double[maxPoints];
+        int[] sizes = new int[series.size()];
+        double minValue = Double.MAX_VALUE;
+        double maxValue = -Double.MAX_VALUE;
+
+        for(int i = 0; i < series.size(); i++) {
+            sizes[i] = series.get(i).downsample(visibleFrom, visibleTo, maxPoints, resultX, resultY);
+
+            for(int j = 0; j < sizes[i]; j++) {
+                pointsX[i * maxPoints + j] = resultX[j];
+                pointsY[i * maxPoints + j] = resultY[j];
+
+                if(resultX[j] >= visibleFrom && resultX[j] <= visibleTo) {
+                    minValue = Math.min(minValue, resultY[j]);
+                    maxValue = Math.max(maxValue, resultY[j]);
+                }
+            }
+        }
+
+        if(minValue > maxValue) {
+            minValue = 0;
+            maxValue = 1;
+        } else if(minValue == maxValue) {
+            minValue -= 1;
+            maxValue += 1;
+        }
+
+        double padding = (maxValue - minValue) * 0.05;
+        minValue -= padding;
+        maxValue += padding;
+
+        drawAxes(graphics, minValue, maxValue);
+
+        // Lines are clipped to the plot area
+        graphics.save();
+        graphics.beginPath();
+        graphics.rect(LEFT_MARGIN, TOP_MARGIN, plotWidth, plotHeight);
+        graphics.clip();
+        graphics.setLineWidth(1.5);
+
+        for(int i = 0; i < series.size(); i++) {
+            for(int j = 0; j < sizes[i]; j++) {
+                int index = i * maxPoints + j;
+
+                resultX[j] = toScreenX(pointsX[index]);
+                resultY[j] = TOP_MARGIN + (maxValue - pointsY[index]) / (maxValue - minValue) * plotHeight;
+            }
+
+            graphics.setStroke(SERIES_COLOURS[i % SERIES_COLOURS.length]);
+            graphics.strokePolyline(resultX, resultY, sizes[i]);
+        }
+
+        graphics.restore();
+    }
+
+    private void drawLegend(GraphicsContext graphics) {
+        double x = LEFT_MARGIN;
+
+        graphics.setTextAlign(TextAlignment.LEFT);
+        graphics.setTextBaseline(VPos.CENTER);
+
+        for(int i = 0; i < seriesNames.size(); i++) {
+            graphics.setFill(SERIES_COLOURS[i % SERIES_COLOURS.length]);
+            graphics.fillRect(x, TOP_MARGIN / 2 - 4, 8, 8);
+
+            graphics.setFill(AXIS_COLOUR);
+            graphics.fillText(seriesNames.get(i), x + 12, TOP_MARGIN / 2);
+
+            x += 22 + seriesNames.get(i).length() * 7;
+        }
+    }
+
+    private void drawAxes(GraphicsContext graphics, double minValue, double maxValue) {
+        double plotWidth = getPlotWidth();
+        double plotHeight = getPlotHeight();
+        double bottom = TOP_MARGIN + plotHeight;
+
+        graphics.setLineWidth(1);
+
+        // Values
+        double valueStep = getTickStep(maxValue - minValue);
+        graphics.setTextAlign(TextAlignment.RIGHT);
+        graphics.setTextBaseline(VPos.CENTER);
+
+        for(double value = Math.ceil(minValue / valueStep) * valueStep; value <= maxValue; value += valueStep) {
+            double y = TOP_MARGIN + (maxValue - value) / (maxValue - minValue) * plotHeight;
+
+            graphics.setStroke(GRID_COLOUR);
+            graphics.strokeLine(LEFT_MARGIN, y, LEFT_MARGIN + plotWidth, y);
+            graphics.setFill(AXIS_COLOUR);
+            graphics.fillText(formatTick(value, valueStep), LEFT_MARGIN - 5, y);
+        }
+
+        // Days
+        double dayStep = Math.max(1, getTickStep(visibleTo - visibleFrom));
+        graphics.setTextAlign(TextAlignment.CENTER);
+        graphics.setTextBaseline(VPos.TOP);
+
+        for(double day = Math.ceil(visibleFrom / dayStep) * dayStep; day <= visibleTo; day += dayStep) {
+            double x = toScreenX(day);
+
+            graphics.setStroke(AXIS_COLOUR);
+            graphics.strokeLine(x, bottom, x, bottom + 4);
+            graphics.setFill(AXIS_COLOUR);
+            graphics.fillText(formatTick(day, dayStep), x, bottom + 5);
+        }
+
+        graphics.setStroke(AXIS_COLOUR);
+        graphics.strokeLine(LEFT_MARGIN, TOP_MARGIN, LEFT_MARGIN, bottom);
+        graphics.strokeLine(LEFT_MARGIN, bottom, LEFT_MARGIN + plotWidth, bottom);
+
+        graphics.setTextBaseline(VPos.BOTTOM);
+        graphics.fillText(xAxisLabel, LEFT_MARGIN + plotWidth / 2, canvas.getHeight());
+    }
+
+    /**
+     * Returns a round step between ticks, so that the range has about NUMBER_OF_TICKS ticks
+     */
+    private static double getTickStep(double range) {
+        double roughStep = range / NUMBER_OF_TICKS;
+        double magnitude = Math.pow(10, Math.floor(Math.log10(roughStep)));
+        double normalizedStep = roughStep / magnitude;
+
+        if(normalizedStep < 1.5) {
+            return magnitude;
+        } else if(normalizedStep < 3.5) {
+            return 2 * magnitude;
+        } else if(normalizedStep < 7.5) {
+            return 5 * magnitude;
+        } else {
+            return 10 * magnitude;
+        }
+    }
+
+    private static String formatTick(double value, double step) {
+        if(step >= 1) {
+            return String.valueOf(Math.round(value));
+        } else {
+            int decimals = (int) Math.ceil(-Math.log10(step));
+            return String.format("%." + decimals + "f", value);
+        }
+    }
+
+    private void setVisibleRange(double from, double to) {
+        if(to - from < 2) {
+            return;
+        }
+
+        automaticRange = false;
+        visibleFrom = from;
+        visibleTo = to;
+        redraw();
+    }
+
+    private boolean hasData() {
+        for(TimeSeries timeSeries : series) {
+            if(!timeSeries.isEmpty()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private double getPlotWidth() {
+        return canvas.getWidth() - LEFT_MARGIN - RIGHT_MARGIN;
+    }
+
+    private double getPlotHeight() {
+        return canvas.getHeight() - TOP_MARGIN - BOTTOM_MARGIN;
+    }
+
+    private double toScreenX(double value) {
+        return LEFT_MARGIN + (value - visibleFrom) / (visibleTo - visibleFrom) * getPlotWidth();
+    }
+
+    private double toValue(double screenX) {
+        return visibleFrom + (screenX - LEFT_MARGIN) / getPlotWidth() * (visibleTo - visibleFrom);
+    }
+}
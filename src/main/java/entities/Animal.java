@@ -14,6 +14,8 @@ import java.util.*;
 
 public class Animal extends AbstractMapElement implements IAnimalStatePublisher, IAnimalPositionPublisher,
         IAnimalEnergyPublisher {
+    private final int id;
+    private final int slot;
     private Direction orientation;
     private final WorldMap map;
     private final Genotype genotype;
@@ -42,7 +44,8 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
             throws IllegalArgumentException{
         super(initialPosition, true, 0);
 
-        random = new Random();
+        // Every random decision is made by the generator of the map, so the simulation can be reproduced
+        random = map.getRandom();
 
         if(startingEnergy < 0) {
             throw new IllegalArgumentException("Starting energy must be greater than 0");
@@ -54,6 +57,8 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
         energyObservers = new HashSet<>();
 
         this.map = map;
+        id = map.nextAnimalId();
+        slot = map.allocateAnimalSlot();
         map.place(this);
 
         this.genotype = genotype;
@@ -61,6 +66,38 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
         orientation = Direction.values()[random.nextInt(Direction.values().length)];
     }
 
+    /**
+     * Constructor for an animal restored from a checkpoint. The animal is not placed on the map
+     *
+     * @param map
+     *      Map the animal belongs to
+     * @param id
+     *      Identifier of the animal
+     * @param position
+     *      Position of the animal
+     * @param energy
+     *      Energy of the animal
+     * @param orientation
+     *      Orientation of the animal
+     * @param genotype
+     *      Genotype of the animal
+     */
+    Animal(WorldMap map, int id, Vector2d position, int energy, Direction orientation, Genotype genotype) {
+        super(position, true, 0);
+
+        random = map.getRandom();
+        stateObservers = new HashSet<>();
+        positionObservers = new HashSet<>();
+        energyObservers = new HashSet<>();
+
+        this.map = map;
+        this.id = id;
+        slot = map.allocateAnimalSlot();
+        this.energy = energy;
+        this.orientation = orientation;
+        this.genotype = genotype;
+    }
+
     /**
      * Constructor for an animal with random position and genotype
      * @param map
@@ -73,7 +110,8 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
      *      Number of gene types in the animal's genome
      */
     public Animal(WorldMap map, int startingEnergy, int lengthOfGenotype, int numOfGeneTypes) {
-        this(map, map.getRandomPositionFromMap(), startingEnergy, new Genotype(lengthOfGenotype, numOfGeneTypes));
+        this(map, map.getRandomPositionFromMap(), startingEnergy,
+                new Genotype(lengthOfGenotype, numOfGeneTypes, map.getRandom()));
     }
 
     /**
@@ -91,7 +129,8 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
      *      Animal object representing the parent of this animal
      */
     public Animal(WorldMap map, Vector2d initialPosition, int startingEnergy, Animal firstParent, Animal secondParent) {
-        this(map, initialPosition, startingEnergy, new Genotype(firstParent.genotype, secondParent.genotype));
+        this(map, initialPosition, startingEnergy,
+                new Genotype(firstParent.genotype, secondParent.genotype, map.getRandom()));
     }
 
     /**
@@ -106,6 +145,23 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
     }
 
     // Accessors
+    /**
+     * Returns the identifier of the animal. Identifiers are assigned by the map
+     * in the order of creation, starting from 0
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the slot of the animal, a small number unique among the animals on the map.
+     * Slot of an animal removed from the map is given to a new animal, so per animal data
+     * can be kept in arrays indexed by slots
+     */
+    public int getSlot() {
+        return slot;
+    }
+
     public Direction getOrientation() {
         return orientation;
     }
@@ -118,6 +174,10 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
         return genotype.getGenesCount();
     }
 
+    public Genotype getGenotype() {
+        return genotype;
+    }
+
     @Override
     public String toString() {
         return "Animal{" +
@@ -142,14 +202,7 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
     public void randomMove(int moveEnergy) {
         orientation = genotype.getRandomDirection();
         move(orientation);
-
-        if(energy - moveEnergy > 0) {
-            energyChanged(this, -moveEnergy);
-        } else {
-            energyChanged(this, -energy);
-        }
-
-        energy -= moveEnergy;
+        setEnergy(energy - moveEnergy);
 
         if(energy <= 0) {
             die();
@@ -163,8 +216,24 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
      *      Vector to add to the given position
      */
     private void setPosition(Vector2d changeVector) {
-        Vector2d newPosition = position.add(changeVector);
         Vector2d oldPosition = position;
+        Vector2d newPosition = getPositionAfterMove(changeVector);
+
+        for(IAnimalPositionObserver observer : positionObservers) {
+            observer.positionChanged(this, oldPosition, newPosition);
+        }
+        position = newPosition;
+    }
+
+    /**
+     * Returns the position the animal would have after moving by the given vector,
+     * wrapped around the edges of the map. Doesn't change the animal
+     *
+     * @param changeVector
+     *      Vector to add to the current position
+     */
+    Vector2d getPositionAfterMove(Vector2d changeVector) {
+        Vector2d newPosition = position.add(changeVector);
 
         int newPositionX = newPosition.x_coordinate;
         int newPositionY = newPosition.y_coordinate;
@@ -180,11 +249,30 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
             newPositionX = map.getWidth() - 1;
         }
 
-        newPosition = new Vector2d(newPositionX, newPositionY);
-        for(IAnimalPositionObserver observer : positionObservers) {
-            observer.positionChanged(this, oldPosition, newPosition);
-        }
+        return new Vector2d(newPositionX, newPositionY);
+    }
+
+    /**
+     * Applies a move planned by the double buffered engine, changing the orientation, position and energy at once.
+     * Only energy observers are notified, the map updates its collections for all moved animals together
+     *
+     * @param newOrientation
+     *      Orientation the animal moved in
+     * @param newPosition
+     *      Position after the move
+     * @param newEnergy
+     *      Energy after the move
+     */
+    void applyMove(Direction newOrientation, Vector2d newPosition, int newEnergy) {
+        int oldEnergy = energy;
+
+        orientation = newOrientation;
         position = newPosition;
+        energy = newEnergy;
+
+        for(IAnimalEnergyObserver observer : energyObservers) {
+            observer.energyChanged(this, oldEnergy, newEnergy);
+        }
     }
 
     /**
@@ -213,8 +301,7 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
         for (Animal strongestAnimal : animalsWithMaxEnergy) {
             int energyChange = energyFromPlant / animalsWithMaxEnergy.size();
 
-            strongestAnimal.energy += energyChange;
-            energyChanged(strongestAnimal, energyChange);
+            strongestAnimal.setEnergy(strongestAnimal.energy + energyChange);
         }
     }
 
@@ -240,6 +327,27 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
             throw new IllegalArgumentException("There are not enough animals to reproduce");
         }
 
+        return planBirth(animalsAtPosition, map, startingEnergy, map.getRandom())
+                .map(birth -> giveBirth(birth, map));
+    }
+
+    /**
+     * Chooses parents among the given animals, a position for their child and the child's genotype,
+     * without changing anything. Reads the map only, so births at different positions can be planned in parallel
+     *
+     * @param animalsAtPosition
+     *      List of animals at a one position, at least two
+     * @param map
+     *      The map containing the animals
+     * @param startingEnergy
+     *      Starting energy of an animal. It is equal to the energy at the start of the simulation
+     * @param random
+     *      Random generator for all decisions, also used by the child's genotype
+     *
+     * @return Planned birth, or empty optional if there are no eligible parents
+     */
+    static Optional<PlannedBirth> planBirth(List<Animal> animalsAtPosition, WorldMap map, int startingEnergy,
+                                            Random random) {
         // Finding animals that are ready for reproduction
         List<Animal> animalsReadyToReproduce = new LinkedList<>(animalsAtPosition);
 
@@ -247,8 +355,6 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
 
         // Finding parents
         if(animalsReadyToReproduce.size() > 1) {
-            Random random = new Random();
-
             // Animals should always be sorted decreasingly according to their energy
             int maximalEnergy = animalsReadyToReproduce.get(0).getEnergy();
             Set<Animal> animalsWithMaximalEnergy = new HashSet<>();
@@ -267,7 +373,7 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
             // Case two - there are multiple animals with the same maximal energy
             if(animalsWithMaximalEnergy.size() > 2) {
                 List<Animal> shuffledAnimalsWithMaximalEnergy = new ArrayList<>(animalsWithMaximalEnergy);
-                Collections.shuffle(shuffledAnimalsWithMaximalEnergy);
+                Collections.shuffle(shuffledAnimalsWithMaximalEnergy, random);
 
                 firstParent = animalsReadyToReproduce.get(0);
                 animalsReadyToReproduce.remove(0);
@@ -293,31 +399,45 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
                 }
             }
 
-            // New animal which is the child of the parents
-            Animal child = new Animal(map, childPosition, (firstParent.getEnergy() + secondParent.getEnergy())/ 4,
-                    firstParent, secondParent);
-
-            // We notify observers of both parents about the child
-            for (IAnimalStateObserver observer : firstParent.stateObservers) {
-                observer.animalBorn(firstParent, child);
-            }
+            return Optional.of(new PlannedBirth(firstParent, secondParent, childPosition,
+                    new Genotype(firstParent.genotype, secondParent.genotype, random),
+                    (firstParent.getEnergy() + secondParent.getEnergy()) / 4));
+        }
 
-            for (IAnimalStateObserver observer : secondParent.stateObservers) {
-                observer.animalBorn(secondParent, child);
-            }
+        return Optional.empty();
+    }
 
-            energyChanged(firstParent, -firstParent.getEnergy() / 4);
+    /**
+     * Creates the planned child on the map, notifies observers of both parents about it
+     * and takes the energy given to the child from the parents
+     *
+     * @param birth
+     *      Planned birth
+     * @param map
+     *      The map containing the parents
+     * @return The child
+     */
+    static Animal giveBirth(PlannedBirth birth, WorldMap map) {
+        Animal firstParent = birth.firstParent;
+        Animal secondParent = birth.secondParent;
 
-            energyChanged(secondParent, -secondParent.getEnergy() / 4);
+        // New animal which is the child of the parents
+        Animal child = new Animal(map, birth.childPosition, birth.childEnergy, birth.childGenotype);
 
-            // Parent loose energy during reproduction
-            firstParent.energy -= firstParent.getEnergy() / 4;
-            secondParent.energy -= secondParent.getEnergy() / 4;
+        // We notify observers of both parents about the child
+        for (IAnimalStateObserver observer : firstParent.stateObservers) {
+            observer.animalBorn(firstParent, child);
+        }
 
-            return Optional.of(child);
+        for (IAnimalStateObserver observer : secondParent.stateObservers) {
+            observer.animalBorn(secondParent, child);
         }
 
-        return Optional.empty();
+        // Parent loose energy during reproduction
+        firstParent.setEnergy(firstParent.energy - firstParent.getEnergy() / 4);
+        secondParent.setEnergy(secondParent.energy - secondParent.getEnergy() / 4);
+
+        return child;
     }
 
     /**
@@ -331,9 +451,21 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
         }
     }
 
-    private static void energyChanged(Animal animal, int energyChange) {
-        for(IAnimalEnergyObserver observer : animal.energyObservers) {
-            observer.energyChanged(energyChange);
+    /**
+     * Changes the energy of the animal, keeping the energy of its map block up to date,
+     * and notifies all energy observers about the change
+     */
+    private void setEnergy(int newEnergy) {
+        int oldEnergy = energy;
+
+        map.animalEnergyChanged(this, position, oldEnergy, newEnergy);
+        energy = newEnergy;
+
+        // Colour of the animal's cell depends on its energy
+        map.cellChanged(position);
+
+        for(IAnimalEnergyObserver observer : energyObservers) {
+            observer.energyChanged(this, oldEnergy, newEnergy);
         }
     }
 
@@ -366,4 +498,24 @@ public class Animal extends AbstractMapElement implements IAnimalStatePublisher,
     public void removeEnergyObserver(IAnimalEnergyObserver observer) {
         energyObservers.remove(observer);
     }
+
+    /**
+     * Parents, position, genotype and energy of a child, chosen before the child is created
+     */
+    static class PlannedBirth {
+        final Animal firstParent;
+        final Animal secondParent;
+        final Vector2d childPosition;
+        final Genotype childGenotype;
+        final int childEnergy;
+
+        PlannedBirth(Animal firstParent, Animal secondParent, Vector2d childPosition, Genotype childGenotype,
+                     int childEnergy) {
+            this.firstParent = firstParent;
+            this.secondParent = secondParent;
+            this.childPosition = childPosition;
+            this.childGenotype = childGenotype;
+            this.childEnergy = childEnergy;
+        }
+    }
 }
@@ -0,0 +1,151 @@
+package entities;
+
+import datatypes.Vector2d;
+
+import java.util.Arrays;
+
+/**
+ * Number of animals, their total energy and number of plants in every square block of the map.
+ * The map keeps them up to date on every move, birth, death, energy change and plant change,
+ * so overlays can be drawn from the blocks without going through the cells.
+ * Energy of an animal is counted as zero once it drops below zero
+ */
+public class BlockStatistics {
+    public static final int BLOCK_SIZE = 8;
+
+    private final int mapWidth;
+    private final int mapHeight;
+    private final int blockColumns;
+    private final int blockRows;
+
+    private final int[] animals;
+    private final int[] energy;
+    private final int[] plants;
+
+    BlockStatistics(int mapWidth, int mapHeight) {
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        blockColumns = (mapWidth + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        blockRows = (mapHeight + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        animals = new int[blockColumns * blockRows];
+        energy = new int[blockColumns * blockRows];
+        plants = new int[blockColumns * blockRows];
+    }
+
+    private BlockStatistics(BlockStatistics other) {
+        mapWidth = other.mapWidth;
+        mapHeight = other.mapHeight;
+        blockColumns = other.blockColumns;
+        blockRows = other.blockRows;
+
+        animals = other.animals.clone();
+        energy = other.energy.clone();
+        plants = other.plants.clone();
+    }
+
+    /**
+     * Returns a copy which isn't affected by later changes of the map, e.g. to be used by another thread
+     */
+    public BlockStatistics copy() {
+        return new BlockStatistics(this);
+    }
+
+    public int getBlockColumns() {
+        return blockColumns;
+    }
+
+    public int getBlockRows() {
+        return blockRows;
+    }
+
+    /**
+     * Returns the index of the block containing the given cell
+     */
+    public int getBlockIndex(int x, int y) {
+        return (y / BLOCK_SIZE) * blockColumns + x / BLOCK_SIZE;
+    }
+
+    /**
+     * Returns the number of cells of the block. Blocks at the edges of the map may be smaller than the others
+     */
+    public int getNumberOfCells(int blockIndex) {
+        int column = blockIndex % blockColumns;
+        int row = blockIndex / blockColumns;
+
+        return (Math.min(mapWidth, (column + 1) * BLOCK_SIZE) - column * BLOCK_SIZE)
+                * (Math.min(mapHeight, (row + 1) * BLOCK_SIZE) - row * BLOCK_SIZE);
+    }
+
+    public int getNumberOfAnimals(int blockIndex) {
+        return animals[blockIndex];
+    }
+
+    public int getEnergy(int blockIndex) {
+        return energy[blockIndex];
+    }
+
+    public int getNumberOfPlants(int blockIndex) {
+        return plants[blockIndex];
+    }
+
+    /**
+     * Returns the mean energy of the animals in the block, or 0 if there are none
+     */
+    public double getMeanEnergy(int blockIndex) {
+        return animals[blockIndex] == 0 ? 0 : (double) energy[blockIndex] / animals[blockIndex];
+    }
+
+    void animalAdded(Vector2d position, int animalEnergy) {
+        int blockIndex = getBlockIndex(position.x_coordinate, position.y_coordinate);
+        animals[blockIndex] += 1;
+        energy[blockIndex] += Math.max(animalEnergy, 0);
+    }
+
+    void animalRemoved(Vector2d position, int animalEnergy) {
+        int blockIndex = getBlockIndex(position.x_coordinate, position.y_coordinate);
+        animals[blockIndex] -= 1;
+        energy[blockIndex] -= Math.max(animalEnergy, 0);
+    }
+
+    void animalMoved(Vector2d oldPosition, Vector2d newPosition, int animalEnergy) {
+        int oldBlockIndex = getBlockIndex(oldPosition.x_coordinate, oldPosition.y_coordinate);
+        int newBlockIndex = getBlockIndex(newPosition.x_coordinate, newPosition.y_coordinate);
+
+        if(oldBlockIndex != newBlockIndex) {
+            animals[oldBlockIndex] -= 1;
+            energy[oldBlockIndex] -= Math.max(animalEnergy, 0);
+            animals[newBlockIndex] += 1;
+            energy[newBlockIndex] += Math.max(animalEnergy, 0);
+        }
+    }
+
+    /**
+     * Records a change of an animal's energy
+     *
+     * @param position
+     *      Position of the animal
+     * @param oldEnergy
+     *      Energy of the animal before the change
+     * @param newEnergy
+     *      Energy of the animal after the change
+     */
+    void energyChanged(Vector2d position, int oldEnergy, int newEnergy) {
+        int blockIndex = getBlockIndex(position.x_coordinate, position.y_coordinate);
+        energy[blockIndex] += Math.max(newEnergy, 0) - Math.max(oldEnergy, 0);
+    }
+
+    void plantAdded(Vector2d position) {
+        plants[getBlockIndex(position.x_coordinate, position.y_coordinate)] += 1;
+    }
+
+    void plantRemoved(Vector2d position) {
+        plants[getBlockIndex(position.x_coordinate, position.y_coordinate)] -= 1;
+    }
+
+    void clear() {
+        Arrays.fill(animals, 0);
+        Arrays.fill(energy, 0);
+        Arrays.fill(plants, 0);
+    }
+}
@@ -0,0 +1,146 @@
+package entities;
+
+import datatypes.Direction;
+import datatypes.Vector2d;
+import util.random.CounterRandom;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Orientations, positions and energies of the animals for the next day, used by the double buffered engine.
+ * Moves are planned only from the current state, which nothing changes while planning, so the planning
+ * is split between threads without any locks. Orientations are drawn from a counter based generator keyed
+ * by the animal's id, so they don't depend on the split either. The map applies the planned moves
+ * all at once afterwards. Arrays are kept between days, so planning doesn't allocate anything but the new positions
+ */
+class NextDayBuffers {
+    // Number of animals below which planning isn't split any further
+    private static final int PLANNING_TASK_SIZE = 2048;
+
+    private Animal[] animals;
+    private Direction[] orientations;
+    private Vector2d[] positions;
+    private int[] energies;
+    private int size;
+
+    NextDayBuffers() {
+        animals = new Animal[64];
+        orientations = new Direction[64];
+        positions = new Vector2d[64];
+        energies = new int[64];
+    }
+
+    /**
+     * Takes the animals to move
+     *
+     * @param currentAnimals
+     *      Animals of the map, in the order of the map
+     */
+    void load(Collection<Animal> currentAnimals) {
+        int newSize = currentAnimals.size();
+
+        if(newSize > animals.length) {
+            int newLength = Math.max(newSize, animals.length * 2);
+
+            animals = new Animal[newLength];
+            orientations = new Direction[newLength];
+            positions = new Vector2d[newLength];
+            energies = new int[newLength];
+        } else if(newSize < size) {
+            // Animals of the previous day shouldn't be kept alive by the buffers
+            Arrays.fill(animals, newSize, size, null);
+        }
+
+        size = 0;
+        for(Animal animal : currentAnimals) {
+            animals[size] = animal;
+            size += 1;
+        }
+    }
+
+    /**
+     * Chooses orientations of all loaded animals and computes their positions and energies after their moves
+     *
+     * @param moveEnergy
+     *      Energy used by a move
+     * @param seed
+     *      Seed of the orientations of this day
+     * @param day
+     *      Current day
+     * @param pool
+     *      Pool to plan in, if there are enough animals
+     */
+    void planMoves(int moveEnergy, long seed, int day, ForkJoinPool pool) {
+        if(size <= PLANNING_TASK_SIZE) {
+            planMoves(0, size, moveEnergy, seed, day);
+        } else {
+            pool.invoke(new PlanningTask(0, size, moveEnergy, seed, day));
+        }
+    }
+
+    private void planMoves(int from, int to, int moveEnergy, long seed, int day) {
+        for(int i = from; i < to; i++) {
+            Animal animal = animals[i];
+            int gene = CounterRandom.nextInt(seed, day, animal.getId(), 0, animal.getGenotype().getGenotypeLength());
+
+            orientations[i] = animal.getGenotype().getDirectionOfGene(gene);
+            positions[i] = animal.getPositionAfterMove(orientations[i].toUnitVector());
+            energies[i] = animal.getEnergy() - moveEnergy;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    Animal getAnimal(int index) {
+        return animals[index];
+    }
+
+    Direction getOrientation(int index) {
+        return orientations[index];
+    }
+
+    Vector2d getPosition(int index) {
+        return positions[index];
+    }
+
+    int getEnergy(int index) {
+        return energies[index];
+    }
+
+    /**
+     * Plans moves of a range of animals, splitting the range in halves until it is small enough
+     */
+    private class PlanningTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int moveEnergy;
+        private final long seed;
+        private final int day;
+
+        PlanningTask(int from, int to, int moveEnergy, long seed, int day) {
+            this.from = from;
+            this.to = to;
+            this.moveEnergy = moveEnergy;
+            this.seed = seed;
+            this.day = day;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= PLANNING_TASK_SIZE) {
+                planMoves(from, to, moveEnergy, seed, day);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PlanningTask(from, middle, moveEnergy, seed, day),
+                        new PlanningTask(middle, to, moveEnergy, seed, day));
+            }
+        }
+    }
+}
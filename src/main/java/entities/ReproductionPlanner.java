@@ -0,0 +1,121 @@
+package entities;
+
+import util.random.CounterRandom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plans births at all crowded positions of the map in parallel, for the double buffered engine.
+ * Positions are split into partitions of a fixed size, and every partition has its own list of births.
+ * Every position has its own counter based generator, keyed by the id of its first animal, so neither
+ * the random decisions nor the order of the births depend on how the partitions were spread between
+ * the threads of the pool, and the planned births are the same for every number of threads
+ */
+class ReproductionPlanner {
+    // Number of positions in a partition
+    private static final int PARTITION_SIZE = 64;
+
+    private final WorldMap map;
+    private final int startingEnergy;
+    private final List<List<Animal>> crowdedPositions;
+    private final long seed;
+    private final int day;
+    private final List<List<Animal.PlannedBirth>> birthsByPartition;
+
+    /**
+     * @param map
+     *      Map containing the animals
+     * @param startingEnergy
+     *      Starting energy of an animal
+     * @param crowdedPositions
+     *      Lists of animals at positions with at least two animals, in the order of the map
+     * @param seed
+     *      Seed of the generators of all positions
+     * @param day
+     *      Current day
+     */
+    ReproductionPlanner(WorldMap map, int startingEnergy, List<List<Animal>> crowdedPositions, long seed,
+                        int day) {
+        this.map = map;
+        this.startingEnergy = startingEnergy;
+        this.crowdedPositions = crowdedPositions;
+        this.seed = seed;
+        this.day = day;
+
+        int numberOfPartitions = (crowdedPositions.size() + PARTITION_SIZE - 1) / PARTITION_SIZE;
+        birthsByPartition = new ArrayList<>(numberOfPartitions);
+        for(int i = 0; i < numberOfPartitions; i++) {
+            birthsByPartition.add(null);
+        }
+    }
+
+    /**
+     * Plans the births of all partitions. The map mustn't change until this method returns
+     *
+     * @param pool
+     *      Pool to plan in, if there is more than one partition
+     * @return Planned births, partition by partition, in the order of the positions
+     */
+    List<Animal.PlannedBirth> planBirths(ForkJoinPool pool) {
+        if(birthsByPartition.size() == 1) {
+            planPartition(0);
+        } else if(birthsByPartition.size() > 1) {
+            pool.invoke(new PlanningTask(0, birthsByPartition.size()));
+        }
+
+        List<Animal.PlannedBirth> result = new ArrayList<>();
+        for(List<Animal.PlannedBirth> births : birthsByPartition) {
+            result.addAll(births);
+        }
+
+        return result;
+    }
+
+    private void planPartition(int partition) {
+        List<Animal.PlannedBirth> births = new ArrayList<>();
+
+        int end = Math.min((partition + 1) * PARTITION_SIZE, crowdedPositions.size());
+        for(int i = partition * PARTITION_SIZE; i < end; i++) {
+            List<Animal> animalsAtPosition = crowdedPositions.get(i);
+            // An animal is at one position only, so no two positions share a generator
+            CounterRandom random = new CounterRandom(seed, day, animalsAtPosition.get(0).getId());
+            Optional<Animal.PlannedBirth> birth = Animal.planBirth(animalsAtPosition, map, startingEnergy, random);
+
+            // Children choose their directions with the generator of the map, like all other animals
+            birth.ifPresent(plannedBirth -> births.add(new Animal.PlannedBirth(plannedBirth.firstParent,
+                    plannedBirth.secondParent, plannedBirth.childPosition,
+                    plannedBirth.childGenotype.copyWithRandom(map.getRandom()), plannedBirth.childEnergy)));
+        }
+
+        birthsByPartition.set(partition, births);
+    }
+
+    /**
+     * Plans a range of partitions, splitting it in halves until it is a single partition
+     */
+    private class PlanningTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        PlanningTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from == 1) {
+                planPartition(from);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PlanningTask(from, middle), new PlanningTask(middle, to));
+            }
+        }
+    }
+}
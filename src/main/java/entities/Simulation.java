@@ -2,14 +2,30 @@ package entities;
 
 import datatypes.containers.FollowedAnimalStatisticsContainer;
 import datatypes.Genotype;
+import datatypes.SimulationPhase;
 import datatypes.containers.StatisticsContainer;
 import datatypes.Vector2d;
 import datatypes.observers.IAnimalStateObserver;
+import datatypes.observers.ISimulationPhaseObserver;
+import datatypes.publishers.ISimulationPhasePublisher;
 import managers.StatisticsManager;
-
+import util.Parameters;
+import util.checkpoint.CheckpointInput;
+import util.checkpoint.CheckpointOutput;
+import util.random.SeededRandom;
+import util.tracking.AnimalTracker;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class Simulation implements IAnimalStateObserver, ISimulationPhasePublisher {
+    // Checkpoint file header
+    private static final int CHECKPOINT_MAGIC = 0x43544348;
+    private static final int CHECKPOINT_VERSION = 3;
 
-public class Simulation implements IAnimalStateObserver {
     // Simulation parameters
     private final int startEnergy;
     private final WorldMap map;
@@ -23,18 +39,32 @@ public class Simulation implements IAnimalStateObserver {
     private final List<Animal> deadAnimalsBuffer;
 
     private final StatisticsManager statisticsManager;
+    // Shared with the map - every random decision in the simulation comes from it
+    private final Random random;
+
+    private final List<ISimulationPhaseObserver> phaseObservers;
+
+    // Double buffered engine - phases read the state of the current day and write the next day into buffers,
+    // so they can be split between threads of the pool
+    private boolean doubleBuffered;
+    private final NextDayBuffers nextDayBuffers;
+    private ForkJoinPool pool;
+
+    private AnimalTracker animalTracker;
 
     public Simulation(int width, int height, int startEnergy, int plantEnergy, int moveEnergy, double jungleRatio,
                       int genomeLength, int numberOfGenes) {
-        this.startEnergy = startEnergy;
-        this.map = new WorldMap(width, height, jungleRatio);
-        this.plantEnergy = plantEnergy;
-        this.moveEnergy = moveEnergy;
-        this.genomeLength = genomeLength;
-        this.numberOfGenes = numberOfGenes;
+        this(width, height, startEnergy, plantEnergy, moveEnergy, jungleRatio, genomeLength, numberOfGenes,
+                new Random().nextLong());
+    }
 
-        statisticsManager = new StatisticsManager();
-        deadAnimalsBuffer = new LinkedList<>();
+    /**
+     * Creates a simulation, in which all random decisions are based on the given seed
+     */
+    public Simulation(int width, int height, int startEnergy, int plantEnergy, int moveEnergy, double jungleRatio,
+                      int genomeLength, int numberOfGenes, long seed) {
+        this(new WorldMap(width, height, jungleRatio, new SeededRandom(seed)), startEnergy, plantEnergy, moveEnergy,
+                genomeLength, numberOfGenes);
     }
 
     public Simulation(WorldMap map, int startEnergy, int plantEnergy, int moveEnergy, int genomeLength,
@@ -48,6 +78,10 @@ public class Simulation implements IAnimalStateObserver {
 
         statisticsManager = new StatisticsManager();
         deadAnimalsBuffer = new LinkedList<>();
+        random = map.getRandom();
+        phaseObservers = new ArrayList<>();
+        nextDayBuffers = new NextDayBuffers();
+        pool = ForkJoinPool.commonPool();
     }
 
     // Accessors
@@ -60,10 +94,31 @@ public class Simulation implements IAnimalStateObserver {
         return map.plantAt(position);
     }
 
+    /**
+     * Returns indices (y * width + x) of the map cells changed since the previous call
+     *
+     * @return Indices of the changed cells
+     */
+    public int[] takeChangedCells() {
+        return map.takeChangedCells();
+    }
+
     public int getNumberOfAnimals() {
         return map.getNumberOfAnimals();
     }
 
+    public int getCurrentDay() {
+        return statisticsManager.getCurrentDay();
+    }
+
+    public WorldMap getMap() {
+        return map;
+    }
+
+    public boolean isDoubleBuffered() {
+        return doubleBuffered;
+    }
+
     public Animal getFollowedAnimal() {
         return statisticsManager.getFollowedAnimal();
     }
@@ -72,6 +127,23 @@ public class Simulation implements IAnimalStateObserver {
         return statisticsManager.getFollowedAnimalStatistics();
     }
 
+    /**
+     * Returns the map parameters of this simulation
+     *
+     * @return Parameters object, without any optional parameters set
+     */
+    public Parameters getParameters() {
+        Parameters parameters = new Parameters();
+        parameters.width = map.getWidth();
+        parameters.height = map.getHeight();
+        parameters.jungleRatio = map.getJungleRatio();
+        parameters.startEnergy = startEnergy;
+        parameters.plantEnergy = plantEnergy;
+        parameters.moveEnergy = moveEnergy;
+
+        return parameters;
+    }
+
     @Override
     public String toString() {
         return "Simulation{" +
@@ -87,42 +159,94 @@ public class Simulation implements IAnimalStateObserver {
         statisticsManager.setFollowedAnimal(animal);
     }
 
+    /**
+     * Switches between the sequential engine, which moves and reproduces animals one by one, and the double
+     * buffered one, which plans all moves and births from the state before the phase in parallel and applies
+     * them at once. Both are deterministic, but animals with equal energy may end up in a different order
+     * at a position, and children born during a phase can't reproduce in it, so the same seed gives
+     * different runs in each engine. Should be called between days
+     *
+     * @param doubleBuffered
+     *      True to use the double buffered engine
+     */
+    public void setDoubleBuffered(boolean doubleBuffered) {
+        this.doubleBuffered = doubleBuffered;
+    }
+
+    /**
+     * Sets the pool in which the double buffered engine plans moves and births, the common pool by default.
+     * Random decisions of the parallel phases come from counter based generators keyed by animals,
+     * so the run is the same for every number of threads. Should be called between days
+     *
+     * @param pool
+     *      Pool to plan in
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the tracker recording trajectories of chosen animals, or null to stop tracking.
+     * The simulation doesn't close the tracker. Should be called between days
+     *
+     * @param animalTracker
+     *      Tracker to notify about births, deaths and ends of days
+     */
+    public void setAnimalTracker(AnimalTracker animalTracker) {
+        this.animalTracker = animalTracker;
+    }
+
 
     public void generateAnimalsAtRandomPositions(int numberOfAnimals) {
         if(numberOfAnimals > map.getWidth() * map.getHeight()) {
             throw new IllegalArgumentException("Number of animals is greater than the number of possible positions");
         }
 
-        Set<Vector2d> freePositions = new HashSet<>();
+        List<Vector2d> freePositionsList = new ArrayList<>(map.getWidth() * map.getHeight());
 
         for(int i = 0; i < map.getWidth(); i++) {
             for(int j = 0; j < map.getHeight(); j++) {
-                freePositions.add(new Vector2d(i, j));
+                freePositionsList.add(new Vector2d(i, j));
             }
         }
 
-        List<Vector2d> freePositionsList = new ArrayList<>(freePositions);
-
         for(int i = 0; i < numberOfAnimals; i++) {
-            Collections.shuffle(freePositionsList);
+            int chosenIndex = random.nextInt(freePositionsList.size());
 
-            Animal animal = new Animal(map, freePositionsList.get(0), startEnergy,
-                    new Genotype(genomeLength, numberOfGenes));
+            Animal animal = new Animal(map, freePositionsList.get(chosenIndex), startEnergy,
+                    new Genotype(genomeLength, numberOfGenes, random));
             animal.addStateObserver(this);
             animal.addStateObserver(statisticsManager);
 
             statisticsManager.addAnimal(animal);
 
-            freePositionsList.remove(0);
+            // The last position takes place of the used one, so removing is cheap
+            freePositionsList.set(chosenIndex, freePositionsList.get(freePositionsList.size() - 1));
+            freePositionsList.remove(freePositionsList.size() - 1);
         }
     }
 
     public void simulateDay() {
         removeDeadAnimals();
+        phaseFinished(SimulationPhase.REMOVE_DEAD_ANIMALS);
         moveAnimals();
+        phaseFinished(SimulationPhase.MOVE_ANIMALS);
         eatPlants();
+        phaseFinished(SimulationPhase.EAT_PLANTS);
         reproduceAnimals();
+        phaseFinished(SimulationPhase.REPRODUCE_ANIMALS);
         generatePlants();
+        phaseFinished(SimulationPhase.GENERATE_PLANTS);
+    }
+
+    private void phaseFinished(SimulationPhase phase) {
+        if(phase.isLastPhaseOfTheDay() && animalTracker != null) {
+            animalTracker.dayFinished(getCurrentDay());
+        }
+
+        for(ISimulationPhaseObserver observer : phaseObservers) {
+            observer.phaseFinished(this, phase);
+        }
     }
 
     public void removeDeadAnimals() {
@@ -140,6 +264,11 @@ public class Simulation implements IAnimalStateObserver {
      * Moves all animals one tile in the random direction, according to the animal's genome
      */
     public void moveAnimals() {
+        if(doubleBuffered) {
+            moveAnimalsDoubleBuffered();
+            return;
+        }
+
         Iterator<Animal> iterator = map.getAnimalsIterator();
 
         while (iterator.hasNext()) {
@@ -148,15 +277,32 @@ public class Simulation implements IAnimalStateObserver {
         }
     }
 
+    /**
+     * Moves all animals in two steps: orientations, new positions and energies are planned in parallel
+     * from the current state only, and the map applies all moves at once. Orientations come from
+     * a counter based generator, with a seed drawn from the generator of the map.
+     * Animals whose energy dropped to zero die afterwards, in the order of the map
+     */
+    private void moveAnimalsDoubleBuffered() {
+        nextDayBuffers.load(map.getAnimalsView());
+        nextDayBuffers.planMoves(moveEnergy, random.nextLong(), getCurrentDay(), pool);
+        map.applyMoves(nextDayBuffers);
+
+        for(int i = 0; i < nextDayBuffers.size(); i++) {
+            if(nextDayBuffers.getEnergy(i) <= 0) {
+                nextDayBuffers.getAnimal(i).die();
+            }
+        }
+    }
+
     public void eatPlants() {
         List<Plant> plantsToRemove = new LinkedList<>();
-        Iterator<Plant> iterator = map.getPlantsIterator();
 
-        while (iterator.hasNext()) {
-            Plant currentPlant = iterator.next();
-            Optional<List<Animal>> animalsAtPositionOptional = map.getAnimalsListAt(currentPlant.getPosition());
-            if(animalsAtPositionOptional.isPresent() ) {
-                Animal.eat(animalsAtPositionOptional.get(), plantEnergy);
+        // Eating changes only energy, so plants and animals at positions are read without copying them
+        for(Plant currentPlant : map.getPlantsView()) {
+            List<Animal> animalsAtPosition = map.getAnimalsAt(currentPlant.getPosition());
+            if(animalsAtPosition != null) {
+                Animal.eat(animalsAtPosition, plantEnergy);
                 plantsToRemove.add(currentPlant);
             }
         }
@@ -171,6 +317,11 @@ public class Simulation implements IAnimalStateObserver {
      * Reproduces all capable pairs of animals on tha map
     */
     public void reproduceAnimals() {
+        if(doubleBuffered) {
+            reproduceAnimalsDoubleBuffered();
+            return;
+        }
+
         Iterator<Vector2d> iterator = map.getAnimalPositionsIterator();
 
         while (iterator.hasNext()) {
@@ -186,6 +337,27 @@ public class Simulation implements IAnimalStateObserver {
         }
     }
 
+    /**
+     * Plans births at all crowded positions in parallel, each position with its own counter based generator
+     * seeded from the generator of the map, then creates the children in the order of the positions
+     */
+    private void reproduceAnimalsDoubleBuffered() {
+        List<List<Animal>> crowdedPositions = new ArrayList<>();
+        for(List<Animal> animalsAtPosition : map.getAnimalsAtPositionsView()) {
+            if(animalsAtPosition.size() >= 2) {
+                crowdedPositions.add(animalsAtPosition);
+            }
+        }
+
+        ReproductionPlanner planner = new ReproductionPlanner(map, startEnergy, crowdedPositions, random.nextLong(),
+                getCurrentDay());
+
+        for(Animal.PlannedBirth birth : planner.planBirths(pool)) {
+            Animal child = Animal.giveBirth(birth, map);
+            child.addStateObserver(this);
+        }
+    }
+
     /**
      * Generates one plant in the steppe and one plant in the jungle.
      * If there are no available positions, does nothing.
@@ -219,13 +391,131 @@ public class Simulation implements IAnimalStateObserver {
         return statisticsManager.getOverallStatistics();
     }
 
+    /**
+     * Saves the complete state of the simulation to a binary checkpoint file.
+     * Should be called between days
+     *
+     * @param path
+     *      Path of the checkpoint file. An existing file is replaced only after the new checkpoint is complete
+     *
+     * @throws IOException
+     *      If writing the file failed
+     * @throws IllegalStateException
+     *      If the simulation doesn't use a seeded random generator, so its state can't be saved
+     */
+    public void saveCheckpoint(Path path) throws IOException, IllegalStateException {
+        if(!(random instanceof SeededRandom)) {
+            throw new IllegalStateException("Only simulations with a seeded random generator can be saved");
+        }
+
+        try (CheckpointOutput out = new CheckpointOutput(path)) {
+            out.putInt(CHECKPOINT_MAGIC);
+            out.putInt(CHECKPOINT_VERSION);
+
+            out.putInt(map.getWidth());
+            out.putInt(map.getHeight());
+            out.putDouble(map.getJungleRatio());
+            out.putInt(startEnergy);
+            out.putInt(plantEnergy);
+            out.putInt(moveEnergy);
+            out.putInt(genomeLength);
+            out.putInt(numberOfGenes);
+            out.putByte(doubleBuffered ? 1 : 0);
+            out.putLong(((SeededRandom) random).getState());
+
+            map.writeState(out);
+
+            // Animals which died during the last day are still on the map
+            out.putInt(deadAnimalsBuffer.size());
+            for(Animal animal : deadAnimalsBuffer) {
+                out.putInt(animal.getId());
+            }
+
+            statisticsManager.writeState(out);
+        }
+    }
+
+    /**
+     * Creates a simulation from a checkpoint file. The restored simulation continues
+     * exactly like the saved one would
+     *
+     * @param path
+     *      Path of the checkpoint file
+     * @return Restored simulation
+     *
+     * @throws IOException
+     *      If the file can't be read or isn't a correct checkpoint
+     */
+    public static Simulation loadCheckpoint(Path path) throws IOException {
+        CheckpointInput in = new CheckpointInput(path);
+
+        try {
+            if(in.getInt() != CHECKPOINT_MAGIC || in.getInt() != CHECKPOINT_VERSION) {
+                throw new IOException("Given file is not a supported checkpoint");
+            }
+
+            int width = in.getInt();
+            int height = in.getInt();
+            double jungleRatio = in.getDouble();
+            int startEnergy = in.getInt();
+            int plantEnergy = in.getInt();
+            int moveEnergy = in.getInt();
+            int genomeLength = in.getInt();
+            int numberOfGenes = in.getInt();
+            boolean doubleBuffered = in.getByte() != 0;
+
+            Simulation simulation = new Simulation(width, height, startEnergy, plantEnergy, moveEnergy, jungleRatio,
+                    genomeLength, numberOfGenes, 0);
+            simulation.setDoubleBuffered(doubleBuffered);
+            ((SeededRandom) simulation.random).setState(in.getLong());
+
+            Map<Integer, Animal> animalsById = simulation.map.readState(in, numberOfGenes);
+
+            for(Animal animal : animalsById.values()) {
+                animal.addStateObserver(simulation);
+            }
+
+            int numberOfDeadAnimals = in.getInt();
+            for(int i = 0; i < numberOfDeadAnimals; i++) {
+                simulation.deadAnimalsBuffer.add(animalsById.get(in.getInt()));
+            }
+
+            simulation.statisticsManager.readState(in, animalsById);
+
+            Iterator<Plant> plantIterator = simulation.map.getPlantsIterator();
+            while (plantIterator.hasNext()) {
+                plantIterator.next().addPlantObserver(simulation.statisticsManager);
+            }
+
+            return simulation;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Checkpoint file is corrupted", e);
+        }
+    }
+
+    @Override
+    public void addPhaseObserver(ISimulationPhaseObserver observer) {
+        phaseObservers.add(observer);
+    }
+
+    @Override
+    public void removePhaseObserver(ISimulationPhaseObserver observer) {
+        phaseObservers.remove(observer);
+    }
+
     @Override
     public void animalDied(Animal deadAnimal) {
         deadAnimalsBuffer.add(deadAnimal);
+
+        if(animalTracker != null) {
+            animalTracker.animalDied(deadAnimal, getCurrentDay());
+        }
     }
 
     @Override
     public void animalBorn(Animal parent, Animal child) {
-
+        if(animalTracker != null) {
+            animalTracker.animalBorn(parent, child, getCurrentDay());
+        }
     }
 }
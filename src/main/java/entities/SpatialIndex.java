@@ -0,0 +1,220 @@
+package entities;
+
+import datatypes.Vector2d;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Animals of a map grouped into square buckets of cells, for queries about areas of the map.
+ * The map wraps around its edges, so areas can cross them and distances are measured the shorter way.
+ * Queries examine only the buckets overlapping the area, never the whole map
+ */
+class SpatialIndex {
+    static final int BUCKET_SIZE = 8;
+
+    private final int mapWidth;
+    private final int mapHeight;
+    private final int bucketColumns;
+    private final int bucketRows;
+    private final List<List<Animal>> buckets;
+
+    // Query number at which every bucket was last visited, so no bucket is visited twice by one query
+    private final int[] visitedInQuery;
+    private int query;
+
+    SpatialIndex(int mapWidth, int mapHeight) {
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        bucketColumns = (mapWidth + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        bucketRows = (mapHeight + BUCKET_SIZE - 1) / BUCKET_SIZE;
+
+        buckets = new ArrayList<>(bucketColumns * bucketRows);
+        for(int i = 0; i < bucketColumns * bucketRows; i++) {
+            buckets.add(new ArrayList<>());
+        }
+
+        visitedInQuery = new int[bucketColumns * bucketRows];
+    }
+
+    void add(Animal animal, Vector2d position) {
+        buckets.get(getBucketIndex(position)).add(animal);
+    }
+
+    void remove(Animal animal, Vector2d position) {
+        buckets.get(getBucketIndex(position)).remove(animal);
+    }
+
+    void move(Animal animal, Vector2d oldPosition, Vector2d newPosition) {
+        int oldBucketIndex = getBucketIndex(oldPosition);
+        int newBucketIndex = getBucketIndex(newPosition);
+
+        if(oldBucketIndex != newBucketIndex) {
+            buckets.get(oldBucketIndex).remove(animal);
+            buckets.get(newBucketIndex).add(animal);
+        }
+    }
+
+    void clear() {
+        for(List<Animal> bucket : buckets) {
+            bucket.clear();
+        }
+    }
+
+    /**
+     * Returns animals in the rectangle with the given corners, both included. If a coordinate of the lower left
+     * corner is higher than the one of the upper right corner, the rectangle crosses the edge of the map
+     */
+    List<Animal> getAnimalsInRectangle(Vector2d lowerLeft, Vector2d upperRight) {
+        int width = Math.floorMod(upperRight.x_coordinate - lowerLeft.x_coordinate, mapWidth) + 1;
+        int height = Math.floorMod(upperRight.y_coordinate - lowerLeft.y_coordinate, mapHeight) + 1;
+
+        List<Animal> result = new ArrayList<>();
+        startQuery();
+
+        for(int row : getBucketsAlong(lowerLeft.y_coordinate, height, mapHeight)) {
+            for(int column : getBucketsAlong(lowerLeft.x_coordinate, width, mapWidth)) {
+                for(Animal animal : visit(row * bucketColumns + column)) {
+                    Vector2d position = animal.getPosition();
+
+                    if(Math.floorMod(position.x_coordinate - lowerLeft.x_coordinate, mapWidth) < width
+                            && Math.floorMod(position.y_coordinate - lowerLeft.y_coordinate, mapHeight) < height) {
+                        result.add(animal);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns animals whose distance from the center isn't greater than the radius
+     */
+    List<Animal> getAnimalsWithinRadius(Vector2d center, int radius) {
+        int width = Math.min(2 * radius + 1, mapWidth);
+        int height = Math.min(2 * radius + 1, mapHeight);
+        long squaredRadius = (long) radius * radius;
+
+        List<Animal> result = new ArrayList<>();
+        startQuery();
+
+        for(int row : getBucketsAlong(center.y_coordinate - radius, height, mapHeight)) {
+            for(int column : getBucketsAlong(center.x_coordinate - radius, width, mapWidth)) {
+                for(Animal animal : visit(row * bucketColumns + column)) {
+                    if(getSquaredDistance(center, animal.getPosition()) <= squaredRadius) {
+                        result.add(animal);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns at most the given number of animals closest to the center, ordered by their distance.
+     * Animals at the same distance are ordered by their identifiers. Buckets are visited in rings
+     * around the center, until no unvisited bucket can contain a closer animal
+     */
+    List<Animal> getNearestAnimals(Vector2d center, int numberOfAnimals) {
+        Comparator<Animal> byDistance = Comparator.<Animal>comparingLong(animal ->
+                getSquaredDistance(center, animal.getPosition())).thenComparingInt(Animal::getId);
+
+        List<Animal> candidates = new ArrayList<>();
+        int centerColumn = center.x_coordinate / BUCKET_SIZE;
+        int centerRow = center.y_coordinate / BUCKET_SIZE;
+        int maxRing = Math.max(bucketColumns, bucketRows);
+
+        startQuery();
+
+        for(int ring = 0; ring <= maxRing; ring++) {
+            for(int i = -ring; i <= ring; i++) {
+                for(int j = -ring; j <= ring; j++) {
+                    if(Math.max(Math.abs(i), Math.abs(j)) != ring) {
+                        continue;
+                    }
+
+                    int column = Math.floorMod(centerColumn + i, bucketColumns);
+                    int row = Math.floorMod(centerRow + j, bucketRows);
+                    candidates.addAll(visit(row * bucketColumns + column));
+                }
+            }
+
+            if(candidates.size() >= numberOfAnimals) {
+                candidates.sort(byDistance);
+
+                // Animals in the next rings are at least this far, as the last bucket of a row or column
+                // may be smaller than the others
+                long minUnvisitedDistance = (long) Math.max(ring - 1, 0) * BUCKET_SIZE;
+
+                if(numberOfAnimals == 0 || getSquaredDistance(center, candidates.get(numberOfAnimals - 1)
+                        .getPosition()) <= minUnvisitedDistance * minUnvisitedDistance) {
+                    break;
+                }
+            }
+        }
+
+        candidates.sort(byDistance);
+        return new ArrayList<>(candidates.subList(0, Math.min(numberOfAnimals, candidates.size())));
+    }
+
+    /**
+     * Returns the squared distance between the positions, measured the shorter way around the map
+     */
+    long getSquaredDistance(Vector2d first, Vector2d second) {
+        long dx = Math.abs(first.x_coordinate - second.x_coordinate);
+        long dy = Math.abs(first.y_coordinate - second.y_coordinate);
+
+        dx = Math.min(dx, mapWidth - dx);
+        dy = Math.min(dy, mapHeight - dy);
+
+        return dx * dx + dy * dy;
+    }
+
+    private int getBucketIndex(Vector2d position) {
+        return (position.y_coordinate / BUCKET_SIZE) * bucketColumns + position.x_coordinate / BUCKET_SIZE;
+    }
+
+    /**
+     * Returns indices of the bucket columns or rows covering the given number of cells, starting
+     * from the given cell and crossing the edge of the map if needed
+     */
+    private static List<Integer> getBucketsAlong(int start, int length, int size) {
+        List<Integer> result = new ArrayList<>();
+        int cell = Math.floorMod(start, size);
+        int remaining = length;
+
+        while (remaining > 0) {
+            int bucket = cell / BUCKET_SIZE;
+            // Cells until the end of the bucket, or the end of the map
+            int cellsInBucket = Math.min((bucket + 1) * BUCKET_SIZE, size) - cell;
+
+            if(!result.contains(bucket)) {
+                result.add(bucket);
+            }
+
+            remaining -= cellsInBucket;
+            cell = (cell + cellsInBucket) % size;
+        }
+
+        return result;
+    }
+
+    private void startQuery() {
+        query += 1;
+    }
+
+    /**
+     * Returns animals of the bucket, or an empty list if the bucket was already visited by the current query
+     */
+    private List<Animal> visit(int bucketIndex) {
+        if(visitedInQuery[bucketIndex] == query) {
+            return List.of();
+        }
+
+        visitedInQuery[bucketIndex] = query;
+        return buckets.get(bucketIndex);
+    }
+}
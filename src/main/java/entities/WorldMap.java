@@ -1,9 +1,17 @@
 package entities;
 
+import datatypes.Direction;
+import datatypes.FenwickTree2D;
+import datatypes.Genotype;
+import datatypes.SlotAllocator;
 import datatypes.Vector2d;
 import datatypes.observers.IAnimalPositionObserver;
+import datatypes.observers.IMapChangeObserver;
 import datatypes.observers.IPlantStateObserver;
+import util.checkpoint.CheckpointInput;
+import util.checkpoint.CheckpointOutput;
 
+import java.io.IOException;
 import java.util.*;
 
 
@@ -12,6 +20,7 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
     private final int width;
     private final int height;
 
+    private final double jungleRatio;
     private final int jungleWidth;
     private final int jungleHeight;
 
@@ -29,6 +38,35 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
     private final Set<Vector2d> freePositionsSteppe;
     private final Set<Vector2d> freePositionsJungle;
 
+    // Source of all random decisions made on this map
+    private final Random random;
+    private int nextAnimalId;
+    // Slots of the animals on this map, released when an animal is removed
+    private final SlotAllocator animalSlots;
+
+    // Cells whose content changed since the last call of takeChangedCells
+    private final BitSet changedCells;
+    private int[] changedCellsList;
+    private int numberOfChangedCells;
+
+    // Animals, their energy and plants in every block of the map
+    private final BlockStatistics blockStatistics;
+    // Numbers of animals, their energy and numbers of plants in every cell, for rectangle queries
+    private final FenwickTree2D animalsIndex;
+    private final FenwickTree2D energyIndex;
+    private final FenwickTree2D plantsIndex;
+    // Animals grouped into buckets of cells, for area and nearest neighbour queries
+    private final SpatialIndex spatialIndex;
+    // Notified about every change of animals and plants, e.g. to record the changes of every day
+    private final List<IMapChangeObserver> changeObservers;
+
+    // Kept between calls of applyMoves - lists of animals emptied by the moves, ready for cells which get
+    // new animals, cells whose lists of animals changed and cells left by animals during the current call
+    private final Deque<List<Animal>> spareAnimalLists;
+    private final BitSet touchedCells;
+    private final List<Vector2d> touchedPositions;
+    private final List<Vector2d> leftPositions;
+
     /**
      * Creates a map with given dimensions
      *
@@ -45,6 +83,27 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
      *      If given map dimensions are incorrect
      */
     public WorldMap(int width, int height, double jungleRatio) throws IllegalArgumentException {
+        this(width, height, jungleRatio, new Random());
+    }
+
+    /**
+     * Creates a map with given dimensions, which uses the given random generator for all random decisions.
+     * All collections of the map keep a deterministic order, so the same generator state
+     * always leads to the same simulation
+     *
+     * @param width
+     *      Width of the map
+     * @param height
+     *      Height of the map
+     * @param jungleRatio
+     *      Ration of jungle dimensions to overall map dimensions
+     * @param random
+     *      Random generator shared by the map, animals and their genotypes
+     *
+     * @throws IllegalArgumentException
+     *      If given map dimensions are incorrect
+     */
+    public WorldMap(int width, int height, double jungleRatio, Random random) throws IllegalArgumentException {
         // Detecting incorrect arguments
         if(jungleRatio < 0) {
             throw new IllegalArgumentException("Jungle ratio must be non negative");
@@ -61,6 +120,8 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
         // Initializing map dimensions
         this.width = width;
         this.height = height;
+        this.jungleRatio = jungleRatio;
+        this.random = random;
 
         this.jungleWidth = (int) (width * jungleRatio);
         this.jungleHeight = (int) (height * jungleRatio);
@@ -75,11 +136,25 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
         mapUpperRightCorner = new Vector2d(width - 1, height - 1);
 
         // Initializing collections
-        animalsList = new HashSet<>();
-        animals = new HashMap<>();
-        plants = new HashMap<>();
-        freePositionsSteppe = new HashSet<>();
-        freePositionsJungle = new HashSet<>();
+        animalsList = new LinkedHashSet<>();
+        animals = new LinkedHashMap<>();
+        plants = new LinkedHashMap<>();
+        freePositionsSteppe = new LinkedHashSet<>();
+        freePositionsJungle = new LinkedHashSet<>();
+        animalSlots = new SlotAllocator();
+
+        changedCells = new BitSet(width * height);
+        changedCellsList = new int[64];
+        blockStatistics = new BlockStatistics(width, height);
+        animalsIndex = new FenwickTree2D(width, height);
+        energyIndex = new FenwickTree2D(width, height);
+        plantsIndex = new FenwickTree2D(width, height);
+        spatialIndex = new SpatialIndex(width, height);
+        changeObservers = new ArrayList<>();
+        spareAnimalLists = new ArrayDeque<>();
+        touchedCells = new BitSet(width * height);
+        touchedPositions = new ArrayList<>();
+        leftPositions = new ArrayList<>();
 
         for(int i = 0; i < width; i++) {
             for(int j = 0; j < height; j++) {
@@ -119,6 +194,14 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
         return height;
     }
 
+    public double getJungleRatio() {
+        return jungleRatio;
+    }
+
+    public Random getRandom() {
+        return random;
+    }
+
     public int getNumberOfAnimals() {
         return animalsList.size();
     }
@@ -130,8 +213,6 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
      *      Vector2d object representing the position
      */
     public Vector2d getRandomPositionFromMap() {
-        Random random = new Random();
-
         int randomX = random.nextInt(width);
         int randomY = random.nextInt(height);
 
@@ -142,8 +223,7 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
         if(!freePositionsJungle.isEmpty()) {
             List<Vector2d> freePositionsJungleArrayList = new ArrayList<>(freePositionsJungle);
 
-            Collections.shuffle(freePositionsJungleArrayList);
-            return Optional.of(freePositionsJungleArrayList.get(0));
+            return Optional.of(freePositionsJungleArrayList.get(random.nextInt(freePositionsJungleArrayList.size())));
         } else {
             return Optional.empty();
         }
@@ -153,8 +233,7 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
         if(!freePositionsSteppe.isEmpty()) {
             List<Vector2d> freePositionsSteppeArrayList = new ArrayList<>(freePositionsSteppe);
 
-            Collections.shuffle(freePositionsSteppeArrayList);
-            return Optional.of(freePositionsSteppeArrayList.get(0));
+            return Optional.of(freePositionsSteppeArrayList.get(random.nextInt(freePositionsSteppeArrayList.size())));
         } else {
             return Optional.empty();
         }
@@ -172,9 +251,37 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
         return List.copyOf(animalsList).iterator();
     }
 
+    /**
+     * Returns a read only view of the animals, for phases which don't add or remove animals while iterating
+     */
+    Collection<Animal> getAnimalsView() {
+        return Collections.unmodifiableSet(animalsList);
+    }
+
+    /**
+     * Returns a read only view of the lists of animals at occupied positions, in the order of the map
+     */
+    Collection<List<Animal>> getAnimalsAtPositionsView() {
+        return Collections.unmodifiableCollection(animals.values());
+    }
+
+    /**
+     * Returns a read only view of the plants, for phases which don't add or remove plants while iterating
+     */
+    Collection<Plant> getPlantsView() {
+        return Collections.unmodifiableCollection(plants.values());
+    }
+
+    /**
+     * Returns the list of animals at the given position without copying it, or null if there are none.
+     * The list mustn't be modified, and is only valid until animals move, appear or disappear
+     */
+    List<Animal> getAnimalsAt(Vector2d position) {
+        return animals.get(position);
+    }
+
     public Iterator<Plant> getPlantsIterator() {
-        Set<Plant> valuesSetCopy = Set.copyOf(plants.values());
-        return valuesSetCopy.iterator();
+        return List.copyOf(plants.values()).iterator();
     }
 
     /**
@@ -186,8 +293,7 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
      *      An iterator over the positions occupied by animals
      */
     public Iterator<Vector2d> getAnimalPositionsIterator() {
-        Set<Vector2d> keySetCopy = Set.copyOf(animals.keySet());
-        return keySetCopy.iterator();
+        return List.copyOf(animals.keySet()).iterator();
     }
 
     public Optional<List<Animal>> getAnimalsListAt(Vector2d position) {
@@ -248,7 +354,264 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
                 '}';
     }
 
+    /**
+     * Returns indices (y * width + x) of the cells whose content - animals, their energy or plants -
+     * changed since the previous call, and starts collecting the changes anew
+     *
+     * @return Indices of the changed cells, each one present once
+     */
+    public int[] takeChangedCells() {
+        int[] result = Arrays.copyOf(changedCellsList, numberOfChangedCells);
+
+        for(int cellIndex : result) {
+            changedCells.clear(cellIndex);
+        }
+        numberOfChangedCells = 0;
+
+        return result;
+    }
+
+    /**
+     * Marks the cell at the given position as changed
+     *
+     * @param position
+     *      Position of the cell
+     */
+    void cellChanged(Vector2d position) {
+        int cellIndex = toCellIndex(position);
+
+        if(!changedCells.get(cellIndex)) {
+            changedCells.set(cellIndex);
+
+            if(numberOfChangedCells == changedCellsList.length) {
+                changedCellsList = Arrays.copyOf(changedCellsList, changedCellsList.length * 2);
+            }
+            changedCellsList[numberOfChangedCells++] = cellIndex;
+        }
+    }
+
+    /**
+     * Returns numbers of animals, their energy and numbers of plants in blocks of the map.
+     * The returned object is updated along with the map
+     */
+    public BlockStatistics getBlockStatistics() {
+        return blockStatistics;
+    }
+
+    /**
+     * Records a change of an animal's energy
+     *
+     * @param animal
+     *      Animal whose energy changed
+     * @param position
+     *      Position of the animal
+     * @param oldEnergy
+     *      Energy of the animal before the change
+     * @param newEnergy
+     *      Energy of the animal after the change
+     */
+    void animalEnergyChanged(Animal animal, Vector2d position, int oldEnergy, int newEnergy) {
+        blockStatistics.energyChanged(position, oldEnergy, newEnergy);
+        energyIndex.add(position.x_coordinate, position.y_coordinate,
+                Math.max(newEnergy, 0) - Math.max(oldEnergy, 0));
+
+        for(IMapChangeObserver observer : changeObservers) {
+            observer.animalChanged(animal);
+        }
+    }
+
+    public void addChangeObserver(IMapChangeObserver observer) {
+        changeObservers.add(observer);
+    }
+
+    public void removeChangeObserver(IMapChangeObserver observer) {
+        changeObservers.remove(observer);
+    }
+
+    /**
+     * Returns the number of animals in the rectangle with the given corners, both included.
+     * The rectangle may cross the edge of the map, like in getAnimalsInRectangle
+     *
+     * @param lowerLeft
+     *      Corner where the rectangle starts
+     * @param upperRight
+     *      Corner where the rectangle ends
+     *
+     * @throws IllegalArgumentException
+     *      If a corner is outside the map
+     */
+    public int getNumberOfAnimalsIn(Vector2d lowerLeft, Vector2d upperRight) throws IllegalArgumentException {
+        return (int) sumIn(animalsIndex, lowerLeft, upperRight);
+    }
+
+    /**
+     * Returns the total energy of animals in the rectangle with the given corners, both included.
+     * Energy of dead animals which weren't removed yet is counted as zero.
+     * The rectangle may cross the edge of the map, like in getAnimalsInRectangle
+     *
+     * @param lowerLeft
+     *      Corner where the rectangle starts
+     * @param upperRight
+     *      Corner where the rectangle ends
+     *
+     * @throws IllegalArgumentException
+     *      If a corner is outside the map
+     */
+    public long getEnergyIn(Vector2d lowerLeft, Vector2d upperRight) throws IllegalArgumentException {
+        return sumIn(energyIndex, lowerLeft, upperRight);
+    }
+
+    /**
+     * Returns the number of plants in the rectangle with the given corners, both included.
+     * The rectangle may cross the edge of the map, like in getAnimalsInRectangle
+     *
+     * @param lowerLeft
+     *      Corner where the rectangle starts
+     * @param upperRight
+     *      Corner where the rectangle ends
+     *
+     * @throws IllegalArgumentException
+     *      If a corner is outside the map
+     */
+    public int getNumberOfPlantsIn(Vector2d lowerLeft, Vector2d upperRight) throws IllegalArgumentException {
+        return (int) sumIn(plantsIndex, lowerLeft, upperRight);
+    }
+
+    /**
+     * Returns animals in the rectangle with the given corners, both included. The map wraps around its edges,
+     * so if a coordinate of the lower left corner is higher than the one of the upper right corner,
+     * the rectangle crosses the edge of the map
+     *
+     * @param lowerLeft
+     *      Corner where the rectangle starts
+     * @param upperRight
+     *      Corner where the rectangle ends
+     *
+     * @throws IllegalArgumentException
+     *      If a corner is outside the map
+     */
+    public List<Animal> getAnimalsInRectangle(Vector2d lowerLeft, Vector2d upperRight)
+            throws IllegalArgumentException {
+        if(!isInsideMap(lowerLeft) || !isInsideMap(upperRight)) {
+            throw new IllegalArgumentException("Corners of the rectangle must be inside the map");
+        }
+
+        return spatialIndex.getAnimalsInRectangle(lowerLeft, upperRight);
+    }
+
+    /**
+     * Returns animals whose distance from the center isn't greater than the radius.
+     * Distances are measured the shorter way around the map
+     *
+     * @param center
+     *      Center of the circle
+     * @param radius
+     *      Radius of the circle, non negative
+     *
+     * @throws IllegalArgumentException
+     *      If the center is outside the map or the radius is negative
+     */
+    public List<Animal> getAnimalsWithinRadius(Vector2d center, int radius) throws IllegalArgumentException {
+        if(!isInsideMap(center) || radius < 0) {
+            throw new IllegalArgumentException("Center must be inside the map and radius can't be negative");
+        }
+
+        return spatialIndex.getAnimalsWithinRadius(center, radius);
+    }
+
+    /**
+     * Returns animals closest to the given position, ordered by their distance, and then by their identifiers.
+     * Distances are measured the shorter way around the map
+     *
+     * @param center
+     *      Position to measure the distances from
+     * @param numberOfAnimals
+     *      Maximal number of returned animals
+     *
+     * @throws IllegalArgumentException
+     *      If the position is outside the map or the number of animals is negative
+     */
+    public List<Animal> getNearestAnimals(Vector2d center, int numberOfAnimals) throws IllegalArgumentException {
+        if(!isInsideMap(center) || numberOfAnimals < 0) {
+            throw new IllegalArgumentException("Position must be inside the map and the number can't be negative");
+        }
+
+        return spatialIndex.getNearestAnimals(center, numberOfAnimals);
+    }
+
+    private long sumIn(FenwickTree2D index, Vector2d lowerLeft, Vector2d upperRight) throws IllegalArgumentException {
+        if(!isInsideMap(lowerLeft) || !isInsideMap(upperRight)) {
+            throw new IllegalArgumentException("Corners of the rectangle must be inside the map");
+        }
+
+        int fromX = lowerLeft.x_coordinate;
+        int fromY = lowerLeft.y_coordinate;
+        int toX = upperRight.x_coordinate;
+        int toY = upperRight.y_coordinate;
+        boolean wrapsX = fromX > toX;
+        boolean wrapsY = fromY > toY;
+
+        // A rectangle crossing the edge of the map is split into up to four parts, one at each corner
+        long sum = index.sum(fromX, fromY, wrapsX ? width - 1 : toX, wrapsY ? height - 1 : toY);
+        if(wrapsX) {
+            sum += index.sum(0, fromY, toX, wrapsY ? height - 1 : toY);
+        }
+        if(wrapsY) {
+            sum += index.sum(fromX, 0, wrapsX ? width - 1 : toX, toY);
+        }
+        if(wrapsX && wrapsY) {
+            sum += index.sum(0, 0, toX, toY);
+        }
+
+        return sum;
+    }
+
+    private void animalAdded(Animal animal, Vector2d position, int energy) {
+        spatialIndex.add(animal, position);
+        blockStatistics.animalAdded(position, energy);
+        animalsIndex.add(position.x_coordinate, position.y_coordinate, 1);
+        energyIndex.add(position.x_coordinate, position.y_coordinate, Math.max(energy, 0));
+    }
+
+    private void animalRemoved(Animal animal, Vector2d position, int energy) {
+        spatialIndex.remove(animal, position);
+        blockStatistics.animalRemoved(position, energy);
+        animalsIndex.add(position.x_coordinate, position.y_coordinate, -1);
+        energyIndex.add(position.x_coordinate, position.y_coordinate, -Math.max(energy, 0));
+    }
+
+    private void plantAdded(Vector2d position) {
+        blockStatistics.plantAdded(position);
+        plantsIndex.add(position.x_coordinate, position.y_coordinate, 1);
+    }
+
+    private void plantRemoved(Vector2d position) {
+        blockStatistics.plantRemoved(position);
+        plantsIndex.add(position.x_coordinate, position.y_coordinate, -1);
+    }
+
     // Methods
+    /**
+     * Returns a new, unique identifier for an animal placed on this map
+     */
+    int nextAnimalId() {
+        return nextAnimalId++;
+    }
+
+    /**
+     * Returns a slot for a new animal, not used by any other animal of this map
+     */
+    int allocateAnimalSlot() {
+        return animalSlots.allocate();
+    }
+
+    /**
+     * Returns the number of slots ever given to animals of this map, so every slot is lower than it
+     */
+    public int getAnimalSlotsCapacity() {
+        return animalSlots.getCapacity();
+    }
+
     /**
      * Removes an animal from the map
      *
@@ -266,7 +629,14 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
             animals.remove(animal.getPosition());
         }
 
+        cellChanged(animal.getPosition());
+        animalRemoved(animal, animal.getPosition(), animal.getEnergy());
         updatePositionStatusForPlants(animal.getPosition());
+        animalSlots.release(animal.getSlot());
+
+        for(IMapChangeObserver observer : changeObservers) {
+            observer.animalRemoved(animal);
+        }
     }
 
     /**
@@ -303,7 +673,13 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
         animal.addPositionObserver(this);
         placeAt(animal, animal.getPosition());
         animals.get(animal.getPosition()).sort(Comparator.comparing(Animal::getEnergy).reversed());
+        cellChanged(animal.getPosition());
+        animalAdded(animal, animal.getPosition(), animal.getEnergy());
         removeFromPossiblePositionsForPlants(animal.getPosition());
+
+        for(IMapChangeObserver observer : changeObservers) {
+            observer.animalPlaced(animal);
+        }
     }
 
     /**
@@ -345,21 +721,139 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
         // We have to sort because always keep animals at a given position sorted by their energy
         animals.get(newPosition).sort(Comparator.comparing(Animal::getEnergy).reversed());
 
+        cellChanged(oldPosition);
+        cellChanged(newPosition);
+        spatialIndex.move(animal, oldPosition, newPosition);
+        blockStatistics.animalMoved(oldPosition, newPosition, animal.getEnergy());
+        animalsIndex.add(oldPosition.x_coordinate, oldPosition.y_coordinate, -1);
+        animalsIndex.add(newPosition.x_coordinate, newPosition.y_coordinate, 1);
+        energyIndex.add(oldPosition.x_coordinate, oldPosition.y_coordinate, -Math.max(animal.getEnergy(), 0));
+        energyIndex.add(newPosition.x_coordinate, newPosition.y_coordinate, Math.max(animal.getEnergy(), 0));
+
         // Updating the free positions collections
         updatePositionStatusForPlants(oldPosition);
         removeFromPossiblePositionsForPlants(newPosition);
+
+        for(IMapChangeObserver observer : changeObservers) {
+            observer.animalChanged(animal);
+        }
+    }
+
+    /**
+     * Moves all animals to their planned positions and energies at once. Only animals which leave their cells
+     * are moved between the lists of animals and the indexes, the others only change their energy, and only
+     * the cells whose content changed are marked. Lists of these cells are sorted by the new energy afterwards,
+     * animals with equal energy keeping their order in the list, like after the moves of the sequential engine.
+     * Lists emptied by the moves are reused for the cells which get animals
+     *
+     * @param buffers
+     *      Planned moves of all animals of the map
+     */
+    void applyMoves(NextDayBuffers buffers) {
+        for(int i = 0; i < buffers.size(); i++) {
+            Animal animal = buffers.getAnimal(i);
+            Vector2d oldPosition = animal.getPosition();
+            Vector2d newPosition = buffers.getPosition(i);
+            int oldEnergy = animal.getEnergy();
+            int newEnergy = buffers.getEnergy(i);
+
+            animal.applyMove(buffers.getOrientation(i), newPosition, newEnergy);
+
+            if(newPosition.equals(oldPosition)) {
+                if(newEnergy != oldEnergy) {
+                    cellChanged(oldPosition);
+                    positionTouched(oldPosition);
+                }
+                // Orientation may have changed even if nothing else did
+                animalEnergyChanged(animal, oldPosition, oldEnergy, newEnergy);
+                continue;
+            }
+
+            List<Animal> oldAnimalsList = animals.get(oldPosition);
+            oldAnimalsList.remove(animal);
+
+            if(oldAnimalsList.isEmpty()) {
+                animals.remove(oldPosition);
+                spareAnimalLists.push(oldAnimalsList);
+            }
+
+            List<Animal> newAnimalsList = animals.get(newPosition);
+
+            if(newAnimalsList == null) {
+                newAnimalsList = spareAnimalLists.isEmpty() ? new LinkedList<>() : spareAnimalLists.pop();
+                animals.put(newPosition, newAnimalsList);
+            }
+            newAnimalsList.add(animal);
+
+            positionTouched(oldPosition);
+            positionTouched(newPosition);
+            leftPositions.add(oldPosition);
+
+            cellChanged(oldPosition);
+            cellChanged(newPosition);
+            spatialIndex.move(animal, oldPosition, newPosition);
+            blockStatistics.animalMoved(oldPosition, newPosition, oldEnergy);
+            blockStatistics.energyChanged(newPosition, oldEnergy, newEnergy);
+            animalsIndex.add(oldPosition.x_coordinate, oldPosition.y_coordinate, -1);
+            animalsIndex.add(newPosition.x_coordinate, newPosition.y_coordinate, 1);
+            energyIndex.add(oldPosition.x_coordinate, oldPosition.y_coordinate, -Math.max(oldEnergy, 0));
+            energyIndex.add(newPosition.x_coordinate, newPosition.y_coordinate, Math.max(newEnergy, 0));
+            removeFromPossiblePositionsForPlants(newPosition);
+
+            for(IMapChangeObserver observer : changeObservers) {
+                observer.animalChanged(animal);
+            }
+        }
+
+        for(Vector2d position : touchedPositions) {
+            List<Animal> animalsAtPosition = animals.get(position);
+
+            if(animalsAtPosition != null) {
+                animalsAtPosition.sort(Comparator.comparing(Animal::getEnergy).reversed());
+            }
+            touchedCells.clear(toCellIndex(position));
+        }
+
+        // Positions left by all animals may now be free for plants
+        for(Vector2d position : leftPositions) {
+            updatePositionStatusForPlants(position);
+        }
+
+        touchedPositions.clear();
+        leftPositions.clear();
+    }
+
+    private void positionTouched(Vector2d position) {
+        int cellIndex = toCellIndex(position);
+
+        if(!touchedCells.get(cellIndex)) {
+            touchedCells.set(cellIndex);
+            touchedPositions.add(position);
+        }
     }
 
     @Override
     public void plantEaten(Plant eatenPlant) {
         plants.remove(eatenPlant.getPosition());
+        cellChanged(eatenPlant.getPosition());
+        plantRemoved(eatenPlant.getPosition());
         updatePositionStatusForPlants(eatenPlant.getPosition());
+
+        for(IMapChangeObserver observer : changeObservers) {
+            observer.plantRemoved(eatenPlant);
+        }
     }
 
     @Override
     public void newPlant(Plant newPlant) {
         plants.put(newPlant.getPosition(), newPlant);
+        cellChanged(newPlant.getPosition());
+        plantAdded(newPlant.getPosition());
         removeFromPossiblePositionsForPlants(newPlant.getPosition());
+
+        for(IMapChangeObserver observer : changeObservers) {
+            observer.plantAdded(newPlant);
+        }
     }
 
     /**
@@ -396,8 +890,154 @@ public class WorldMap implements IAnimalPositionObserver, IPlantStateObserver {
         }
     }
 
+    private int toCellIndex(Vector2d position) {
+        return position.y_coordinate * width + position.x_coordinate;
+    }
+
     // Methods for testing
     public boolean isAFreePositionForPlants(Vector2d position) {
         return freePositionsSteppe.contains(position) || freePositionsJungle.contains(position);
     }
+
+    // Checkpoints
+    private Vector2d fromCellIndex(int cellIndex) {
+        return new Vector2d(cellIndex % width, cellIndex / width);
+    }
+
+    /**
+     * Writes animals, plants and free positions to the checkpoint.
+     * Every collection is written in its iteration order, so the restored map behaves exactly like this one
+     *
+     * @param out
+     *      Checkpoint to write to
+     * @throws IOException
+     *      If writing failed
+     */
+    void writeState(CheckpointOutput out) throws IOException {
+        out.putInt(nextAnimalId);
+
+        out.putInt(animalsList.size());
+        for(Animal animal : animalsList) {
+            Genotype genotype = animal.getGenotype();
+
+            out.putInt(animal.getId());
+            out.putInt(toCellIndex(animal.getPosition()));
+            out.putInt(animal.getEnergy());
+            out.putByte(animal.getOrientation().ordinal());
+            out.putInt(genotype.getGenotypeLength());
+            for(int i = 0; i < genotype.getGenotypeLength(); i++) {
+                out.putByte(genotype.getGene(i));
+            }
+        }
+
+        out.putInt(animals.size());
+        for(Map.Entry<Vector2d, List<Animal>> entry : animals.entrySet()) {
+            out.putInt(toCellIndex(entry.getKey()));
+            out.putInt(entry.getValue().size());
+            for(Animal animal : entry.getValue()) {
+                out.putInt(animal.getId());
+            }
+        }
+
+        out.putInt(plants.size());
+        for(Vector2d position : plants.keySet()) {
+            out.putInt(toCellIndex(position));
+        }
+
+        writePositions(out, freePositionsJungle);
+        writePositions(out, freePositionsSteppe);
+    }
+
+    /**
+     * Replaces the content of this map with the content read from a checkpoint
+     *
+     * @param in
+     *      Checkpoint to read from
+     * @param geneTypesNumber
+     *      Number of gene types in the genotypes of the animals
+     * @return Map of restored animals, with their identifiers as keys
+     */
+    Map<Integer, Animal> readState(CheckpointInput in, int geneTypesNumber) {
+        animalsList.clear();
+        animals.clear();
+        plants.clear();
+        animalSlots.clear();
+
+        nextAnimalId = in.getInt();
+
+        int numberOfAnimals = in.getInt();
+        Map<Integer, Animal> animalsById = new HashMap<>(numberOfAnimals * 2);
+
+        for(int i = 0; i < numberOfAnimals; i++) {
+            int id = in.getInt();
+            Vector2d position = fromCellIndex(in.getInt());
+            int energy = in.getInt();
+            Direction orientation = Direction.intToDirection(in.getByte());
+
+            int[] genes = new int[in.getInt()];
+            for(int j = 0; j < genes.length; j++) {
+                genes[j] = in.getByte();
+            }
+
+            Animal animal = new Animal(this, id, position, energy, orientation,
+                    new Genotype(genes, geneTypesNumber, random));
+            animal.addPositionObserver(this);
+
+            animalsList.add(animal);
+            animalsById.put(id, animal);
+        }
+
+        int numberOfOccupiedPositions = in.getInt();
+        for(int i = 0; i < numberOfOccupiedPositions; i++) {
+            Vector2d position = fromCellIndex(in.getInt());
+            int numberOfAnimalsAtPosition = in.getInt();
+
+            List<Animal> animalsAtPosition = new LinkedList<>();
+            for(int j = 0; j < numberOfAnimalsAtPosition; j++) {
+                animalsAtPosition.add(animalsById.get(in.getInt()));
+            }
+
+            animals.put(position, animalsAtPosition);
+        }
+
+        int numberOfPlants = in.getInt();
+        for(int i = 0; i < numberOfPlants; i++) {
+            Plant plant = new Plant(fromCellIndex(in.getInt()));
+            plant.addPlantObserver(this);
+            plants.put(plant.getPosition(), plant);
+        }
+
+        readPositions(in, freePositionsJungle);
+        readPositions(in, freePositionsSteppe);
+
+        blockStatistics.clear();
+        animalsIndex.clear();
+        energyIndex.clear();
+        plantsIndex.clear();
+        spatialIndex.clear();
+        for(Animal animal : animalsList) {
+            animalAdded(animal, animal.getPosition(), animal.getEnergy());
+        }
+        for(Vector2d position : plants.keySet()) {
+            plantAdded(position);
+        }
+
+        return animalsById;
+    }
+
+    private void writePositions(CheckpointOutput out, Set<Vector2d> positions) throws IOException {
+        out.putInt(positions.size());
+        for(Vector2d position : positions) {
+            out.putInt(toCellIndex(position));
+        }
+    }
+
+    private void readPositions(CheckpointInput in, Set<Vector2d> positions) {
+        positions.clear();
+
+        int numberOfPositions = in.getInt();
+        for(int i = 0; i < numberOfPositions; i++) {
+            positions.add(fromCellIndex(in.getInt()));
+        }
+    }
 }
@@ -0,0 +1,234 @@
+package managers;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs simulations of all windows on a bounded pool of worker threads.
+ * A worker takes a runner, simulates its days for at most one time slice and puts it back.
+ * Runners ready to simulate are taken in the order of their virtual time - the time they were run for,
+ * divided by their priority - so each one gets a share of the workers proportional to its priority.
+ * Runners with a fixed speed wait in a separate queue until their next day is due.
+ * Work following a day which doesn't need the simulation, like publishing frames and exporting statistics,
+ * may be handed to a separate downstream thread, so the workers can start the next day right away
+ */
+public class SimulationHost implements AutoCloseable {
+    // Longest time a worker runs a single runner before taking the next one
+    private static final long TIME_SLICE_NANOSECONDS = 2_000_000L;
+
+    private static SimulationHost sharedHost;
+
+    private final Thread[] workers;
+    private final ExecutorService downstream;
+
+    // Guards the queues and the scheduling state of the runners
+    private final Object lock;
+    private final PriorityQueue<SimulationRunner> readyRunners;
+    private final PriorityQueue<SimulationRunner> waitingRunners;
+    // Virtual time of the most recently started slice. Runners coming back from waiting start from it,
+    // so they don't take over the workers with the time saved while waiting
+    private double virtualClock;
+    private boolean closed;
+
+    /**
+     * Creates a host with the given number of worker threads
+     *
+     * @param numberOfWorkers
+     *      Number of worker threads, at least 1
+     *
+     * @throws IllegalArgumentException
+     *      If the number of workers is lower than 1
+     */
+    public SimulationHost(int numberOfWorkers) throws IllegalArgumentException {
+        if(numberOfWorkers < 1) {
+            throw new IllegalArgumentException("Simulation host needs at least one worker");
+        }
+
+        lock = new Object();
+        readyRunners = new PriorityQueue<>(Comparator.comparingDouble(runner -> runner.virtualTime));
+        waitingRunners = new PriorityQueue<>(Comparator.comparingLong(runner -> runner.nextDayTime));
+
+        workers = new Thread[numberOfWorkers];
+        for(int i = 0; i < numberOfWorkers; i++) {
+            workers[i] = new Thread(this::work, "simulation-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        downstream = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "simulation-downstream");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the host shared by all windows, with one worker per processor except the one
+     * left for the user interface
+     */
+    public static synchronized SimulationHost getShared() {
+        if(sharedHost == null) {
+            sharedHost = new SimulationHost(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        }
+
+        return sharedHost;
+    }
+
+    public int getNumberOfWorkers() {
+        return workers.length;
+    }
+
+    /**
+     * Makes the runner simulate its next day as soon as possible. A runner being run by a worker
+     * is put back in the queue by that worker
+     */
+    void restart(SimulationRunner runner) {
+        synchronized (lock) {
+            if(closed) {
+                return;
+            }
+
+            if(waitingRunners.remove(runner) || !runner.scheduled) {
+                runner.scheduled = true;
+                runner.nextDayTime = System.nanoTime();
+                enqueue(runner);
+            }
+        }
+    }
+
+    /**
+     * Removes the runner from the queues. A slice being run is finished first, so the runner may
+     * still simulate until its current day ends
+     */
+    void cancel(SimulationRunner runner) {
+        synchronized (lock) {
+            if(readyRunners.remove(runner) || waitingRunners.remove(runner)) {
+                runner.scheduled = false;
+            }
+        }
+    }
+
+    /**
+     * Runs the task on the downstream thread, after all tasks given before. If the host is closed,
+     * the task is run on the calling thread
+     */
+    void executeDownstream(Runnable task) {
+        try {
+            downstream.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * Stops the workers and waits until they end. Downstream tasks given before are still run
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+
+        downstream.shutdown();
+
+        for(Thread worker : workers) {
+            worker.interrupt();
+        }
+
+        for(Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Must be called with the lock held
+    private void enqueue(SimulationRunner runner) {
+        if(!runner.wantsToRun()) {
+            runner.scheduled = false;
+            return;
+        }
+
+        if(runner.isDue(System.nanoTime())) {
+            runner.virtualTime = Math.max(runner.virtualTime, virtualClock);
+            readyRunners.add(runner);
+        } else {
+            waitingRunners.add(runner);
+        }
+
+        lock.notifyAll();
+    }
+
+    // Worker thread
+    private void work() {
+        while (true) {
+            SimulationRunner runner;
+
+            try {
+                runner = takeRunner();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if(runner == null) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            runner.runSlice(start + TIME_SLICE_NANOSECONDS);
+            long elapsed = System.nanoTime() - start;
+
+            synchronized (lock) {
+                runner.virtualTime += (double) elapsed / runner.getPriority();
+
+                if(closed) {
+                    runner.scheduled = false;
+                } else {
+                    enqueue(runner);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for a runner ready to simulate its next day
+     *
+     * @return The runner, or null if the host is closed
+     */
+    private SimulationRunner takeRunner() throws InterruptedException {
+        synchronized (lock) {
+            while (!closed) {
+                long now = System.nanoTime();
+
+                // Runners whose next day is due become ready
+                while (!waitingRunners.isEmpty() && waitingRunners.peek().isDue(now)) {
+                    SimulationRunner runner = waitingRunners.poll();
+                    runner.virtualTime = Math.max(runner.virtualTime, virtualClock);
+                    readyRunners.add(runner);
+                }
+
+                if(!readyRunners.isEmpty()) {
+                    SimulationRunner runner = readyRunners.poll();
+                    virtualClock = Math.max(virtualClock, runner.virtualTime);
+                    return runner;
+                }
+
+                if(waitingRunners.isEmpty()) {
+                    lock.wait();
+                } else {
+                    TimeUnit.NANOSECONDS.timedWait(lock, waitingRunners.peek().nextDayTime - now);
+                }
+            }
+
+            return null;
+        }
+    }
+}
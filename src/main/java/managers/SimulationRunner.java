@@ -0,0 +1,637 @@
+package managers;
+
+import datatypes.containers.SimulationFrame;
+import datatypes.containers.StatisticsContainer;
+import datatypes.observers.IDayStatisticsObserver;
+import datatypes.ui.MapPainter;
+import entities.Animal;
+import entities.BlockStatistics;
+import entities.Simulation;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a simulation on the workers of a simulation host. After every day the worker publishes a frame
+ * into a single slot, replacing the frame that wasn't taken yet, so the user interface
+ * always gets the newest state, no matter how fast either side is.
+ * In the pipelined mode the worker only takes a snapshot of the finished day - the changed cells with
+ * their colours and the statistics - and starts the next day, while the host's downstream thread
+ * publishes the frame and notifies the statistics observers. At most the given number of snapshots
+ * wait for the downstream thread, a runner with a full pipeline isn't run until one of them is handled.
+ * Other threads control the runner through a queue of commands, applied only between days by the thread
+ * holding the runner's lock - usually the worker, which checks the queue once before every day.
+ * Other threads may access the simulation only while the runner is paused
+ */
+public class SimulationRunner implements AutoCloseable {
+    // Days per second meaning that the simulation runs as fast as possible
+    public static final double UNLIMITED_SPEED = 0;
+    private static final double DEFAULT_DAYS_PER_SECOND = 11;
+
+    // Share of the host's workers is proportional to the priority
+    public static final int MIN_PRIORITY = 1;
+    public static final int NORM_PRIORITY = 5;
+    public static final int MAX_PRIORITY = 10;
+
+    private final Simulation simulation;
+    private final MapPainter painter;
+    private final int numberOfCells;
+    private final SimulationHost host;
+
+    // The worker holds the lock while simulating a day, commands are applied with the lock held.
+    // The pause flag is changed only with the lock held, but read without it by other threads
+    private final Object lock;
+    private volatile boolean paused;
+    private volatile boolean closed;
+    // If set to -1, the runner doesn't pause on its own
+    private int pauseDay;
+    // A command stays in the queue until it's applied, so the runner doesn't look paused in between
+    private final Queue<Runnable> commands;
+
+    // If set to 0, days are simulated one after another without waiting
+    private volatile long dayPeriodNanoseconds;
+    private volatile int priority;
+    // If true, frames contain a copy of the map's block statistics
+    private volatile boolean publishingBlockStatistics;
+    // If set to 0, snapshots are handled by the worker right after their day
+    private volatile int pipelineDepth;
+
+    // Scheduling state, used by the host. Days are scheduled at fixed times, so waiting errors don't add up
+    boolean scheduled;
+    double virtualTime;
+    long nextDayTime;
+
+    // Snapshots waiting for the downstream thread, counted separately, as the queue's size isn't constant time.
+    // A snapshot is counted until it's handled, so the worker doesn't run ahead while the last one is handled
+    private final Queue<DaySnapshot> pipeline;
+    private final AtomicInteger pipelineSize;
+    // Held while snapshots are handled, so they are handled one by one in the order of days
+    private final Object downstreamLock;
+    private final List<IDayStatisticsObserver> statisticsObservers;
+
+    private final AtomicReference<SimulationFrame> frameSlot;
+    // Used while merging frames, always cleared afterwards
+    private final BitSet mergedCells;
+
+    /**
+     * Creates a paused runner, running on the host shared by all windows
+     *
+     * @param simulation
+     *      Simulation to run
+     */
+    public SimulationRunner(Simulation simulation) {
+        this(simulation, SimulationHost.getShared());
+    }
+
+    /**
+     * Creates a paused runner
+     *
+     * @param simulation
+     *      Simulation to run
+     * @param host
+     *      Host whose workers run the simulation
+     */
+    public SimulationRunner(Simulation simulation, SimulationHost host) {
+        this.simulation = simulation;
+        this.host = host;
+        painter = new MapPainter(simulation);
+        numberOfCells = simulation.getMap().getWidth() * simulation.getMap().getHeight();
+
+        lock = new Object();
+        paused = true;
+        pauseDay = -1;
+        commands = new ConcurrentLinkedQueue<>();
+        priority = NORM_PRIORITY;
+        dayPeriodNanoseconds = (long) (1e9 / DEFAULT_DAYS_PER_SECOND);
+        pipeline = new ConcurrentLinkedQueue<>();
+        pipelineSize = new AtomicInteger();
+        downstreamLock = new Object();
+        statisticsObservers = new CopyOnWriteArrayList<>();
+        frameSlot = new AtomicReference<>();
+        mergedCells = new BitSet(numberOfCells);
+    }
+
+    public Simulation getSimulation() {
+        return simulation;
+    }
+
+    /**
+     * Pauses the simulation after the current day. Doesn't wait - the simulation may be accessed
+     * once isPaused returns true
+     */
+    public void pause() {
+        submit(() -> paused = true);
+    }
+
+    /**
+     * Pauses the simulation and waits until the simulation thread applies the pause, so no day is being simulated
+     * unless a command queued later resumed it. Commands are still applied only by the simulation thread,
+     * so this shouldn't be called on the UI thread. Returns right away if the runner is closed
+     *
+     * @throws InterruptedException
+     *      If the thread was interrupted while waiting
+     */
+    public void pauseAndWait() throws InterruptedException {
+        CountDownLatch applied = new CountDownLatch(1);
+
+        submit(() -> {
+            paused = true;
+            applied.countDown();
+        });
+
+        // A closed runner doesn't apply commands anymore
+        while (!applied.await(10, TimeUnit.MILLISECONDS)) {
+            if(closed) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Makes the simulation run, until the day set by pauseAfterDay if there is one. Doesn't wait
+     */
+    public void resume() {
+        submit(() -> paused = false);
+    }
+
+    /**
+     * Makes the simulation run the given number of days and pause. Doesn't wait
+     *
+     * @param numberOfDays
+     *      Number of days to simulate, at least 1
+     *
+     * @throws IllegalArgumentException
+     *      If the number of days is lower than 1
+     */
+    public void step(int numberOfDays) throws IllegalArgumentException {
+        if(numberOfDays < 1) {
+            throw new IllegalArgumentException("Number of days must be at least 1");
+        }
+
+        submit(() -> {
+            pauseDay = simulation.getCurrentDay() + numberOfDays;
+            paused = false;
+        });
+    }
+
+    /**
+     * Makes the simulation run until the given day and pause after it. Doesn't wait
+     *
+     * @param day
+     *      Day after which the simulation is paused, or -1 to run without stopping
+     */
+    public void runUntil(int day) {
+        submit(() -> {
+            pauseDay = day;
+            paused = false;
+        });
+    }
+
+    /**
+     * Changes the followed animal between days and publishes a frame with all cells. Doesn't wait
+     *
+     * @param animal
+     *      Animal to follow, or null to stop following
+     */
+    public void setFollowedAnimal(Animal animal) {
+        submit(() -> {
+            simulation.setFollowedAnimal(animal);
+            publishAllCells();
+        });
+    }
+
+    /**
+     * Checks if the runner is paused and no command waits to be applied
+     */
+    public boolean isPaused() {
+        return paused && commands.isEmpty();
+    }
+
+    /**
+     * Sets the speed of the simulation. The rate is kept on average, even if single days take different time.
+     * If the simulation can't keep up, it runs as fast as possible without trying to catch up later
+     *
+     * @param daysPerSecond
+     *      Number of days simulated in a second, or UNLIMITED_SPEED
+     *
+     * @throws IllegalArgumentException
+     *      If the speed is negative
+     */
+    public void setDaysPerSecond(double daysPerSecond) throws IllegalArgumentException {
+        if(daysPerSecond < 0) {
+            throw new IllegalArgumentException("Speed of the simulation can't be negative");
+        }
+
+        dayPeriodNanoseconds = daysPerSecond == UNLIMITED_SPEED ? 0 : (long) (1e9 / daysPerSecond);
+
+        // A runner waiting for its next day with the old speed starts counting again
+        host.restart(this);
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Sets the priority of the simulation. When the host's workers are all busy,
+     * simulations get shares of their time proportional to their priorities
+     *
+     * @param priority
+     *      Priority between MIN_PRIORITY and MAX_PRIORITY
+     *
+     * @throws IllegalArgumentException
+     *      If the priority is out of range
+     */
+    public void setPriority(int priority) throws IllegalArgumentException {
+        if(priority < MIN_PRIORITY || priority > MAX_PRIORITY) {
+            throw new IllegalArgumentException("Priority must be between " + MIN_PRIORITY + " and " + MAX_PRIORITY);
+        }
+
+        this.priority = priority;
+    }
+
+    /**
+     * Makes frames published after the next day contain a copy of the map's block statistics, used by overlays
+     *
+     * @param publishingBlockStatistics
+     *      True to publish the block statistics, false to stop
+     */
+    public void setPublishingBlockStatistics(boolean publishingBlockStatistics) {
+        this.publishingBlockStatistics = publishingBlockStatistics;
+    }
+
+    /**
+     * Sets the maximum number of finished days waiting for the downstream thread. With more days waiting,
+     * the runner stops simulating until the downstream thread catches up
+     *
+     * @param pipelineDepth
+     *      Maximum number of waiting days, or 0 to publish frames and statistics right after every day
+     *
+     * @throws IllegalArgumentException
+     *      If the depth is negative
+     */
+    public void setPipelineDepth(int pipelineDepth) throws IllegalArgumentException {
+        if(pipelineDepth < 0) {
+            throw new IllegalArgumentException("Pipeline depth can't be negative");
+        }
+
+        this.pipelineDepth = pipelineDepth;
+
+        // A runner stopped by a full pipeline may continue with a deeper one
+        host.restart(this);
+    }
+
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    /**
+     * Adds an observer notified with the statistics of every day. In the pipelined mode it's called
+     * on the downstream thread, otherwise on the worker, while the simulation isn't running
+     */
+    public void addStatisticsObserver(IDayStatisticsObserver observer) {
+        statisticsObservers.add(observer);
+    }
+
+    public void removeStatisticsObserver(IDayStatisticsObserver observer) {
+        statisticsObservers.remove(observer);
+    }
+
+    /**
+     * Makes the runner pause on its own after simulating the given day
+     *
+     * @param day
+     *      Day after which the simulation is paused, or -1 to run without stopping
+     */
+    public void pauseAfterDay(int day) {
+        submit(() -> pauseDay = day);
+    }
+
+    /**
+     * Publishes a frame containing all cells of the map, e.g. after the followed animal was changed.
+     * Waits until the current day is finished
+     */
+    public void repaintAll() {
+        synchronized (lock) {
+            publishAllCells();
+        }
+    }
+
+    /**
+     * Takes the newest frame, leaving the slot empty
+     *
+     * @return The newest frame, or null if there's no new frame since the previous call
+     */
+    public SimulationFrame takeFrame() {
+        return frameSlot.getAndSet(null);
+    }
+
+    /**
+     * Stops the simulation. If a day is being simulated, waits until it's finished.
+     * Days waiting in the pipeline are handled before returning, so observers get all of them
+     */
+    @Override
+    public void close() {
+        closed = true;
+        host.cancel(this);
+
+        synchronized (lock) {
+            // The worker releases the lock only after finishing the day
+        }
+
+        synchronized (downstreamLock) {
+            handleWaitingSnapshots();
+        }
+    }
+
+    /**
+     * Checks if the runner should be given to a worker, to simulate or to apply commands
+     */
+    boolean wantsToRun() {
+        return !closed && (!commands.isEmpty() || !paused && !isPipelineFull());
+    }
+
+    private boolean isPipelineFull() {
+        int depth = pipelineDepth;
+        return depth > 0 && pipelineSize.get() >= depth;
+    }
+
+    /**
+     * Checks if the next day should already be simulated
+     */
+    boolean isDue(long now) {
+        return dayPeriodNanoseconds == 0 || now >= nextDayTime;
+    }
+
+    /**
+     * Simulates days until the runner is paused, the next day isn't due yet or the slice ends.
+     * Called by a worker of the host
+     *
+     * @param sliceEnd
+     *      Time after which no new day is started
+     */
+    void runSlice(long sliceEnd) {
+        while (true) {
+            synchronized (lock) {
+                applyCommands();
+
+                if(paused || closed || isPipelineFull()) {
+                    return;
+                }
+
+                simulateDay();
+            }
+
+            long now = System.nanoTime();
+            scheduleNextDay(now);
+
+            if(!isDue(now) || now >= sliceEnd) {
+                return;
+            }
+        }
+    }
+
+    private void scheduleNextDay(long now) {
+        long period = dayPeriodNanoseconds;
+
+        if(period == 0) {
+            nextDayTime = now;
+            return;
+        }
+
+        nextDayTime += period;
+
+        // Late by more than one day - we start counting again instead of running faster to catch up
+        if(nextDayTime < now - period) {
+            nextDayTime = now;
+        }
+    }
+
+    /**
+     * Queues the command and makes sure some worker applies it, even if the runner is paused
+     */
+    private void submit(Runnable command) {
+        commands.add(command);
+
+        // Time spent on the pause doesn't count
+        host.restart(this);
+    }
+
+    // Must be called with the lock held
+    private void applyCommands() {
+        Runnable command;
+
+        // Only the lock holder removes commands, so the peeked one is still the head of the queue
+        while ((command = commands.peek()) != null) {
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+
+            commands.poll();
+        }
+    }
+
+    // Must be called with the lock held
+    private void publishAllCells() {
+        int[] cells = new int[numberOfCells];
+        for(int i = 0; i < numberOfCells; i++) {
+            cells[i] = i;
+        }
+
+        // Changes collected so far are included
+        simulation.takeChangedCells();
+        deliver(createSnapshot(cells, null, false, null));
+    }
+
+    private void simulateDay() {
+        try {
+            simulation.simulateDay();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            paused = true;
+            deliver(createSnapshot(simulation.takeChangedCells(), null, true, e));
+            return;
+        }
+
+        // An immutable snapshot, safe to hand to the downstream stage
+        StatisticsContainer dayStatistics = simulation.getCurrentDayStatistics();
+
+        boolean pausedItself = false;
+        if(dayStatistics.currentDay == pauseDay || simulation.getNumberOfAnimals() == 0) {
+            paused = true;
+            pausedItself = true;
+            pauseDay = -1;
+        }
+
+        deliver(createSnapshot(simulation.takeChangedCells(), dayStatistics, pausedItself, null));
+    }
+
+    /**
+     * Takes everything the downstream stage needs from the simulation, which changes after this day
+     *
+     * @param pausedItself
+     *      True if the runner paused itself after this day
+     */
+    private DaySnapshot createSnapshot(int[] changedCells, StatisticsContainer dayStatistics, boolean pausedItself,
+                                       Throwable failure) {
+        int[] colours = new int[changedCells.length];
+        for(int i = 0; i < changedCells.length; i++) {
+            colours[i] = painter.getCellColour(changedCells[i]);
+        }
+
+        BlockStatistics blockStatistics = publishingBlockStatistics
+                ? simulation.getMap().getBlockStatistics().copy() : null;
+
+        return new DaySnapshot(simulation.getCurrentDay(), changedCells, colours, dayStatistics, blockStatistics,
+                pausedItself, failure);
+    }
+
+    /**
+     * Handles the snapshot right away, or queues it for the downstream thread in the pipelined mode
+     */
+    private void deliver(DaySnapshot snapshot) {
+        if(pipelineDepth == 0) {
+            synchronized (downstreamLock) {
+                // Snapshots queued before the pipeline was disabled go first
+                handleWaitingSnapshots();
+                handle(snapshot);
+            }
+
+            return;
+        }
+
+        pipelineSize.incrementAndGet();
+        pipeline.add(snapshot);
+        host.executeDownstream(this::drainPipeline);
+    }
+
+    // Downstream thread
+    private void drainPipeline() {
+        synchronized (downstreamLock) {
+            handleWaitingSnapshots();
+        }
+    }
+
+    // Must be called with the downstream lock held
+    private void handleWaitingSnapshots() {
+        DaySnapshot snapshot;
+
+        while ((snapshot = pipeline.poll()) != null) {
+            handle(snapshot);
+
+            boolean wasFull = isPipelineFull();
+            pipelineSize.decrementAndGet();
+
+            if(wasFull) {
+                host.restart(this);
+            }
+        }
+    }
+
+    // Must be called with the downstream lock held
+    private void handle(DaySnapshot snapshot) {
+        publish(snapshot);
+
+        if(snapshot.statistics != null) {
+            for(IDayStatisticsObserver observer : statisticsObservers) {
+                try {
+                    observer.dayStatisticsReady(snapshot.statistics);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Publishes a frame with the changed cells of the snapshot, merged with the frame that wasn't taken yet
+     */
+    private void publish(DaySnapshot snapshot) {
+        SimulationFrame skippedFrame;
+        SimulationFrame frame;
+
+        do {
+            skippedFrame = frameSlot.get();
+
+            if(skippedFrame == null) {
+                frame = SimulationFrame.create(snapshot.day, snapshot.pausedItself, snapshot.failure,
+                        snapshot.changedCells, snapshot.colours, snapshot.statistics, snapshot.blockStatistics,
+                        null);
+            } else {
+                frame = mergeFrame(skippedFrame, snapshot.day, snapshot.changedCells, snapshot.colours,
+                        snapshot.statistics, snapshot.blockStatistics, snapshot.pausedItself, snapshot.failure);
+            }
+        } while (!frameSlot.compareAndSet(skippedFrame, frame));
+    }
+
+    private SimulationFrame mergeFrame(SimulationFrame skippedFrame, int day, int[] changedCells, int[] colours,
+                                       StatisticsContainer dayStatistics, BlockStatistics blockStatistics,
+                                       boolean pausedItself, Throwable failure) {
+        int mergedNumberOfCells = changedCells.length;
+        int[] mergedCellsList = new int[changedCells.length + skippedFrame.getNumberOfChangedCells()];
+        int[] mergedColours = new int[mergedCellsList.length];
+
+        // New colours take precedence over the skipped ones
+        for(int i = 0; i < changedCells.length; i++) {
+            mergedCells.set(changedCells[i]);
+            mergedCellsList[i] = changedCells[i];
+            mergedColours[i] = colours[i];
+        }
+
+        for(int i = 0; i < skippedFrame.getNumberOfChangedCells(); i++) {
+            int cell = skippedFrame.getChangedCell(i);
+
+            if(!mergedCells.get(cell)) {
+                mergedCellsList[mergedNumberOfCells] = cell;
+                mergedColours[mergedNumberOfCells] = skippedFrame.getColour(i);
+                mergedNumberOfCells += 1;
+            }
+        }
+
+        for(int cell : changedCells) {
+            mergedCells.clear(cell);
+        }
+
+        // A failure or a pause of the skipped frame can't be lost
+        return SimulationFrame.create(day, pausedItself || skippedFrame.paused,
+                failure != null ? failure : skippedFrame.failure,
+                Arrays.copyOf(mergedCellsList, mergedNumberOfCells),
+                Arrays.copyOf(mergedColours, mergedNumberOfCells), dayStatistics,
+                blockStatistics != null ? blockStatistics : skippedFrame.blockStatistics, skippedFrame);
+    }
+
+    /**
+     * Everything the downstream stage needs from one day, none of it modified after the snapshot is taken
+     */
+    private static class DaySnapshot {
+        final int day;
+        final int[] changedCells;
+        final int[] colours;
+        // Null if the snapshot was taken between days
+        final StatisticsContainer statistics;
+        final BlockStatistics blockStatistics;
+        final boolean pausedItself;
+        final Throwable failure;
+
+        DaySnapshot(int day, int[] changedCells, int[] colours, StatisticsContainer statistics,
+                    BlockStatistics blockStatistics, boolean pausedItself, Throwable failure) {
+            this.day = day;
+            this.changedCells = changedCells;
+            this.colours = colours;
+            this.statistics = statistics;
+            this.blockStatistics = blockStatistics;
+            this.pausedItself = pausedItself;
+            this.failure = failure;
+        }
+    }
+}
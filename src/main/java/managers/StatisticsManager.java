@@ -1,40 +1,60 @@
 package managers;
 
 import datatypes.Direction;
+import datatypes.GeneticDiversity;
+import datatypes.Genotype;
+import datatypes.LogHistogram;
+import datatypes.containers.DiversityContainer;
 import datatypes.containers.FollowedAnimalStatisticsContainer;
+import datatypes.containers.QuantilesContainer;
 import datatypes.containers.StatisticsContainer;
 import datatypes.observers.IAnimalEnergyObserver;
 import datatypes.observers.IAnimalStateObserver;
 import datatypes.observers.IPlantStateObserver;
 import entities.Animal;
 import entities.Plant;
+import util.checkpoint.CheckpointInput;
+import util.checkpoint.CheckpointOutput;
 
+import java.io.IOException;
 import java.util.*;
 
 public class StatisticsManager implements IAnimalStateObserver, IAnimalEnergyObserver, IPlantStateObserver {
     private Animal followedAnimal;
-    private final Map<Animal, Integer> animalsBornDateMap;
+
+    // Living animals, their birth days and numbers of children, indexed by the slots of the animals
+    private Animal[] animalsBySlot;
+    private int[] birthDayBySlot;
+    private int[] numberOfChildrenBySlot;
 
     // Followed animal statistics
     private int followedAnimalDeathDate;
-    private Set<Animal> followedAnimalChildren;
-    private Set<Animal> followedAnimalDescendants;
+    private int followedAnimalNumberOfChildren;
+    private int followedAnimalNumberOfDescendants;
+    // Dead descendants can't have children, so only the living ones are kept
+    private final Set<Animal> followedAnimalLivingDescendants;
 
     // Statistics of all animals
     private int energySum;
     private int lifespanSum;
     private int numberOfAnimals;
     private int numberOfDeadAnimals;
-    private final Map<Direction, Integer> genesCount;
-    private final Map<Animal, Integer> numberOfChildren;
+    // Number of genes of every type, indexed by the gene
+    private final int[] genesCount;
     private int aliveAnimalsChildrenCountSum;
+    // Distributions of energy and number of children of living animals, and of lifespans of dead ones
+    private final LogHistogram energyHistogram;
+    private final LogHistogram lifespanHistogram;
+    private final LogHistogram numberOfChildrenHistogram;
+    // Genotypes of living animals
+    private final GeneticDiversity geneticDiversity;
     // Statistics of plants
     private int numberOfPlants;
 
     // Overall statistics
     private int overallAnimalPopulation;
     private int overallNumberOfPlants;
-    private final Map<Direction, Integer> overallGenesCount;
+    private final int[] overallGenesCount;
     private float sumOfMeanEnergyLevels;
     private float sumOfMeanLifespans;
     private float sumOfMeanNumberOfChildren;
@@ -60,21 +80,24 @@ public class StatisticsManager implements IAnimalStateObserver, IAnimalEnergyObs
         sumOfMeanLifespans = 0;
         sumOfMeanNumberOfChildren = 0;
 
-        genesCount = new LinkedHashMap<>();
-        animalsBornDateMap = new HashMap<>();
-        numberOfChildren = new HashMap<>();
-        overallGenesCount = new HashMap<>();
-
-        for(Direction direction : Direction.values()) {
-            genesCount.put(direction, 0);
-            overallGenesCount.put(direction, 0);
-        }
+        genesCount = new int[Direction.values().length];
+        animalsBySlot = new Animal[64];
+        birthDayBySlot = new int[64];
+        numberOfChildrenBySlot = new int[64];
+        overallGenesCount = new int[Direction.values().length];
+        followedAnimalLivingDescendants = new HashSet<>();
+        energyHistogram = new LogHistogram();
+        lifespanHistogram = new LogHistogram();
+        numberOfChildrenHistogram = new LogHistogram();
+        geneticDiversity = new GeneticDiversity();
     }
 
     public void setFollowedAnimal(Animal followedAnimal) {
         this.followedAnimal = followedAnimal;
-        followedAnimalChildren = new HashSet<>();
-        followedAnimalDescendants = new HashSet<>();
+        followedAnimalDeathDate = -1;
+        followedAnimalNumberOfChildren = 0;
+        followedAnimalNumberOfDescendants = 0;
+        followedAnimalLivingDescendants.clear();
     }
 
     public void incrementDay() {
@@ -112,8 +135,8 @@ public class StatisticsManager implements IAnimalStateObserver, IAnimalEnergyObs
         return (float) aliveAnimalsChildrenCountSum / numberOfAnimals;
     }
 
-    public Map<Direction, Integer> getGenesCount() {
-        return genesCount;
+    public int getGenesCount(Direction direction) {
+        return genesCount[direction.ordinal()];
     }
 
     public float getMeanLifespan() {
@@ -124,61 +147,109 @@ public class StatisticsManager implements IAnimalStateObserver, IAnimalEnergyObs
         }
     }
 
+    public LogHistogram getEnergyHistogram() {
+        return energyHistogram;
+    }
+
+    public LogHistogram getLifespanHistogram() {
+        return lifespanHistogram;
+    }
+
+    public LogHistogram getNumberOfChildrenHistogram() {
+        return numberOfChildrenHistogram;
+    }
+
+    public GeneticDiversity getGeneticDiversity() {
+        return geneticDiversity;
+    }
+
+    /**
+     * Returns an immutable snapshot of the statistics of the current day. Only the genes counts are copied,
+     * everything else is computed into new containers anyway
+     */
     public StatisticsContainer getCurrentDayStatistics() {
         return new StatisticsContainer(numberOfAnimals,
                 numberOfPlants, getMeanEnergyLevel(),
                 getMeanLifespan(), getMeanNumberOfChildren(),
-                currentDay, genesCount);
+                currentDay, genesCount.clone(), getQuantiles(energyHistogram),
+                getQuantiles(lifespanHistogram), getQuantiles(numberOfChildrenHistogram),
+                new DiversityContainer((float) geneticDiversity.getGeneEntropy(),
+                        geneticDiversity.getNumberOfDistinctGenotypes(),
+                        (float) geneticDiversity.getMeanHammingDistance()));
+    }
+
+    private static QuantilesContainer getQuantiles(LogHistogram histogram) {
+        return new QuantilesContainer(histogram.getQuantile(0.5), histogram.getQuantile(0.9),
+                histogram.getQuantile(0.99));
     }
 
     public FollowedAnimalStatisticsContainer getFollowedAnimalStatistics() {
-        return new FollowedAnimalStatisticsContainer(followedAnimalChildren.size(), followedAnimalDescendants.size(),
-                followedAnimalDeathDate);
+        return new FollowedAnimalStatisticsContainer(followedAnimalNumberOfChildren,
+                followedAnimalNumberOfDescendants, followedAnimalDeathDate);
     }
 
     public StatisticsContainer getOverallStatistics() {
         return new StatisticsContainer(overallAnimalPopulation, overallNumberOfPlants,
                 sumOfMeanEnergyLevels / currentDay, sumOfMeanLifespans / currentDay,
-                sumOfMeanNumberOfChildren / currentDay, currentDay, overallGenesCount);
+                sumOfMeanNumberOfChildren / currentDay, currentDay, overallGenesCount.clone(), null, null, null,
+                null);
     }
 
     public void addAnimal(Animal animal) {
         animal.addStateObserver(this);
         animal.addEnergyObserver(this);
-        animalsBornDateMap.put(animal, currentDay);
-        numberOfChildren.put(animal, 0);
+        int slot = animal.getSlot();
+        ensureCapacity(slot);
+        animalsBySlot[slot] = animal;
+        birthDayBySlot[slot] = currentDay;
+        numberOfChildrenBySlot[slot] = 0;
 
         // Updating statistics
         energySum += animal.getEnergy();
+        energyHistogram.add(animal.getEnergy());
+        numberOfChildrenHistogram.add(0);
+        geneticDiversity.add(animal.getGenotype());
         numberOfAnimals += 1;
         overallAnimalPopulation += 1;
 
-        Map<Direction, Integer> genesCount = animal.getGenesCount();
+        Genotype genotype = animal.getGenotype();
 
-        for(Direction direction : genesCount.keySet()) {
-            this.genesCount.put(direction, this.genesCount.get(direction) + genesCount.get(direction));
-            overallGenesCount.put(direction, overallGenesCount.get(direction) + genesCount.get(direction));
+        for(int i = 0; i < genotype.getGenotypeLength(); i++) {
+            genesCount[genotype.getGene(i)] += 1;
+            overallGenesCount[genotype.getGene(i)] += 1;
         }
     }
 
     @Override
     public void animalDied(Animal deadAnimal) {
+        if(!isLiving(deadAnimal)) {
+            return;
+        }
+
         numberOfAnimals -= 1;
         numberOfDeadAnimals += 1;
-        lifespanSum += currentDay - animalsBornDateMap.get(deadAnimal);
-        animalsBornDateMap.remove(deadAnimal);
-        aliveAnimalsChildrenCountSum -= numberOfChildren.get(deadAnimal);
-        numberOfChildren.remove(deadAnimal);
+        int slot = deadAnimal.getSlot();
+        int lifespan = currentDay - birthDayBySlot[slot];
 
-        Map<Direction, Integer> genesCount = deadAnimal.getGenesCount();
+        lifespanSum += lifespan;
+        lifespanHistogram.add(lifespan);
+        energyHistogram.remove(deadAnimal.getEnergy());
+        aliveAnimalsChildrenCountSum -= numberOfChildrenBySlot[slot];
+        numberOfChildrenHistogram.remove(numberOfChildrenBySlot[slot]);
+        geneticDiversity.remove(deadAnimal.getGenotype());
+        animalsBySlot[slot] = null;
 
-        for(Direction direction : genesCount.keySet()) {
-            this.genesCount.put(direction, this.genesCount.get(direction) - genesCount.get(direction));
+        Genotype genotype = deadAnimal.getGenotype();
+
+        for(int i = 0; i < genotype.getGenotypeLength(); i++) {
+            genesCount[genotype.getGene(i)] -= 1;
         }
 
         if(deadAnimal.equals(followedAnimal)) {
             followedAnimalDeathDate = currentDay;
         }
+
+        followedAnimalLivingDescendants.remove(deadAnimal);
     }
 
     @Override
@@ -188,22 +259,192 @@ public class StatisticsManager implements IAnimalStateObserver, IAnimalEnergyObs
             lastAddedAnimal = child;
         }
 
-        numberOfChildren.put(parent, numberOfChildren.get(parent) + 1);
-        aliveAnimalsChildrenCountSum += 1;
+        // A parent which died earlier this day still reproduces, but its children aren't counted anymore
+        if(isLiving(parent)) {
+            int parentSlot = parent.getSlot();
+            numberOfChildrenHistogram.replace(numberOfChildrenBySlot[parentSlot],
+                    numberOfChildrenBySlot[parentSlot] + 1);
+            numberOfChildrenBySlot[parentSlot] += 1;
+            aliveAnimalsChildrenCountSum += 1;
+        }
 
         if(followedAnimal != null) {
             if(parent.equals(followedAnimal)) {
-                followedAnimalChildren.add(child);
-                followedAnimalDescendants.add(child);
-            } else if(followedAnimalDescendants.contains(child)) {
-                followedAnimalDescendants.add(child);
+                followedAnimalNumberOfChildren += 1;
+            }
+
+            // Both parents may be descendants, but the child is counted only once
+            if(parent.equals(followedAnimal) || followedAnimalLivingDescendants.contains(parent)) {
+                if(followedAnimalLivingDescendants.add(child)) {
+                    followedAnimalNumberOfDescendants += 1;
+                }
             }
         }
     }
 
     @Override
-    public void energyChanged(int energyChange) {
-        energySum += energyChange;
+    public void energyChanged(Animal animal, int oldEnergy, int newEnergy) {
+        // A dead animal stays on the map until the next day and may still eat, but its energy was already removed
+        if(!isLiving(animal)) {
+            return;
+        }
+
+        // Energy below zero only means that the animal is dead
+        energySum += Math.max(newEnergy, 0) - Math.max(oldEnergy, 0);
+        energyHistogram.replace(oldEnergy, newEnergy);
+    }
+
+    /**
+     * Writes all counters and per animal statistics to the checkpoint
+     *
+     * @param out
+     *      Checkpoint to write to
+     * @throws IOException
+     *      If writing failed
+     */
+    public void writeState(CheckpointOutput out) throws IOException {
+        out.putInt(currentDay);
+        out.putInt(energySum);
+        out.putInt(lifespanSum);
+        out.putInt(numberOfAnimals);
+        out.putInt(numberOfDeadAnimals);
+        out.putInt(aliveAnimalsChildrenCountSum);
+        out.putInt(numberOfPlants);
+        out.putInt(overallAnimalPopulation);
+        out.putInt(overallNumberOfPlants);
+        out.putFloat(sumOfMeanEnergyLevels);
+        out.putFloat(sumOfMeanLifespans);
+        out.putFloat(sumOfMeanNumberOfChildren);
+
+        for(Direction direction : Direction.values()) {
+            out.putInt(genesCount[direction.ordinal()]);
+            out.putInt(overallGenesCount[direction.ordinal()]);
+        }
+
+        out.putInt(numberOfAnimals);
+        for(int slot = 0; slot < animalsBySlot.length; slot++) {
+            if(animalsBySlot[slot] != null) {
+                out.putInt(animalsBySlot[slot].getId());
+                out.putInt(birthDayBySlot[slot]);
+                out.putInt(numberOfChildrenBySlot[slot]);
+            }
+        }
+
+        // A followed animal which is already dead can't be restored, only its statistics
+        boolean isFollowedAnimalAlive = followedAnimal != null && followedAnimal.getSlot() < animalsBySlot.length
+                && animalsBySlot[followedAnimal.getSlot()] == followedAnimal;
+        out.putInt(isFollowedAnimalAlive ? followedAnimal.getId() : -1);
+        out.putInt(followedAnimalDeathDate);
+        out.putInt(followedAnimalNumberOfChildren);
+        out.putInt(followedAnimalNumberOfDescendants);
+        out.putInt(followedAnimalLivingDescendants.size());
+        for(Animal animal : followedAnimalLivingDescendants) {
+            out.putInt(animal.getId());
+        }
+
+        // Other histograms are rebuilt from the living animals, but lifespans of the dead ones are gone
+        int numberOfUsedBuckets = 0;
+        for(int i = 0; i < LogHistogram.NUMBER_OF_BUCKETS; i++) {
+            if(lifespanHistogram.getBucketCount(i) != 0) {
+                numberOfUsedBuckets += 1;
+            }
+        }
+
+        out.putInt(numberOfUsedBuckets);
+        for(int i = 0; i < LogHistogram.NUMBER_OF_BUCKETS; i++) {
+            if(lifespanHistogram.getBucketCount(i) != 0) {
+                out.putInt(i);
+                out.putLong(lifespanHistogram.getBucketCount(i));
+            }
+        }
+    }
+
+    /**
+     * Replaces all counters with the ones read from a checkpoint
+     * and starts observing the restored animals
+     *
+     * @param in
+     *      Checkpoint to read from
+     * @param animalsById
+     *      Restored animals, with their identifiers as keys
+     */
+    public void readState(CheckpointInput in, Map<Integer, Animal> animalsById) {
+        currentDay = in.getInt();
+        energySum = in.getInt();
+        lifespanSum = in.getInt();
+        numberOfAnimals = in.getInt();
+        numberOfDeadAnimals = in.getInt();
+        aliveAnimalsChildrenCountSum = in.getInt();
+        numberOfPlants = in.getInt();
+        overallAnimalPopulation = in.getInt();
+        overallNumberOfPlants = in.getInt();
+        sumOfMeanEnergyLevels = in.getFloat();
+        sumOfMeanLifespans = in.getFloat();
+        sumOfMeanNumberOfChildren = in.getFloat();
+
+        for(Direction direction : Direction.values()) {
+            genesCount[direction.ordinal()] = in.getInt();
+            overallGenesCount[direction.ordinal()] = in.getInt();
+        }
+
+        Arrays.fill(animalsBySlot, null);
+        energyHistogram.clear();
+        numberOfChildrenHistogram.clear();
+        geneticDiversity.clear();
+
+        int numberOfTrackedAnimals = in.getInt();
+        for(int i = 0; i < numberOfTrackedAnimals; i++) {
+            Animal animal = animalsById.get(in.getInt());
+            animal.addStateObserver(this);
+            animal.addEnergyObserver(this);
+
+            int slot = animal.getSlot();
+            ensureCapacity(slot);
+            animalsBySlot[slot] = animal;
+            birthDayBySlot[slot] = in.getInt();
+            numberOfChildrenBySlot[slot] = in.getInt();
+            energyHistogram.add(animal.getEnergy());
+            numberOfChildrenHistogram.add(numberOfChildrenBySlot[slot]);
+            geneticDiversity.add(animal.getGenotype());
+        }
+
+        followedAnimal = animalsById.get(in.getInt());
+        followedAnimalDeathDate = in.getInt();
+        followedAnimalNumberOfChildren = in.getInt();
+        followedAnimalNumberOfDescendants = in.getInt();
+
+        followedAnimalLivingDescendants.clear();
+        int numberOfLivingDescendants = in.getInt();
+        for(int i = 0; i < numberOfLivingDescendants; i++) {
+            followedAnimalLivingDescendants.add(animalsById.get(in.getInt()));
+        }
+
+        lifespanHistogram.clear();
+        int numberOfUsedBuckets = in.getInt();
+        for(int i = 0; i < numberOfUsedBuckets; i++) {
+            lifespanHistogram.setBucketCount(in.getInt(), in.getLong());
+        }
+    }
+
+    /**
+     * Returns true if the animal was added and hasn't died yet
+     */
+    private boolean isLiving(Animal animal) {
+        int slot = animal.getSlot();
+        return slot < animalsBySlot.length && animalsBySlot[slot] == animal;
+    }
+
+    /**
+     * Grows the per slot arrays, so that they include the given slot
+     */
+    private void ensureCapacity(int slot) {
+        if(slot >= animalsBySlot.length) {
+            int newLength = Math.max(slot + 1, animalsBySlot.length * 2);
+
+            animalsBySlot = Arrays.copyOf(animalsBySlot, newLength);
+            birthDayBySlot = Arrays.copyOf(birthDayBySlot, newLength);
+            numberOfChildrenBySlot = Arrays.copyOf(numberOfChildrenBySlot, newLength);
+        }
     }
 
     @Override
@@ -2,13 +2,16 @@ package util;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.stream.JsonReader;
 import datatypes.containers.StatisticsContainer;
+import util.replay.RunDescriptor;
 
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.Writer;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 public class FileParser {
     private final Gson gson;
@@ -28,6 +31,14 @@ public class FileParser {
      *   "moveEnergy": ..,
      *   "jungleRatio": ..
      * }
+     * Optionally, the file may also contain "statisticsExportFormat" ("jsonl" or "csv"),
+     * "statisticsExportCompressed", "statisticsExportRecordsPerFile" and "statisticsExportQueueCapacity"
+     * to enable the daily statistics export, "columnarStatisticsLog" to also append the statistics to a columnar
+     * binary log, "checkpointIntervalDays" to save the simulation state periodically
+     * and "recordingKeyframeInterval" to record every day of the simulation.
+     * "doubleBuffered" selects the engine planning the moves of all animals in parallel
+     * and "pipelineDepth" lets frames and statistics be handled while the next days are simulated.
+     * "seed" can be given to make the run reproducible
      * @param filePath
      *      Path to the JSON file
      * @return
@@ -58,4 +69,75 @@ public class FileParser {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Writes the description of a run to a JSON file, so that the run can be replayed later
+     *
+     * @param descriptor
+     *      Description of the run
+     * @param filePath
+     *      Path to the JSON file
+     * @throws IOException
+     *      If the writing of the file failed
+     */
+    public void writeRunDescriptor(RunDescriptor descriptor, String filePath) throws IOException {
+        try (Writer writer = new FileWriter(filePath)) {
+            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+            gson.toJson(descriptor, writer);
+        }
+    }
+
+    /**
+     * Reads the description of a run written by the writeRunDescriptor method
+     *
+     * @param filePath
+     *      Path to the JSON file
+     * @return
+     *      Description of the run
+     * @throws IOException
+     *      If the reading of the file failed
+     */
+    public RunDescriptor readRunDescriptor(String filePath) throws IOException {
+        RunDescriptor descriptor;
+
+        try (JsonReader reader = gson.newJsonReader(new FileReader(filePath))) {
+            descriptor = gson.fromJson(reader, RunDescriptor.class);
+        }
+
+        return descriptor;
+    }
+
+    /**
+     * Reads daily statistics exported in the JSON lines format. Files with the .gz extension are decompressed
+     *
+     * @param filePath
+     *      Path to the exported file
+     * @return
+     *      Statistics of the recorded days, in the order from the file
+     * @throws IOException
+     *      If the reading of the file failed, or a line is not a correct record
+     */
+    public List<StatisticsContainer> readStatisticsLog(String filePath) throws IOException {
+        List<StatisticsContainer> result = new ArrayList<>();
+
+        // Both streams are opened here, so the file is closed even if the gzip header is incorrect
+        try (InputStream fileStream = new FileInputStream(filePath);
+             InputStream stream = filePath.endsWith(".gz") ? new GZIPInputStream(fileStream) : fileStream;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if(line.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    result.add(gson.fromJson(line, StatisticsContainer.class));
+                } catch (JsonParseException e) {
+                    throw new IOException("Incorrect statistics record: " + line, e);
+                }
+            }
+        }
+
+        return result;
+    }
 }
@@ -11,6 +11,45 @@ public class Parameters {
     public int moveEnergy;
     public double jungleRatio;
 
+    // Optional - daily statistics export. If the format is not given, statistics are not exported
+    public String statisticsExportFormat;
+    public boolean statisticsExportCompressed;
+    public int statisticsExportRecordsPerFile;
+    // Optional - number of days waiting for the export before new ones are dropped. If not given, a default is used
+    public int statisticsExportQueueCapacity;
+    // Optional - if true, statistics of every day are also appended to a columnar binary log
+    public boolean columnarStatisticsLog;
+    // Optional - if greater than 0, the simulation state is saved every given number of days
+    public int checkpointIntervalDays;
+    // Optional - if greater than 0, every day of the simulation is recorded, with a keyframe every given number of days
+    public int recordingKeyframeInterval;
+    // Optional - seed of the random generator. If not given, a random seed is chosen for every run
+    public Long seed;
+    // Optional - if true, the double buffered engine is used, which plans the moves of all animals in parallel
+    public boolean doubleBuffered;
+    // Optional - if greater than 0, frames and statistics are handled on a separate thread while the next days
+    // are simulated, with at most the given number of days waiting
+    public int pipelineDepth;
+
+    /**
+     * Copies all optional parameters from the given object
+     *
+     * @param other
+     *      Parameters to copy from
+     */
+    public void copyOptionalParametersFrom(Parameters other) {
+        statisticsExportFormat = other.statisticsExportFormat;
+        statisticsExportCompressed = other.statisticsExportCompressed;
+        statisticsExportRecordsPerFile = other.statisticsExportRecordsPerFile;
+        statisticsExportQueueCapacity = other.statisticsExportQueueCapacity;
+        columnarStatisticsLog = other.columnarStatisticsLog;
+        checkpointIntervalDays = other.checkpointIntervalDays;
+        recordingKeyframeInterval = other.recordingKeyframeInterval;
+        seed = other.seed;
+        doubleBuffered = other.doubleBuffered;
+        pipelineDepth = other.pipelineDepth;
+    }
+
     @Override
     public String toString() {
         return "Parameters{" +
@@ -20,6 +59,16 @@ public class Parameters {
                 ", plantEnergy=" + plantEnergy +
                 ", moveEnergy=" + moveEnergy +
                 ", jungleRatio=" + jungleRatio +
+                ", statisticsExportFormat=" + statisticsExportFormat +
+                ", statisticsExportCompressed=" + statisticsExportCompressed +
+                ", statisticsExportRecordsPerFile=" + statisticsExportRecordsPerFile +
+                ", statisticsExportQueueCapacity=" + statisticsExportQueueCapacity +
+                ", columnarStatisticsLog=" + columnarStatisticsLog +
+                ", checkpointIntervalDays=" + checkpointIntervalDays +
+                ", recordingKeyframeInterval=" + recordingKeyframeInterval +
+                ", seed=" + seed +
+                ", doubleBuffered=" + doubleBuffered +
+                ", pipelineDepth=" + pipelineDepth +
                 '}';
     }
 }
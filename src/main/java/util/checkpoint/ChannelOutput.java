@@ -0,0 +1,128 @@
+package util.checkpoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary output writing to a file channel. Values are collected in a direct buffer
+ * and written to the channel in large blocks
+ */
+public class ChannelOutput implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    protected final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long position;
+
+    /**
+     * Opens the given file for writing. An existing file is truncated
+     *
+     * @param path
+     *      Path of the file
+     * @throws IOException
+     *      If the file can't be opened
+     */
+    public ChannelOutput(Path path) throws IOException {
+        this(path, BUFFER_SIZE);
+    }
+
+    /**
+     * Opens the given file for writing, with a buffer of the given size. An existing file is truncated
+     *
+     * @param path
+     *      Path of the file
+     * @param bufferSize
+     *      Size of the buffer in bytes, at least the size of a long
+     * @throws IOException
+     *      If the file can't be opened
+     */
+    public ChannelOutput(Path path, int bufferSize) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Returns the number of bytes written so far, which is the offset of the next written value in the file
+     */
+    public long position() {
+        return position;
+    }
+
+    public void putByte(int value) throws IOException {
+        ensureRemaining(Byte.BYTES);
+        buffer.put((byte) value);
+        position += Byte.BYTES;
+    }
+
+    public void putInt(int value) throws IOException {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(value);
+        position += Integer.BYTES;
+    }
+
+    public void putLong(long value) throws IOException {
+        ensureRemaining(Long.BYTES);
+        buffer.putLong(value);
+        position += Long.BYTES;
+    }
+
+    public void putFloat(float value) throws IOException {
+        ensureRemaining(Float.BYTES);
+        buffer.putFloat(value);
+        position += Float.BYTES;
+    }
+
+    public void putDouble(double value) throws IOException {
+        ensureRemaining(Double.BYTES);
+        buffer.putDouble(value);
+        position += Double.BYTES;
+    }
+
+    /**
+     * Writes the given range of bytes, e.g. a block encoded elsewhere
+     */
+    public void putBytes(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            ensureRemaining(1);
+
+            int part = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, part);
+            position += part;
+            offset += part;
+            length -= part;
+        }
+    }
+
+    /**
+     * Writes all buffered values to the channel
+     *
+     * @throws IOException
+     *      If writing failed
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if(buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
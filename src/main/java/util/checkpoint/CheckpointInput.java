@@ -0,0 +1,94 @@
+package util.checkpoint;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary input for simulation checkpoints. The whole file is memory mapped,
+ * so reading values doesn't involve any system calls or intermediate copies
+ */
+public class CheckpointInput {
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Maps the given checkpoint file
+     *
+     * @param path
+     *      Path to the checkpoint
+     *
+     * @throws IOException
+     *      If the file can't be read or is too big to be mapped
+     */
+    public CheckpointInput(Path path) throws IOException {
+        this(path, 0);
+    }
+
+    /**
+     * Maps the given file, starting at the given offset
+     *
+     * @param path
+     *      Path to the file
+     * @param offset
+     *      Offset of the first byte to read
+     *
+     * @throws IOException
+     *      If the file can't be read or the mapped part is too big
+     */
+    public CheckpointInput(Path path, long offset) throws IOException {
+        this(path, offset, -1);
+    }
+
+    /**
+     * Maps a part of the given file
+     *
+     * @param path
+     *      Path to the file
+     * @param offset
+     *      Offset of the first byte to read
+     * @param length
+     *      Number of bytes to map, or -1 to map everything until the end of the file
+     *
+     * @throws IOException
+     *      If the file can't be read or the mapped part is too big
+     */
+    public CheckpointInput(Path path, long offset, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if(length == -1) {
+                length = channel.size() - offset;
+            }
+
+            if(length > Integer.MAX_VALUE) {
+                throw new IOException("Mapped part of the file is too big");
+            }
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+    }
+
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    public int getByte() {
+        return buffer.get();
+    }
+
+    public int getInt() {
+        return buffer.getInt();
+    }
+
+    public long getLong() {
+        return buffer.getLong();
+    }
+
+    public float getFloat() {
+        return buffer.getFloat();
+    }
+
+    public double getDouble() {
+        return buffer.getDouble();
+    }
+}
@@ -0,0 +1,41 @@
+package util.checkpoint;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Binary output for simulation checkpoints. The data is first written to a temporary file,
+ * which replaces the target file only when the checkpoint is complete, so a crash
+ * in the middle of writing never destroys the previous checkpoint
+ */
+public class CheckpointOutput extends ChannelOutput {
+    private final Path targetPath;
+    private final Path temporaryPath;
+
+    public CheckpointOutput(Path targetPath) throws IOException {
+        this(targetPath, targetPath.resolveSibling(targetPath.getFileName() + ".tmp"));
+    }
+
+    private CheckpointOutput(Path targetPath, Path temporaryPath) throws IOException {
+        super(temporaryPath);
+        this.targetPath = targetPath;
+        this.temporaryPath = temporaryPath;
+    }
+
+    /**
+     * Writes all buffered data and replaces the target file with the written checkpoint
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+
+        Files.move(temporaryPath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
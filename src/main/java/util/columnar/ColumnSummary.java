@@ -0,0 +1,52 @@
+package util.columnar;
+
+/**
+ * Number, sum, minimum and maximum of the defined (not NaN) values of a column.
+ * Summaries of different runs can be combined into one
+ */
+public class ColumnSummary {
+    public final long count;
+    public final double sum;
+    // NaN if there are no defined values
+    public final double min;
+    public final double max;
+
+    public ColumnSummary(long count, double sum, double min, double max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Returns the mean of the defined values, or NaN if there are none
+     */
+    public double getMean() {
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    /**
+     * Returns the summary of the values of both summaries
+     */
+    public ColumnSummary combine(ColumnSummary other) {
+        if(count == 0) {
+            return other;
+        }
+        if(other.count == 0) {
+            return this;
+        }
+
+        return new ColumnSummary(count + other.count, sum + other.sum, Math.min(min, other.min),
+                Math.max(max, other.max));
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnSummary{" +
+                "count=" + count +
+                ", sum=" + sum +
+                ", min=" + min +
+                ", max=" + max +
+                '}';
+    }
+}
@@ -0,0 +1,22 @@
+package util.columnar;
+
+/**
+ * Layout of a columnar statistics log directory: one file per column, named after the column
+ * with the .col extension. Every file starts with a header (magic, version, value type, value size),
+ * followed by one fixed width value per day, in the order of days. Float values are stored as their bits,
+ * so every value is a big endian int
+ */
+final class ColumnarFormat {
+    static final String FILE_EXTENSION = ".col";
+
+    static final int MAGIC = 0x434F4C53;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 * Integer.BYTES;
+    static final int VALUE_SIZE = Integer.BYTES;
+
+    static final int INT_TYPE = 0;
+    static final int FLOAT_TYPE = 1;
+
+    private ColumnarFormat() {
+    }
+}
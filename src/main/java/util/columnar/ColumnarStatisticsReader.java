@@ -0,0 +1,148 @@
+package util.columnar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a columnar statistics log created by ColumnarStatisticsWriter. Every column file is memory mapped,
+ * so values are read straight from the page cache, without parsing or copying, and scanning a column
+ * touches only the file of that column
+ */
+public class ColumnarStatisticsReader {
+    private final ByteBuffer[] columns;
+    private final int numberOfDays;
+
+    /**
+     * Maps all column files of the log in the given directory
+     *
+     * @param directory
+     *      Directory containing the log
+     *
+     * @throws IOException
+     *      If a file can't be read, or isn't a column of a supported log
+     */
+    public ColumnarStatisticsReader(Path directory) throws IOException {
+        StatisticsColumn[] statisticsColumns = StatisticsColumn.values();
+        columns = new ByteBuffer[statisticsColumns.length];
+        long minNumberOfDays = Integer.MAX_VALUE;
+
+        for(StatisticsColumn column : statisticsColumns) {
+            ByteBuffer buffer = map(directory.resolve(column.getFileName()));
+            int type = column.isFloatColumn() ? ColumnarFormat.FLOAT_TYPE : ColumnarFormat.INT_TYPE;
+
+            if(buffer.remaining() < ColumnarFormat.HEADER_SIZE || buffer.getInt(0) != ColumnarFormat.MAGIC
+                    || buffer.getInt(4) != ColumnarFormat.VERSION || buffer.getInt(8) != type
+                    || buffer.getInt(12) != ColumnarFormat.VALUE_SIZE) {
+                throw new IOException("File of the column " + column.getColumnName() + " is not supported");
+            }
+
+            buffer.position(ColumnarFormat.HEADER_SIZE);
+            columns[column.ordinal()] = buffer.slice();
+            // A crash may leave columns of different lengths - days missing in any column are ignored
+            minNumberOfDays = Math.min(minNumberOfDays,
+                    (buffer.capacity() - ColumnarFormat.HEADER_SIZE) / ColumnarFormat.VALUE_SIZE);
+        }
+
+        numberOfDays = (int) minNumberOfDays;
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Column file is too big to be mapped: " + path);
+            }
+
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    public int getNumberOfDays() {
+        return numberOfDays;
+    }
+
+    /**
+     * Returns all values of an int column, in the order of days
+     *
+     * @throws IllegalArgumentException
+     *      If the column holds floats
+     */
+    public IntBuffer getIntColumn(StatisticsColumn column) throws IllegalArgumentException {
+        if(column.isFloatColumn()) {
+            throw new IllegalArgumentException("Column " + column.getColumnName() + " holds floats");
+        }
+
+        return columns[column.ordinal()].asIntBuffer().limit(numberOfDays);
+    }
+
+    /**
+     * Returns all values of a float column, in the order of days
+     *
+     * @throws IllegalArgumentException
+     *      If the column holds ints
+     */
+    public FloatBuffer getFloatColumn(StatisticsColumn column) throws IllegalArgumentException {
+        if(!column.isFloatColumn()) {
+            throw new IllegalArgumentException("Column " + column.getColumnName() + " holds ints");
+        }
+
+        return columns[column.ordinal()].asFloatBuffer().limit(numberOfDays);
+    }
+
+    /**
+     * Returns the value of the column on the day with the given index, counted from the first logged day
+     *
+     * @throws IndexOutOfBoundsException
+     *      If there's no day with the given index
+     */
+    public double getValue(StatisticsColumn column, int dayIndex) throws IndexOutOfBoundsException {
+        if(dayIndex < 0 || dayIndex >= numberOfDays) {
+            throw new IndexOutOfBoundsException("Day index " + dayIndex + " out of " + numberOfDays + " days");
+        }
+
+        int bits = columns[column.ordinal()].getInt(dayIndex * ColumnarFormat.VALUE_SIZE);
+        return column.isFloatColumn() ? Float.intBitsToFloat(bits) : bits;
+    }
+
+    /**
+     * Summarizes all defined values of the column in a single pass
+     */
+    public ColumnSummary summarize(StatisticsColumn column) {
+        long count = 0;
+        double sum = 0;
+        double min = Double.NaN;
+        double max = Double.NaN;
+
+        if(column.isFloatColumn()) {
+            FloatBuffer values = getFloatColumn(column);
+
+            for(int i = 0; i < numberOfDays; i++) {
+                float value = values.get(i);
+
+                if(!Float.isNaN(value)) {
+                    count += 1;
+                    sum += value;
+                    min = count == 1 ? value : Math.min(min, value);
+                    max = count == 1 ? value : Math.max(max, value);
+                }
+            }
+        } else {
+            IntBuffer values = getIntColumn(column);
+
+            for(int i = 0; i < numberOfDays; i++) {
+                int value = values.get(i);
+
+                count += 1;
+                sum += value;
+                min = count == 1 ? value : Math.min(min, value);
+                max = count == 1 ? value : Math.max(max, value);
+            }
+        }
+
+        return new ColumnSummary(count, sum, min, max);
+    }
+}
@@ -0,0 +1,99 @@
+package util.columnar;
+
+import datatypes.containers.StatisticsContainer;
+import util.checkpoint.ChannelOutput;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Appends the statistics of every day to a columnar log - one file per column, each holding a fixed width
+ * value per day - so a single metric of millions of days can be read without touching the other ones.
+ * Values are collected in small buffers and written to the files through their channels
+ */
+public class ColumnarStatisticsWriter implements AutoCloseable {
+    private static final int COLUMN_BUFFER_SIZE = 1 << 16;
+
+    private final ChannelOutput[] columns;
+    private long numberOfDays;
+
+    /**
+     * Creates the log directory and a file for every column
+     *
+     * @param directory
+     *      Directory to create the log in. Existing column files are overwritten
+     *
+     * @throws IOException
+     *      If the files can't be created
+     */
+    public ColumnarStatisticsWriter(Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        StatisticsColumn[] statisticsColumns = StatisticsColumn.values();
+        columns = new ChannelOutput[statisticsColumns.length];
+
+        try {
+            for(StatisticsColumn column : statisticsColumns) {
+                ChannelOutput out = new ChannelOutput(directory.resolve(column.getFileName()), COLUMN_BUFFER_SIZE);
+                columns[column.ordinal()] = out;
+
+                out.putInt(ColumnarFormat.MAGIC);
+                out.putInt(ColumnarFormat.VERSION);
+                out.putInt(column.isFloatColumn() ? ColumnarFormat.FLOAT_TYPE : ColumnarFormat.INT_TYPE);
+                out.putInt(ColumnarFormat.VALUE_SIZE);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends the statistics of one day to every column
+     *
+     * @throws IOException
+     *      If writing failed
+     */
+    public void append(StatisticsContainer statistics) throws IOException {
+        for(StatisticsColumn column : StatisticsColumn.values()) {
+            columns[column.ordinal()].putInt(column.getRawValue(statistics));
+        }
+
+        numberOfDays += 1;
+    }
+
+    public long getNumberOfDays() {
+        return numberOfDays;
+    }
+
+    /**
+     * Writes all buffered values to the files, so readers can see them
+     *
+     * @throws IOException
+     *      If writing failed
+     */
+    public void flush() throws IOException {
+        for(ChannelOutput column : columns) {
+            column.flush();
+        }
+    }
+
+    /**
+     * Writes all buffered values and closes the files. Every file is closed, even if some of them fail
+     */
+    @Override
+    public void close() {
+        for(ChannelOutput column : columns) {
+            if(column == null) {
+                continue;
+            }
+
+            try {
+                column.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
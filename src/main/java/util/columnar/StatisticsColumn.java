@@ -0,0 +1,90 @@
+package util.columnar;
+
+import datatypes.Direction;
+import datatypes.containers.QuantilesContainer;
+import datatypes.containers.StatisticsContainer;
+
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Columns of the columnar statistics log, one per metric of StatisticsContainer.
+ * Names are the same as in the CSV export. Missing quantiles and diversity measures are stored as NaN,
+ * and a missing number of distinct genotypes as -1
+ */
+public enum StatisticsColumn {
+    CURRENT_DAY("currentDay", false, statistics -> statistics.currentDay),
+    NUMBER_OF_ANIMALS("numberOfAnimals", false, statistics -> statistics.numberOfAnimals),
+    NUMBER_OF_PLANTS("numberOfPlants", false, statistics -> statistics.numberOfPlants),
+    MEAN_ENERGY_LEVEL("meanEnergyLevel", true, statistics -> Float.floatToRawIntBits(statistics.meanEnergyLevel)),
+    MEAN_LIFESPAN("meanLifespan", true, statistics -> Float.floatToRawIntBits(statistics.meanLifespan)),
+    MEAN_NUMBER_OF_CHILDREN("meanNumberOfChildren", true,
+            statistics -> Float.floatToRawIntBits(statistics.meanNumberOfChildren)),
+    GENES_N("genesN", false, statistics -> getGenesCount(statistics, Direction.N)),
+    GENES_NE("genesNE", false, statistics -> getGenesCount(statistics, Direction.NE)),
+    GENES_E("genesE", false, statistics -> getGenesCount(statistics, Direction.E)),
+    GENES_SE("genesSE", false, statistics -> getGenesCount(statistics, Direction.SE)),
+    GENES_S("genesS", false, statistics -> getGenesCount(statistics, Direction.S)),
+    GENES_SW("genesSW", false, statistics -> getGenesCount(statistics, Direction.SW)),
+    GENES_W("genesW", false, statistics -> getGenesCount(statistics, Direction.W)),
+    GENES_NW("genesNW", false, statistics -> getGenesCount(statistics, Direction.NW)),
+    ENERGY_P50("energyP50", true, statistics -> getQuantile(statistics.energyQuantiles, quantiles -> quantiles.p50)),
+    ENERGY_P90("energyP90", true, statistics -> getQuantile(statistics.energyQuantiles, quantiles -> quantiles.p90)),
+    ENERGY_P99("energyP99", true, statistics -> getQuantile(statistics.energyQuantiles, quantiles -> quantiles.p99)),
+    LIFESPAN_P50("lifespanP50", true,
+            statistics -> getQuantile(statistics.lifespanQuantiles, quantiles -> quantiles.p50)),
+    LIFESPAN_P90("lifespanP90", true,
+            statistics -> getQuantile(statistics.lifespanQuantiles, quantiles -> quantiles.p90)),
+    LIFESPAN_P99("lifespanP99", true,
+            statistics -> getQuantile(statistics.lifespanQuantiles, quantiles -> quantiles.p99)),
+    NUMBER_OF_CHILDREN_P50("numberOfChildrenP50", true,
+            statistics -> getQuantile(statistics.numberOfChildrenQuantiles, quantiles -> quantiles.p50)),
+    NUMBER_OF_CHILDREN_P90("numberOfChildrenP90", true,
+            statistics -> getQuantile(statistics.numberOfChildrenQuantiles, quantiles -> quantiles.p90)),
+    NUMBER_OF_CHILDREN_P99("numberOfChildrenP99", true,
+            statistics -> getQuantile(statistics.numberOfChildrenQuantiles, quantiles -> quantiles.p99)),
+    GENE_ENTROPY("geneEntropy", true, statistics -> Float.floatToRawIntBits(
+            statistics.diversity != null ? statistics.diversity.geneEntropy : Float.NaN)),
+    NUMBER_OF_DISTINCT_GENOTYPES("numberOfDistinctGenotypes", false,
+            statistics -> statistics.diversity != null ? statistics.diversity.numberOfDistinctGenotypes : -1),
+    MEAN_HAMMING_DISTANCE("meanHammingDistance", true, statistics -> Float.floatToRawIntBits(
+            statistics.diversity != null ? statistics.diversity.meanHammingDistance : Float.NaN));
+
+    private final String columnName;
+    private final boolean floatColumn;
+    // Returns the value of the column, with floats given as their bits
+    private final ToIntFunction<StatisticsContainer> extractor;
+
+    StatisticsColumn(String columnName, boolean floatColumn, ToIntFunction<StatisticsContainer> extractor) {
+        this.columnName = columnName;
+        this.floatColumn = floatColumn;
+        this.extractor = extractor;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    /**
+     * Checks if the values of the column are floats, otherwise they are ints
+     */
+    public boolean isFloatColumn() {
+        return floatColumn;
+    }
+
+    String getFileName() {
+        return columnName + ColumnarFormat.FILE_EXTENSION;
+    }
+
+    int getRawValue(StatisticsContainer statistics) {
+        return extractor.applyAsInt(statistics);
+    }
+
+    private static int getGenesCount(StatisticsContainer statistics, Direction direction) {
+        return statistics.genesCount.getOrDefault(direction, 0);
+    }
+
+    private static int getQuantile(QuantilesContainer quantiles, ToDoubleFunction<QuantilesContainer> quantile) {
+        return Float.floatToRawIntBits(quantiles != null ? (float) quantile.applyAsDouble(quantiles) : Float.NaN);
+    }
+}
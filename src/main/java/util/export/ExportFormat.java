@@ -0,0 +1,119 @@
+package util.export;
+
+import com.google.gson.Gson;
+import datatypes.Direction;
+import datatypes.containers.QuantilesContainer;
+import datatypes.containers.StatisticsContainer;
+
+/**
+ * Record formats supported by the streaming statistics exporter.
+ * Every format writes exactly one line per simulated day
+ */
+public enum ExportFormat {
+    JSON_LINES("jsonl"),
+    CSV("csv");
+
+    private final String fileExtension;
+
+    ExportFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Returns the format matching the given name (case insensitive)
+     *
+     * @param name
+     *      Name of the format - "jsonl" or "csv"
+     * @return Matching ExportFormat value
+     *
+     * @throws IllegalArgumentException
+     *      If there's no format with the given name
+     */
+    public static ExportFormat fromName(String name) throws IllegalArgumentException {
+        for(ExportFormat format : values()) {
+            if(format.fileExtension.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown statistics export format: " + name);
+    }
+
+    /**
+     * Returns the first line of every file in this format, or null if the format has no header
+     */
+    String header() {
+        if(this == JSON_LINES) {
+            return null;
+        }
+
+        StringBuilder builder = new StringBuilder("currentDay,numberOfAnimals,numberOfPlants,meanEnergyLevel," +
+                "meanLifespan,meanNumberOfChildren");
+
+        for(Direction direction : Direction.values()) {
+            builder.append(",genes").append(direction);
+        }
+
+        for(String name : new String[] {"energy", "lifespan", "numberOfChildren"}) {
+            builder.append(',').append(name).append("P50,")
+                    .append(name).append("P90,")
+                    .append(name).append("P99");
+        }
+
+        builder.append(",geneEntropy,numberOfDistinctGenotypes,meanHammingDistance");
+
+        return builder.toString();
+    }
+
+    /**
+     * Formats one day of statistics as a single line (without the line separator)
+     */
+    String format(StatisticsContainer container, Gson gson) {
+        if(this == JSON_LINES) {
+            return gson.toJson(container);
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(container.currentDay).append(',')
+                .append(container.numberOfAnimals).append(',')
+                .append(container.numberOfPlants).append(',')
+                .append(container.meanEnergyLevel).append(',')
+                .append(container.meanLifespan).append(',')
+                .append(container.meanNumberOfChildren);
+
+        for(Direction direction : Direction.values()) {
+            builder.append(',').append(container.genesCount.getOrDefault(direction, 0));
+        }
+
+        appendQuantiles(builder, container.energyQuantiles);
+        appendQuantiles(builder, container.lifespanQuantiles);
+        appendQuantiles(builder, container.numberOfChildrenQuantiles);
+
+        if(container.diversity == null) {
+            builder.append(",,,");
+        } else {
+            builder.append(',').append(container.diversity.geneEntropy)
+                    .append(',').append(container.diversity.numberOfDistinctGenotypes)
+                    .append(',').append(container.diversity.meanHammingDistance);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Appends three columns with the quantiles, left empty if there are none
+     */
+    private static void appendQuantiles(StringBuilder builder, QuantilesContainer quantiles) {
+        if(quantiles == null) {
+            builder.append(",,,");
+        } else {
+            builder.append(',').append(quantiles.p50)
+                    .append(',').append(quantiles.p90)
+                    .append(',').append(quantiles.p99);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package util.export;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import datatypes.containers.StatisticsContainer;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends one compact record per simulated day to a file, using a background writer thread.
+ * Records are handed over through a bounded queue, so the simulation never waits for the disk -
+ * if the writer can't keep up, new records are dropped and counted instead.
+ * If writing fails, the writer stops and every record that didn't reach the file is counted as dropped.
+ * Files can be rotated after a given number of records and optionally compressed with gzip
+ */
+public class StreamingStatisticsExporter implements AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    private static final int WRITER_BUFFER_SIZE = 1 << 16;
+
+    private final Path directory;
+    private final String baseName;
+    private final ExportFormat format;
+    private final boolean compressed;
+    // If set to 0, all records go to a single file
+    private final int recordsPerFile;
+
+    private final BlockingQueue<StatisticsContainer> queue;
+    private final Thread writerThread;
+    private final Gson gson;
+
+    private final AtomicLong droppedRecords;
+    private final AtomicLong writtenRecords;
+    private volatile boolean closed;
+    private volatile boolean failed;
+
+    // Used only by the writer thread
+    private Writer currentWriter;
+    private int recordsInCurrentFile;
+    private int fileIndex;
+
+    /**
+     * Creates an exporter and starts its writer thread
+     *
+     * @param directory
+     *      Directory to write the files to
+     * @param baseName
+     *      Name of the exported files, without the extension
+     * @param format
+     *      Format of the records
+     * @param compressed
+     *      If true, files are compressed with gzip
+     * @param recordsPerFile
+     *      Number of records after which a new file is started, or 0 to disable rotation
+     *
+     * @throws IllegalArgumentException
+     *      If the number of records per file is negative
+     */
+    public StreamingStatisticsExporter(Path directory, String baseName, ExportFormat format, boolean compressed,
+                                       int recordsPerFile) throws IllegalArgumentException {
+        this(directory, baseName, format, compressed, recordsPerFile, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates an exporter with the given queue capacity and starts its writer thread
+     *
+     * @param queueCapacity
+     *      Number of records waiting for the writer, after which new records are dropped
+     *
+     * @throws IllegalArgumentException
+     *      If the number of records per file is negative or the queue capacity isn't positive
+     */
+    public StreamingStatisticsExporter(Path directory, String baseName, ExportFormat format, boolean compressed,
+                                       int recordsPerFile, int queueCapacity) throws IllegalArgumentException {
+        if(recordsPerFile < 0) {
+            throw new IllegalArgumentException("Number of records per file can't be negative");
+        }
+
+        if(queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+
+        this.directory = directory;
+        this.baseName = baseName;
+        this.format = format;
+        this.compressed = compressed;
+        this.recordsPerFile = recordsPerFile;
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        // Means are NaN when there are no animals left
+        gson = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+        droppedRecords = new AtomicLong();
+        writtenRecords = new AtomicLong();
+
+        writerThread = new Thread(this::writeRecords, "statistics-exporter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues statistics of one day for writing. Never blocks - if the queue is full the record is dropped
+     *
+     * @param container
+     *      Statistics of the day, which isn't modified afterwards
+     * @return True if the record was queued
+     */
+    public boolean record(StatisticsContainer container) {
+        if(failed) {
+            droppedRecords.incrementAndGet();
+            return false;
+        }
+
+        if(closed) {
+            return false;
+        }
+
+        if(!queue.offer(container)) {
+            droppedRecords.incrementAndGet();
+            return false;
+        }
+
+        // The writer may have stopped between the check and the offer, then the record would never be written
+        if((closed || failed) && queue.remove(container)) {
+            if(failed) {
+                droppedRecords.incrementAndGet();
+            }
+            return false;
+        }
+
+        return true;
+    }
+
+    public long getDroppedRecords() {
+        return droppedRecords.get();
+    }
+
+    public long getWrittenRecords() {
+        return writtenRecords.get();
+    }
+
+    /**
+     * @return True if the writer stopped because of an error, so the export is incomplete
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    /**
+     * Stops accepting records, waits until all queued records are written and closes the current file
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Writer thread
+    private void writeRecords() {
+        boolean finished = false;
+        // Taken from the queue, but not written yet
+        StatisticsContainer pending = null;
+
+        try {
+            while (!closed || !queue.isEmpty()) {
+                pending = queue.poll(100, TimeUnit.MILLISECONDS);
+
+                if(pending == null) {
+                    // Nothing new - we make sure that everything written so far reaches the disk
+                    if(currentWriter != null) {
+                        currentWriter.flush();
+                    }
+                    continue;
+                }
+
+                if(currentWriter == null || (recordsPerFile > 0 && recordsInCurrentFile >= recordsPerFile)) {
+                    rotate();
+                }
+
+                currentWriter.write(format.format(pending, gson));
+                currentWriter.write('\n');
+                recordsInCurrentFile += 1;
+                writtenRecords.incrementAndGet();
+                pending = null;
+            }
+
+            finished = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeCurrentWriter();
+
+            if(!finished) {
+                // Records queued so far won't be written, later ones are counted by record
+                failed = true;
+                droppedRecords.addAndGet((pending != null ? 1 : 0) + queue.drainTo(new ArrayList<>()));
+            }
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeCurrentWriter();
+
+        String fileName = baseName;
+        if(recordsPerFile > 0) {
+            fileName += String.format("-%04d", fileIndex);
+        }
+        fileName += "." + format.getFileExtension() + (compressed ? ".gz" : "");
+        fileIndex += 1;
+
+        Files.createDirectories(directory);
+        OutputStream stream = new FileOutputStream(directory.resolve(fileName).toFile());
+        if(compressed) {
+            stream = new GZIPOutputStream(stream, WRITER_BUFFER_SIZE);
+        }
+
+        currentWriter = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), WRITER_BUFFER_SIZE);
+        recordsInCurrentFile = 0;
+
+        String header = format.header();
+        if(header != null) {
+            currentWriter.write(header);
+            currentWriter.write('\n');
+        }
+    }
+
+    private void closeCurrentWriter() {
+        if(currentWriter != null) {
+            try {
+                currentWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            currentWriter = null;
+        }
+    }
+}
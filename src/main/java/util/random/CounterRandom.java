@@ -0,0 +1,63 @@
+package util.random;
+
+import java.util.Random;
+
+/**
+ * Counter based random generator. Every value is a hash of a key - a seed, a day and an identifier,
+ * e.g. of an animal - and of the number of the draw, so it doesn't depend on any other draws.
+ * Work split between threads in any way draws exactly the same values, as long as every piece of work
+ * uses its own key
+ */
+public class CounterRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long key;
+    private int draw;
+
+    /**
+     * Creates a generator drawing values for the given key, starting from the first draw
+     */
+    public CounterRandom(long seed, int day, int id) {
+        super(0);
+        key = getKey(seed, day, id);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        // Called by the Random constructor. Values depend only on the key and the draw
+    }
+
+    @Override
+    public long nextLong() {
+        draw += 1;
+        return SeededRandom.mix(key + draw * GOLDEN_GAMMA);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+     * Returns the value of the given draw for the given key, between 0 (included) and the bound (excluded),
+     * without creating a generator
+     *
+     * @throws IllegalArgumentException
+     *      If the bound isn't positive
+     */
+    public static int nextInt(long seed, int day, int id, int draw, int bound) throws IllegalArgumentException {
+        if(bound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive");
+        }
+
+        long value = SeededRandom.mix(getKey(seed, day, id) + (draw + 1L) * GOLDEN_GAMMA);
+
+        // The highest 32 bits scaled to the bound, the bias is below bound / 2^32
+        return (int) (((value >>> 32) * bound) >>> 32);
+    }
+
+    private static long getKey(long seed, int day, int id) {
+        return SeededRandom.mix(SeededRandom.mix(seed + day * GOLDEN_GAMMA) + id * GOLDEN_GAMMA);
+    }
+}
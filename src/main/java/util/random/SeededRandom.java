@@ -0,0 +1,54 @@
+package util.random;
+
+import java.util.Random;
+
+/**
+ * Random generator based on the SplitMix64 algorithm. Unlike java.util.Random, the whole state
+ * of the generator is a single long value, which can be read and restored, so a simulation
+ * using only this generator can be saved and resumed exactly where it stopped
+ */
+public class SeededRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    public SeededRandom(long seed) {
+        super(seed);
+        state = seed;
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        // Called by the Random constructor, before this object is fully initialized
+        state = seed;
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+     * SplitMix64 finalizer - scrambles all bits of the given value
+     */
+    public static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -4,6 +4,8 @@ import java.util.List;
 import java.util.Random;
 
 public class MockRandom extends Random {
+    private static final long serialVersionUID = 1L;
+
     private final List<Integer> values;
     private int currentIndex;
 
@@ -0,0 +1,80 @@
+package util.recording;
+
+import datatypes.Vector2d;
+import datatypes.containers.RecordedAnimal;
+
+import java.util.*;
+
+/**
+ * State of the map at the end of a recorded day, rebuilt from a recording
+ */
+public class RecordedWorld {
+    private final int width;
+    private final int height;
+    private int day;
+
+    private final Map<Integer, RecordedAnimal> animals;
+    private final BitSet plantCells;
+
+    RecordedWorld(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        animals = new LinkedHashMap<>();
+        plantCells = new BitSet(width * height);
+    }
+
+    // Accessors
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getDay() {
+        return day;
+    }
+
+    public int getNumberOfAnimals() {
+        return animals.size();
+    }
+
+    public int getNumberOfPlants() {
+        return plantCells.cardinality();
+    }
+
+    public Collection<RecordedAnimal> getAnimals() {
+        return Collections.unmodifiableCollection(animals.values());
+    }
+
+    public Optional<RecordedAnimal> getAnimal(int id) {
+        return Optional.ofNullable(animals.get(id));
+    }
+
+    public boolean isPlantAt(Vector2d position) {
+        return plantCells.get(position.y_coordinate * width + position.x_coordinate);
+    }
+
+    // Mutators used while rebuilding
+    void setDay(int day) {
+        this.day = day;
+    }
+
+    void putAnimal(RecordedAnimal animal) {
+        animals.put(animal.id, animal);
+    }
+
+    void removeAnimal(int id) {
+        animals.remove(id);
+    }
+
+    void setPlant(int cellIndex, boolean present) {
+        plantCells.set(cellIndex, present);
+    }
+
+    Vector2d toPosition(int cellIndex) {
+        return new Vector2d(cellIndex % width, cellIndex / width);
+    }
+}
@@ -0,0 +1,62 @@
+package util.recording;
+
+import datatypes.Direction;
+import datatypes.Genotype;
+import datatypes.containers.RecordedAnimal;
+import entities.Animal;
+import util.checkpoint.CheckpointInput;
+import util.checkpoint.ChannelOutput;
+
+import java.io.IOException;
+
+/**
+ * Layout of a recording directory:
+ * index.bin - header (magic, version, width, height, keyframe interval), followed by one entry per day:
+ *      day, offset of the nearest previous keyframe, offset of the day's delta (-1 for keyframe days)
+ * keyframes.bin - full states: day, animals, plant cells
+ * deltas.bin - changes since the previous day: day, born animals, changed animals (id, cell, energy, orientation),
+ *      ids of dead animals, cells of eaten plants, cells of new plants
+ */
+final class RecordingFormat {
+    static final String INDEX_FILE_NAME = "index.bin";
+    static final String KEYFRAMES_FILE_NAME = "keyframes.bin";
+    static final String DELTAS_FILE_NAME = "deltas.bin";
+
+    static final int MAGIC = 0x43545243;
+    static final int VERSION = 1;
+    static final int INDEX_HEADER_SIZE = 5 * Integer.BYTES;
+    static final int INDEX_ENTRY_SIZE = Integer.BYTES + 2 * Long.BYTES;
+
+    private RecordingFormat() {
+    }
+
+    /**
+     * Writes the complete state of an animal, including its genes
+     */
+    static void writeAnimal(ChannelOutput out, Animal animal, int cellIndex) throws IOException {
+        Genotype genotype = animal.getGenotype();
+
+        out.putInt(animal.getId());
+        out.putInt(cellIndex);
+        out.putInt(animal.getEnergy());
+        out.putByte(animal.getOrientation().ordinal());
+        out.putByte(genotype.getGenotypeLength());
+        for(int i = 0; i < genotype.getGenotypeLength(); i++) {
+            out.putByte(genotype.getGene(i));
+        }
+    }
+
+    static RecordedAnimal readAnimal(CheckpointInput in, RecordedWorld world) {
+        int id = in.getInt();
+        int cellIndex = in.getInt();
+        int energy = in.getInt();
+        Direction orientation = Direction.intToDirection(in.getByte());
+
+        int[] genes = new int[in.getByte()];
+        for(int i = 0; i < genes.length; i++) {
+            genes[i] = in.getByte();
+        }
+
+        return new RecordedAnimal(id, world.toPosition(cellIndex), energy, orientation, genes);
+    }
+}
@@ -0,0 +1,329 @@
+package util.recording;
+
+import datatypes.SimulationPhase;
+import datatypes.Vector2d;
+import datatypes.observers.IMapChangeObserver;
+import datatypes.observers.ISimulationPhaseObserver;
+import entities.Animal;
+import entities.Plant;
+import entities.Simulation;
+import entities.WorldMap;
+import util.checkpoint.ChannelOutput;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Records the state of the map at the end of every simulated day. Every given number of days a full keyframe
+ * is written, and in between only the changes since the previous day. Any recorded day can be then rebuilt
+ * by WorldRecordingReader from the nearest keyframe and at most (keyframe interval - 1) deltas.
+ * Animals and plants which changed during a day are collected from the events of the map, and only they
+ * are compared with the state remembered from the previous day, so a delta costs as much as the changes
+ */
+public class WorldRecorder implements ISimulationPhaseObserver, IMapChangeObserver, AutoCloseable {
+    private final int keyframeInterval;
+
+    private final ChannelOutput index;
+    private final ChannelOutput keyframes;
+    private final ChannelOutput deltas;
+
+    // If set to -1, nothing has been recorded yet
+    private int firstDay;
+    private long lastKeyframeOffset;
+    private boolean failed;
+    private int width;
+    // Map observed since the first recorded day
+    private WorldMap map;
+
+    // State of the previous recorded day, indexed by animal ids and cells
+    private int[] cellById;
+    private int[] energyById;
+    private byte[] orientationById;
+    private final BitSet livingIds;
+    private final BitSet plantCells;
+    // Plants of the map now, kept up to date by the events
+    private final BitSet currentPlantCells;
+
+    // Changes since the previous recorded day, cleared after every day
+    private final List<Animal> changedAnimals;
+    private final BitSet changedIds;
+    private final BitSet removedIds;
+    private final BitSet changedPlantCells;
+    // Reused by every delta
+    private final BitSet eatenPlantCells;
+    private final BitSet newPlantCells;
+
+    /**
+     * Creates the recording directory and files
+     *
+     * @param directory
+     *      Directory to create the recording in
+     * @param keyframeInterval
+     *      Number of days between keyframes
+     *
+     * @throws IOException
+     *      If the files can't be created
+     * @throws IllegalArgumentException
+     *      If the keyframe interval is not positive
+     */
+    public WorldRecorder(Path directory, int keyframeInterval) throws IOException, IllegalArgumentException {
+        if(keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be positive");
+        }
+
+        this.keyframeInterval = keyframeInterval;
+
+        Files.createDirectories(directory);
+        index = new ChannelOutput(directory.resolve(RecordingFormat.INDEX_FILE_NAME));
+        keyframes = new ChannelOutput(directory.resolve(RecordingFormat.KEYFRAMES_FILE_NAME));
+        deltas = new ChannelOutput(directory.resolve(RecordingFormat.DELTAS_FILE_NAME));
+
+        firstDay = -1;
+        cellById = new int[1024];
+        energyById = new int[1024];
+        orientationById = new byte[1024];
+        livingIds = new BitSet();
+        plantCells = new BitSet();
+        changedAnimals = new ArrayList<>();
+        changedIds = new BitSet();
+        removedIds = new BitSet();
+        currentPlantCells = new BitSet();
+        changedPlantCells = new BitSet();
+        eatenPlantCells = new BitSet();
+        newPlantCells = new BitSet();
+    }
+
+    @Override
+    public void phaseFinished(Simulation simulation, SimulationPhase phase) {
+        if(!phase.isLastPhaseOfTheDay() || failed) {
+            return;
+        }
+
+        try {
+            recordDay(simulation.getMap(), simulation.getCurrentDay());
+        } catch (IOException e) {
+            // Recording stops, but the simulation can go on
+            failed = true;
+            e.printStackTrace();
+
+            if(map != null) {
+                map.removeChangeObserver(this);
+            }
+        }
+    }
+
+    @Override
+    public void animalPlaced(Animal animal) {
+        animalChanged(animal);
+    }
+
+    @Override
+    public void animalRemoved(Animal animal) {
+        removedIds.set(animal.getId());
+    }
+
+    @Override
+    public void animalChanged(Animal animal) {
+        if(!changedIds.get(animal.getId())) {
+            changedIds.set(animal.getId());
+            changedAnimals.add(animal);
+        }
+    }
+
+    @Override
+    public void plantAdded(Plant plant) {
+        changedPlantCells.set(toCellIndex(plant.getPosition()));
+        currentPlantCells.set(toCellIndex(plant.getPosition()));
+    }
+
+    @Override
+    public void plantRemoved(Plant plant) {
+        changedPlantCells.set(toCellIndex(plant.getPosition()));
+        currentPlantCells.clear(toCellIndex(plant.getPosition()));
+    }
+
+    /**
+     * Stops observing the map and closes the files
+     */
+    @Override
+    public void close() {
+        if(map != null) {
+            map.removeChangeObserver(this);
+        }
+
+        closeOutput(index);
+        closeOutput(keyframes);
+        closeOutput(deltas);
+    }
+
+    private void recordDay(WorldMap map, int day) throws IOException {
+        if(firstDay == -1) {
+            firstDay = day;
+            width = map.getWidth();
+            // Changes made before are in the first keyframe
+            this.map = map;
+            map.addChangeObserver(this);
+
+            index.putInt(RecordingFormat.MAGIC);
+            index.putInt(RecordingFormat.VERSION);
+            index.putInt(map.getWidth());
+            index.putInt(map.getHeight());
+            index.putInt(keyframeInterval);
+        }
+
+        long deltaOffset = -1;
+
+        if((day - firstDay) % keyframeInterval == 0) {
+            lastKeyframeOffset = keyframes.position();
+            writeKeyframe(map, day);
+        } else {
+            deltaOffset = deltas.position();
+            writeDelta(day);
+        }
+
+        index.putInt(day);
+        index.putLong(lastKeyframeOffset);
+        index.putLong(deltaOffset);
+
+        // After a keyframe everything so far is on the disk, so a crash loses at most one interval
+        if(deltaOffset == -1) {
+            index.flush();
+            keyframes.flush();
+            deltas.flush();
+        }
+    }
+
+    private void writeKeyframe(WorldMap map, int day) throws IOException {
+        keyframes.putInt(day);
+        keyframes.putInt(map.getNumberOfAnimals());
+
+        livingIds.clear();
+        Iterator<Animal> animalIterator = map.getAnimalsIterator();
+
+        while (animalIterator.hasNext()) {
+            Animal animal = animalIterator.next();
+            RecordingFormat.writeAnimal(keyframes, animal, toCellIndex(animal.getPosition()));
+            rememberAnimal(animal);
+        }
+
+        plantCells.clear();
+        Iterator<Plant> plantIterator = map.getPlantsIterator();
+
+        while (plantIterator.hasNext()) {
+            plantCells.set(toCellIndex(plantIterator.next().getPosition()));
+        }
+
+        writeCells(keyframes, plantCells);
+        currentPlantCells.clear();
+        currentPlantCells.or(plantCells);
+        clearChanges();
+    }
+
+    private void writeDelta(int day) throws IOException {
+        List<Animal> bornAnimals = new ArrayList<>();
+        List<Animal> movedAnimals = new ArrayList<>();
+
+        for(Animal animal : changedAnimals) {
+            int id = animal.getId();
+
+            // Animals born and removed since the previous day were never recorded
+            if(removedIds.get(id)) {
+                continue;
+            }
+
+            if(!livingIds.get(id)) {
+                bornAnimals.add(animal);
+            } else if(cellById[id] != toCellIndex(animal.getPosition()) || energyById[id] != animal.getEnergy()
+                    || orientationById[id] != animal.getOrientation().ordinal()) {
+                movedAnimals.add(animal);
+            }
+        }
+
+        deltas.putInt(day);
+
+        deltas.putInt(bornAnimals.size());
+        for(Animal animal : bornAnimals) {
+            RecordingFormat.writeAnimal(deltas, animal, toCellIndex(animal.getPosition()));
+            rememberAnimal(animal);
+        }
+
+        deltas.putInt(movedAnimals.size());
+        for(Animal animal : movedAnimals) {
+            deltas.putInt(animal.getId());
+            deltas.putInt(toCellIndex(animal.getPosition()));
+            deltas.putInt(animal.getEnergy());
+            deltas.putByte(animal.getOrientation().ordinal());
+            rememberAnimal(animal);
+        }
+
+        // Only the removed animals which were recorded before died
+        removedIds.and(livingIds);
+        writeCells(deltas, removedIds);
+        livingIds.andNot(removedIds);
+
+        // A cell may have lost a plant and got a new one since the previous day, so only the result counts
+        eatenPlantCells.clear();
+        newPlantCells.clear();
+        for(int i = changedPlantCells.nextSetBit(0); i >= 0; i = changedPlantCells.nextSetBit(i + 1)) {
+            if(currentPlantCells.get(i) != plantCells.get(i)) {
+                (currentPlantCells.get(i) ? newPlantCells : eatenPlantCells).set(i);
+                plantCells.set(i, currentPlantCells.get(i));
+            }
+        }
+
+        writeCells(deltas, eatenPlantCells);
+        writeCells(deltas, newPlantCells);
+
+        clearChanges();
+    }
+
+    private void clearChanges() {
+        for(Animal animal : changedAnimals) {
+            changedIds.clear(animal.getId());
+        }
+
+        changedAnimals.clear();
+        removedIds.clear();
+        changedPlantCells.clear();
+    }
+
+    private void rememberAnimal(Animal animal) {
+        int id = animal.getId();
+
+        if(id >= cellById.length) {
+            int newLength = Math.max(id + 1, cellById.length * 2);
+            cellById = Arrays.copyOf(cellById, newLength);
+            energyById = Arrays.copyOf(energyById, newLength);
+            orientationById = Arrays.copyOf(orientationById, newLength);
+        }
+
+        cellById[id] = toCellIndex(animal.getPosition());
+        energyById[id] = animal.getEnergy();
+        orientationById[id] = (byte) animal.getOrientation().ordinal();
+        livingIds.set(id);
+    }
+
+    /**
+     * Writes the number of set bits, followed by their indexes
+     */
+    private static void writeCells(ChannelOutput out, BitSet cells) throws IOException {
+        out.putInt(cells.cardinality());
+        for(int i = cells.nextSetBit(0); i >= 0; i = cells.nextSetBit(i + 1)) {
+            out.putInt(i);
+        }
+    }
+
+    private int toCellIndex(Vector2d position) {
+        return position.y_coordinate * width + position.x_coordinate;
+    }
+
+    private static void closeOutput(ChannelOutput output) {
+        try {
+            output.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
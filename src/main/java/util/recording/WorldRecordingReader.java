@@ -0,0 +1,184 @@
+package util.recording;
+
+import datatypes.Direction;
+import datatypes.containers.RecordedAnimal;
+import util.checkpoint.CheckpointInput;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Gives random access to the days of a recording created by WorldRecorder.
+ * A day is rebuilt from the nearest previous keyframe, by applying the deltas of the following days
+ */
+public class WorldRecordingReader {
+    private final Path keyframesPath;
+    private final Path deltasPath;
+
+    private final int width;
+    private final int height;
+    private final int keyframeInterval;
+    private final int firstDay;
+
+    // Indexed by (day - first day)
+    private final long[] keyframeOffsets;
+    private final long[] deltaOffsets;
+
+    /**
+     * Reads the index of the recording from the given directory
+     *
+     * @param directory
+     *      Directory containing the recording
+     *
+     * @throws IOException
+     *      If the index can't be read or is incorrect
+     */
+    public WorldRecordingReader(Path directory) throws IOException {
+        keyframesPath = directory.resolve(RecordingFormat.KEYFRAMES_FILE_NAME);
+        deltasPath = directory.resolve(RecordingFormat.DELTAS_FILE_NAME);
+
+        Path indexPath = directory.resolve(RecordingFormat.INDEX_FILE_NAME);
+        CheckpointInput in = new CheckpointInput(indexPath);
+
+        try {
+            if(in.getInt() != RecordingFormat.MAGIC || in.getInt() != RecordingFormat.VERSION) {
+                throw new IOException("Given directory doesn't contain a supported recording");
+            }
+
+            width = in.getInt();
+            height = in.getInt();
+            keyframeInterval = in.getInt();
+
+            // A crash may leave an incomplete entry at the end - it's ignored
+            int numberOfDays = (int) ((Files.size(indexPath) - RecordingFormat.INDEX_HEADER_SIZE)
+                    / RecordingFormat.INDEX_ENTRY_SIZE);
+
+            keyframeOffsets = new long[numberOfDays];
+            deltaOffsets = new long[numberOfDays];
+            int day = 0;
+
+            for(int i = 0; i < numberOfDays; i++) {
+                day = in.getInt();
+                keyframeOffsets[i] = in.getLong();
+                deltaOffsets[i] = in.getLong();
+            }
+
+            firstDay = day - numberOfDays + 1;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Recording index is corrupted", e);
+        }
+    }
+
+    public int getFirstDay() {
+        return firstDay;
+    }
+
+    public int getLastDay() {
+        return firstDay + keyframeOffsets.length - 1;
+    }
+
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    /**
+     * Rebuilds the state of the map at the end of the given day
+     *
+     * @param day
+     *      Recorded day
+     * @return State of the map
+     *
+     * @throws IOException
+     *      If the recording can't be read
+     * @throws IllegalArgumentException
+     *      If the given day was not recorded
+     */
+    public RecordedWorld rebuild(int day) throws IOException, IllegalArgumentException {
+        if(day < getFirstDay() || day > getLastDay()) {
+            throw new IllegalArgumentException("Day " + day + " was not recorded");
+        }
+
+        int dayIndex = day - firstDay;
+        RecordedWorld world = new RecordedWorld(width, height);
+
+        try {
+            readKeyframe(new CheckpointInput(keyframesPath, keyframeOffsets[dayIndex]), world);
+
+            int firstDeltaIndex = world.getDay() - firstDay + 1;
+
+            if(firstDeltaIndex <= dayIndex) {
+                // Deltas of the following days are stored one after another
+                long start = deltaOffsets[firstDeltaIndex];
+                long end = Files.size(deltasPath);
+
+                for(int i = dayIndex + 1; i < deltaOffsets.length; i++) {
+                    if(deltaOffsets[i] != -1) {
+                        end = deltaOffsets[i];
+                        break;
+                    }
+                }
+
+                CheckpointInput in = new CheckpointInput(deltasPath, start, end - start);
+
+                for(int i = firstDeltaIndex; i <= dayIndex; i++) {
+                    applyDelta(in, world);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Recording is corrupted", e);
+        }
+
+        return world;
+    }
+
+    private static void readKeyframe(CheckpointInput in, RecordedWorld world) {
+        world.setDay(in.getInt());
+
+        int numberOfAnimals = in.getInt();
+        for(int i = 0; i < numberOfAnimals; i++) {
+            world.putAnimal(RecordingFormat.readAnimal(in, world));
+        }
+
+        int numberOfPlants = in.getInt();
+        for(int i = 0; i < numberOfPlants; i++) {
+            world.setPlant(in.getInt(), true);
+        }
+    }
+
+    private static void applyDelta(CheckpointInput in, RecordedWorld world) {
+        world.setDay(in.getInt());
+
+        int numberOfBornAnimals = in.getInt();
+        for(int i = 0; i < numberOfBornAnimals; i++) {
+            world.putAnimal(RecordingFormat.readAnimal(in, world));
+        }
+
+        int numberOfChangedAnimals = in.getInt();
+        for(int i = 0; i < numberOfChangedAnimals; i++) {
+            int id = in.getInt();
+            int cellIndex = in.getInt();
+            int energy = in.getInt();
+            Direction orientation = Direction.intToDirection(in.getByte());
+
+            RecordedAnimal animal = world.getAnimal(id).orElseThrow();
+            world.putAnimal(animal.withState(world.toPosition(cellIndex), energy, orientation));
+        }
+
+        int numberOfDeadAnimals = in.getInt();
+        for(int i = 0; i < numberOfDeadAnimals; i++) {
+            world.removeAnimal(in.getInt());
+        }
+
+        int numberOfEatenPlants = in.getInt();
+        for(int i = 0; i < numberOfEatenPlants; i++) {
+            world.setPlant(in.getInt(), false);
+        }
+
+        int numberOfNewPlants = in.getInt();
+        for(int i = 0; i < numberOfNewPlants; i++) {
+            world.setPlant(in.getInt(), true);
+        }
+    }
+}
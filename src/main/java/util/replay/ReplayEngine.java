@@ -0,0 +1,103 @@
+package util.replay;
+
+import datatypes.containers.StatisticsContainer;
+import entities.Simulation;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Re-executes a described run without any user interface and compares
+ * its statistics with the recorded ones, day by day
+ */
+public class ReplayEngine {
+    private ReplayEngine() {
+    }
+
+    /**
+     * Replays the run until the last recorded day, or until the first divergence
+     *
+     * @param descriptor
+     *      Description of the run
+     * @param recordedStatistics
+     *      Statistics of the recorded run, ordered by day
+     * @return Result of the replay, with the first divergence if there was one
+     *
+     * @throws IllegalArgumentException
+     *      If the descriptor is incorrect, or the recorded days are not in order
+     */
+    public static ReplayResult replay(RunDescriptor descriptor, List<StatisticsContainer> recordedStatistics)
+            throws IllegalArgumentException {
+        long start = System.nanoTime();
+        Simulation simulation = descriptor.createSimulation();
+        int replayedDays = 0;
+
+        for(StatisticsContainer recorded : recordedStatistics) {
+            if(recorded.currentDay <= simulation.getCurrentDay()) {
+                throw new IllegalArgumentException("Recorded days are not in order");
+            }
+
+            while (simulation.getCurrentDay() < recorded.currentDay) {
+                simulation.simulateDay();
+                replayedDays += 1;
+            }
+
+            String difference = findDifference(recorded, simulation.getCurrentDayStatistics());
+
+            if(difference != null) {
+                return new ReplayResult(replayedDays, recorded.currentDay, difference, System.nanoTime() - start);
+            }
+        }
+
+        return new ReplayResult(replayedDays, -1, null, System.nanoTime() - start);
+    }
+
+    /**
+     * Compares two statistics of the same day. Floating point values must be exactly equal
+     *
+     * @return Description of the first difference, or null if the statistics are equal
+     */
+    private static String findDifference(StatisticsContainer expected, StatisticsContainer actual) {
+        if(expected.numberOfAnimals != actual.numberOfAnimals) {
+            return describe("numberOfAnimals", expected.numberOfAnimals, actual.numberOfAnimals);
+        }
+        if(expected.numberOfPlants != actual.numberOfPlants) {
+            return describe("numberOfPlants", expected.numberOfPlants, actual.numberOfPlants);
+        }
+        if(Float.compare(expected.meanEnergyLevel, actual.meanEnergyLevel) != 0) {
+            return describe("meanEnergyLevel", expected.meanEnergyLevel, actual.meanEnergyLevel);
+        }
+        if(Float.compare(expected.meanLifespan, actual.meanLifespan) != 0) {
+            return describe("meanLifespan", expected.meanLifespan, actual.meanLifespan);
+        }
+        if(Float.compare(expected.meanNumberOfChildren, actual.meanNumberOfChildren) != 0) {
+            return describe("meanNumberOfChildren", expected.meanNumberOfChildren, actual.meanNumberOfChildren);
+        }
+        if(!Objects.equals(expected.genesCount, actual.genesCount)) {
+            return describe("genesCount", expected.genesCount, actual.genesCount);
+        }
+        // Logs written before quantiles were recorded don't have them
+        if(expected.energyQuantiles != null
+                && !Objects.equals(expected.energyQuantiles, actual.energyQuantiles)) {
+            return describe("energyQuantiles", expected.energyQuantiles, actual.energyQuantiles);
+        }
+        if(expected.lifespanQuantiles != null
+                && !Objects.equals(expected.lifespanQuantiles, actual.lifespanQuantiles)) {
+            return describe("lifespanQuantiles", expected.lifespanQuantiles, actual.lifespanQuantiles);
+        }
+        if(expected.numberOfChildrenQuantiles != null
+                && !Objects.equals(expected.numberOfChildrenQuantiles, actual.numberOfChildrenQuantiles)) {
+            return describe("numberOfChildrenQuantiles", expected.numberOfChildrenQuantiles,
+                    actual.numberOfChildrenQuantiles);
+        }
+        if(expected.diversity != null && !Objects.equals(expected.diversity, actual.diversity)) {
+            return describe("diversity", expected.diversity, actual.diversity);
+        }
+
+        return null;
+    }
+
+    private static String describe(String name, Object expected, Object actual) {
+        return name + " expected " + expected + " but was " + actual;
+    }
+}
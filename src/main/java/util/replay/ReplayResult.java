@@ -0,0 +1,34 @@
+package util.replay;
+
+/**
+ * Outcome of a replayed run
+ */
+public class ReplayResult {
+    public final int replayedDays;
+    // If set to -1, the replay didn't diverge from the recorded run
+    public final int divergenceDay;
+    public final String divergenceDescription;
+    public final long elapsedNanoseconds;
+
+    public ReplayResult(int replayedDays, int divergenceDay, String divergenceDescription, long elapsedNanoseconds) {
+        this.replayedDays = replayedDays;
+        this.divergenceDay = divergenceDay;
+        this.divergenceDescription = divergenceDescription;
+        this.elapsedNanoseconds = elapsedNanoseconds;
+    }
+
+    public boolean isIdentical() {
+        return divergenceDay == -1;
+    }
+
+    @Override
+    public String toString() {
+        String timing = replayedDays + " days replayed in " + elapsedNanoseconds / 1_000_000 + " ms";
+
+        if(isIdentical()) {
+            return "Replay identical to the recorded run, " + timing;
+        } else {
+            return "Replay diverged on day " + divergenceDay + ": " + divergenceDescription + ", " + timing;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package util.replay;
+
+import entities.Simulation;
+import util.Parameters;
+
+/**
+ * Everything needed to reproduce a simulation run exactly: map parameters,
+ * seed of the random generator and the description of the initial population.
+ * Stored as a small JSON file next to the exported statistics
+ */
+public class RunDescriptor {
+    public Parameters parameters;
+    public long seed;
+    public int startingNumberOfAnimals;
+    public int genomeLength;
+    public int numberOfGenes;
+
+    // Used by Gson
+    public RunDescriptor() {
+    }
+
+    public RunDescriptor(Parameters parameters, long seed, int startingNumberOfAnimals, int genomeLength,
+                         int numberOfGenes) {
+        this.parameters = parameters;
+        this.seed = seed;
+        this.startingNumberOfAnimals = startingNumberOfAnimals;
+        this.genomeLength = genomeLength;
+        this.numberOfGenes = numberOfGenes;
+    }
+
+    /**
+     * Creates the simulation described by this object, with its initial population
+     *
+     * @return Simulation in the state from before the first day
+     *
+     * @throws IllegalArgumentException
+     *      If the described parameters are incorrect
+     */
+    public Simulation createSimulation() throws IllegalArgumentException {
+        Simulation simulation = new Simulation(parameters.width, parameters.height, parameters.startEnergy,
+                parameters.plantEnergy, parameters.moveEnergy, parameters.jungleRatio, genomeLength, numberOfGenes,
+                seed);
+        simulation.setDoubleBuffered(parameters.doubleBuffered);
+        simulation.generateAnimalsAtRandomPositions(startingNumberOfAnimals);
+
+        return simulation;
+    }
+
+    @Override
+    public String toString() {
+        return "RunDescriptor{" +
+                "parameters=" + parameters +
+                ", seed=" + seed +
+                ", startingNumberOfAnimals=" + startingNumberOfAnimals +
+                ", genomeLength=" + genomeLength +
+                ", numberOfGenes=" + numberOfGenes +
+                '}';
+    }
+}
@@ -0,0 +1,154 @@
+package util.tracking;
+
+import datatypes.Vector2d;
+import entities.Animal;
+import util.checkpoint.ChannelOutput;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records trajectories of chosen animals - their positions and energies at the end of every day, their children
+ * and their deaths - to a file, which can be read back with TrajectoryReader. Ids of tracked animals are kept
+ * in a bit set, so births and deaths of untracked animals cost a single bit test. Records are delta encoded
+ * into a small buffer per animal and written in bulk, when the buffer fills up, the animal dies
+ * or the tracker is closed
+ */
+public class AnimalTracker implements AutoCloseable {
+    private static final int FLUSH_THRESHOLD = 4096;
+
+    private final ChannelOutput out;
+    private final BitSet trackedIds;
+    // Tracked animals which are still alive, in the order they were tracked
+    private final Map<Animal, TrajectoryBuffer> livingAnimals;
+    private boolean failed;
+
+    /**
+     * Creates the tracking file
+     *
+     * @param path
+     *      Path to the file. An existing file is overwritten
+     *
+     * @throws IOException
+     *      If the file can't be created
+     */
+    public AnimalTracker(Path path) throws IOException {
+        out = new ChannelOutput(path);
+        trackedIds = new BitSet();
+        livingAnimals = new LinkedHashMap<>();
+
+        try {
+            out.putInt(TrackingFormat.MAGIC);
+            out.putInt(TrackingFormat.VERSION);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts tracking a living animal, from the end of the current day. Should be called between days
+     */
+    public void track(Animal animal) {
+        if(trackedIds.get(animal.getId())) {
+            return;
+        }
+
+        trackedIds.set(animal.getId());
+        livingAnimals.put(animal, new TrajectoryBuffer());
+    }
+
+    public boolean isTracked(int animalId) {
+        return trackedIds.get(animalId);
+    }
+
+    /**
+     * Returns the number of tracked animals which are still alive
+     */
+    public int getNumberOfTrackedAnimals() {
+        return livingAnimals.size();
+    }
+
+    /**
+     * Records the birth of a child, if the parent is tracked
+     */
+    public void animalBorn(Animal parent, Animal child, int day) {
+        if(!trackedIds.get(parent.getId())) {
+            return;
+        }
+
+        TrajectoryBuffer buffer = livingAnimals.get(parent);
+
+        if(buffer != null) {
+            buffer.addBirth(day, child.getId());
+        }
+    }
+
+    /**
+     * Records the death of an animal, if it is tracked, and writes its remaining records
+     */
+    public void animalDied(Animal animal, int day) {
+        if(!trackedIds.get(animal.getId())) {
+            return;
+        }
+
+        TrajectoryBuffer buffer = livingAnimals.remove(animal);
+
+        if(buffer != null) {
+            buffer.addDeath(day);
+            flush(animal.getId(), buffer);
+        }
+    }
+
+    /**
+     * Records positions and energies of all living tracked animals at the end of the given day
+     */
+    public void dayFinished(int day) {
+        for(Map.Entry<Animal, TrajectoryBuffer> entry : livingAnimals.entrySet()) {
+            Animal animal = entry.getKey();
+            TrajectoryBuffer buffer = entry.getValue();
+            Vector2d position = animal.getPosition();
+
+            buffer.addSample(day, position.x_coordinate, position.y_coordinate, animal.getEnergy());
+
+            if(buffer.size() >= FLUSH_THRESHOLD) {
+                flush(animal.getId(), buffer);
+            }
+        }
+    }
+
+    /**
+     * Writes records of all living tracked animals and closes the file
+     */
+    @Override
+    public void close() {
+        for(Map.Entry<Animal, TrajectoryBuffer> entry : livingAnimals.entrySet()) {
+            flush(entry.getKey().getId(), entry.getValue());
+        }
+
+        livingAnimals.clear();
+
+        try {
+            out.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void flush(int animalId, TrajectoryBuffer buffer) {
+        if(failed || buffer.size() == 0) {
+            return;
+        }
+
+        try {
+            buffer.flush(out, animalId);
+        } catch (IOException e) {
+            // The simulation goes on without tracking
+            failed = true;
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package util.tracking;
+
+/**
+ * Layout of a tracking file: header (magic, version), followed by blocks of records of single animals,
+ * in the order they were flushed. A block is the animal's id, the number of bytes of its records
+ * and the records. Every record starts with a variable length number: days since the previous record
+ * of the block, shifted left by two bits, ored with the type of the record. A sample record follows with
+ * the differences of x, y and energy from the previous sample of the block, a birth record with the id
+ * of the child. Differences are zigzag encoded variable length numbers, so small changes take one byte.
+ * Every block starts from zero, so it can be decoded on its own
+ */
+final class TrackingFormat {
+    static final int MAGIC = 0x54524B53;
+    static final int VERSION = 1;
+
+    static final int SAMPLE_RECORD = 0;
+    static final int BIRTH_RECORD = 1;
+    static final int DEATH_RECORD = 2;
+    static final int RECORD_TYPE_BITS = 2;
+
+    private TrackingFormat() {
+    }
+
+    static int zigzagEncode(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int zigzagDecode(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,83 @@
+package util.tracking;
+
+import util.checkpoint.ChannelOutput;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Delta encoded records of one tracked animal, waiting to be flushed as a block
+ */
+class TrajectoryBuffer {
+    private byte[] bytes;
+    private int size;
+
+    // Values of the previous records of the current block
+    private int previousDay;
+    private int previousX;
+    private int previousY;
+    private int previousEnergy;
+
+    TrajectoryBuffer() {
+        bytes = new byte[64];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void addSample(int day, int x, int y, int energy) {
+        putRecordStart(day, TrackingFormat.SAMPLE_RECORD);
+        putVarInt(TrackingFormat.zigzagEncode(x - previousX));
+        putVarInt(TrackingFormat.zigzagEncode(y - previousY));
+        putVarInt(TrackingFormat.zigzagEncode(energy - previousEnergy));
+
+        previousX = x;
+        previousY = y;
+        previousEnergy = energy;
+    }
+
+    void addBirth(int day, int childId) {
+        putRecordStart(day, TrackingFormat.BIRTH_RECORD);
+        putVarInt(childId);
+    }
+
+    void addDeath(int day) {
+        putRecordStart(day, TrackingFormat.DEATH_RECORD);
+    }
+
+    /**
+     * Writes the records as a block of the given animal and starts a new block
+     */
+    void flush(ChannelOutput out, int animalId) throws IOException {
+        out.putInt(animalId);
+        out.putInt(size);
+        out.putBytes(bytes, 0, size);
+
+        size = 0;
+        previousDay = 0;
+        previousX = 0;
+        previousY = 0;
+        previousEnergy = 0;
+    }
+
+    private void putRecordStart(int day, int recordType) {
+        putVarInt((day - previousDay) << TrackingFormat.RECORD_TYPE_BITS | recordType);
+        previousDay = day;
+    }
+
+    private void putVarInt(int value) {
+        if(bytes.length - size < 5) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+
+        while ((value & ~0x7F) != 0) {
+            bytes[size] = (byte) ((value & 0x7F) | 0x80);
+            size += 1;
+            value >>>= 7;
+        }
+
+        bytes[size] = (byte) value;
+        size += 1;
+    }
+}
@@ -0,0 +1,198 @@
+package util.tracking;
+
+import datatypes.containers.TrajectoryContainer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Reads a tracking file created by AnimalTracker. The file is memory mapped and decoded at once,
+ * block by block. A block cut off by a crash is ignored, along with everything after it
+ */
+public class TrajectoryReader {
+    private final Map<Integer, TrajectoryContainer> trajectories;
+
+    /**
+     * Reads all trajectories of the given file
+     *
+     * @param path
+     *      Path to the tracking file
+     *
+     * @throws IOException
+     *      If the file can't be read, isn't a supported tracking file or contains a malformed record
+     */
+    public TrajectoryReader(Path path) throws IOException {
+        ByteBuffer buffer = map(path);
+
+        if(buffer.remaining() < 8 || buffer.getInt() != TrackingFormat.MAGIC
+                || buffer.getInt() != TrackingFormat.VERSION) {
+            throw new IOException("File is not a supported tracking file: " + path);
+        }
+
+        Map<Integer, TrajectoryBuilder> builders = new TreeMap<>();
+
+        while (buffer.remaining() >= 8) {
+            int animalId = buffer.getInt();
+            int numberOfBytes = buffer.getInt();
+
+            if(numberOfBytes < 0 || numberOfBytes > buffer.remaining()) {
+                break;
+            }
+
+            ByteBuffer block = buffer.slice();
+            block.limit(numberOfBytes);
+            buffer.position(buffer.position() + numberOfBytes);
+
+            builders.computeIfAbsent(animalId, TrajectoryBuilder::new).readBlock(block);
+        }
+
+        trajectories = new TreeMap<>();
+        for(TrajectoryBuilder builder : builders.values()) {
+            trajectories.put(builder.id, builder.build());
+        }
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Tracking file is too big to be mapped: " + path);
+            }
+
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Returns ids of all animals with a trajectory in the file, in increasing order
+     */
+    public Set<Integer> getTrackedIds() {
+        return trajectories.keySet();
+    }
+
+    public Optional<TrajectoryContainer> getTrajectory(int animalId) {
+        return Optional.ofNullable(trajectories.get(animalId));
+    }
+
+    /**
+     * Collects records of one animal from all its blocks
+     */
+    private static class TrajectoryBuilder {
+        private final int id;
+        private int deathDay;
+
+        private int[] days;
+        private int[] xCoordinates;
+        private int[] yCoordinates;
+        private int[] energies;
+        private int numberOfSamples;
+
+        private int[] birthDays;
+        private int[] childrenIds;
+        private int numberOfChildren;
+
+        TrajectoryBuilder(int id) {
+            this.id = id;
+            deathDay = -1;
+
+            days = new int[16];
+            xCoordinates = new int[16];
+            yCoordinates = new int[16];
+            energies = new int[16];
+
+            birthDays = new int[4];
+            childrenIds = new int[4];
+        }
+
+        void readBlock(ByteBuffer block) throws IOException {
+            int day = 0;
+            int x = 0;
+            int y = 0;
+            int energy = 0;
+
+            while (block.hasRemaining()) {
+                int recordStart = getVarInt(block);
+                int recordType = recordStart & ((1 << TrackingFormat.RECORD_TYPE_BITS) - 1);
+                day += recordStart >>> TrackingFormat.RECORD_TYPE_BITS;
+
+                switch (recordType) {
+                    case TrackingFormat.SAMPLE_RECORD:
+                        x += TrackingFormat.zigzagDecode(getVarInt(block));
+                        y += TrackingFormat.zigzagDecode(getVarInt(block));
+                        energy += TrackingFormat.zigzagDecode(getVarInt(block));
+                        addSample(day, x, y, energy);
+                        break;
+                    case TrackingFormat.BIRTH_RECORD:
+                        addChild(day, getVarInt(block));
+                        break;
+                    case TrackingFormat.DEATH_RECORD:
+                        deathDay = day;
+                        break;
+                    default:
+                        throw new IOException("Unknown record type " + recordType + " of the animal " + id);
+                }
+            }
+        }
+
+        private void addSample(int day, int x, int y, int energy) {
+            if(numberOfSamples == days.length) {
+                int newLength = days.length * 2;
+
+                days = Arrays.copyOf(days, newLength);
+                xCoordinates = Arrays.copyOf(xCoordinates, newLength);
+                yCoordinates = Arrays.copyOf(yCoordinates, newLength);
+                energies = Arrays.copyOf(energies, newLength);
+            }
+
+            days[numberOfSamples] = day;
+            xCoordinates[numberOfSamples] = x;
+            yCoordinates[numberOfSamples] = y;
+            energies[numberOfSamples] = energy;
+            numberOfSamples += 1;
+        }
+
+        private void addChild(int day, int childId) {
+            if(numberOfChildren == childrenIds.length) {
+                birthDays = Arrays.copyOf(birthDays, birthDays.length * 2);
+                childrenIds = Arrays.copyOf(childrenIds, childrenIds.length * 2);
+            }
+
+            birthDays[numberOfChildren] = day;
+            childrenIds[numberOfChildren] = childId;
+            numberOfChildren += 1;
+        }
+
+        TrajectoryContainer build() {
+            return new TrajectoryContainer(id, deathDay, Arrays.copyOf(days, numberOfSamples),
+                    Arrays.copyOf(xCoordinates, numberOfSamples), Arrays.copyOf(yCoordinates, numberOfSamples),
+                    Arrays.copyOf(energies, numberOfSamples), Arrays.copyOf(birthDays, numberOfChildren),
+                    Arrays.copyOf(childrenIds, numberOfChildren));
+        }
+
+        private int getVarInt(ByteBuffer block) throws IOException {
+            int value = 0;
+
+            for(int shift = 0; shift < 35; shift += 7) {
+                if(!block.hasRemaining()) {
+                    throw new IOException("Record of the animal " + id + " is cut off");
+                }
+
+                int b = block.get() & 0xFF;
+                value |= (b & 0x7F) << shift;
+
+                if((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+
+            throw new IOException("Malformed record of the animal " + id);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package datatypes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FenwickTree2DTest {
+    @Test
+    public void sumsMatchDirectlyComputedSums() {
+        Random random = new Random(3);
+        FenwickTree2D tree = new FenwickTree2D(13, 7);
+        long[][] values = new long[13][7];
+
+        for(int i = 0; i < 2000; i++) {
+            int x = random.nextInt(13);
+            int y = random.nextInt(7);
+            long amount = random.nextInt(21) - 10;
+
+            tree.add(x, y, amount);
+            values[x][y] += amount;
+
+            int fromX = random.nextInt(13);
+            int fromY = random.nextInt(7);
+            int toX = fromX + random.nextInt(13 - fromX);
+            int toY = fromY + random.nextInt(7 - fromY);
+
+            long expected = 0;
+            for(int a = fromX; a <= toX; a++) {
+                for(int b = fromY; b <= toY; b++) {
+                    expected += values[a][b];
+                }
+            }
+
+            assertEquals(expected, tree.sum(fromX, fromY, toX, toY));
+        }
+    }
+
+    @Test
+    public void rejectsRectanglesOutsideTheGrid() {
+        FenwickTree2D tree = new FenwickTree2D(4, 4);
+
+        assertThrows(IllegalArgumentException.class, () -> tree.sum(-1, 0, 2, 2));
+        assertThrows(IllegalArgumentException.class, () -> tree.sum(0, 0, 4, 2));
+        assertThrows(IllegalArgumentException.class, () -> tree.sum(3, 0, 2, 2));
+        assertThrows(IllegalArgumentException.class, () -> new FenwickTree2D(0, 4));
+    }
+}
@@ -0,0 +1,65 @@
+package datatypes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeneticDiversityTest {
+    @Test
+    public void measuresMatchDirectlyComputedOnes() {
+        Random random = new Random(4);
+        GeneticDiversity diversity = new GeneticDiversity();
+        List<Genotype> population = new ArrayList<>();
+
+        for(int i = 0; i < 400; i++) {
+            if(population.size() > 2 && random.nextInt(3) == 0) {
+                diversity.remove(population.remove(random.nextInt(population.size())));
+            } else {
+                // Few gene types, so that some genotypes repeat
+                Genotype genotype = new Genotype(4, 2, random);
+                population.add(genotype);
+                diversity.add(genotype);
+            }
+
+            assertEquals(new HashSet<>(population).size(), diversity.getNumberOfDistinctGenotypes());
+            assertEquals(bruteForceHammingDistance(population), diversity.getMeanHammingDistance(), 1e-9);
+        }
+    }
+
+    @Test
+    public void entropyOfEvenlyDistributedGenesIsMaximal() {
+        GeneticDiversity diversity = new GeneticDiversity();
+
+        diversity.add(new Genotype(new int[] {0, 1, 2, 3}, 4, new Random()));
+        assertEquals(2, diversity.getGeneEntropy(), 1e-9);
+
+        diversity.add(new Genotype(new int[] {0, 0, 0, 0}, 4, new Random()));
+        assertEquals(0, new GeneticDiversity().getGeneEntropy());
+        assertTrue(diversity.getGeneEntropy() < 2);
+        assertThrows(IllegalArgumentException.class,
+                () -> diversity.remove(new Genotype(new int[] {1, 1, 1, 1}, 4, new Random())));
+    }
+
+    private static double bruteForceHammingDistance(List<Genotype> population) {
+        long distanceSum = 0;
+        long pairs = 0;
+
+        for(int i = 0; i < population.size(); i++) {
+            for(int j = i + 1; j < population.size(); j++) {
+                for(int k = 0; k < population.get(i).getGenotypeLength(); k++) {
+                    if(population.get(i).getGene(k) != population.get(j).getGene(k)) {
+                        distanceSum += 1;
+                    }
+                }
+                pairs += 1;
+            }
+        }
+
+        return pairs == 0 ? 0 : (double) distanceSum / pairs;
+    }
+}
@@ -0,0 +1,84 @@
+package datatypes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogHistogramTest {
+    @Test
+    public void quantilesAreCloseToExactOnes() {
+        Random random = new Random(5);
+        LogHistogram histogram = new LogHistogram();
+        List<Integer> values = new ArrayList<>();
+
+        for(int i = 0; i < 10000; i++) {
+            int value = (int) Math.abs(random.nextGaussian() * 300);
+            histogram.add(value);
+            values.add(value);
+        }
+
+        Collections.sort(values);
+
+        for(double quantile : new double[] {0.5, 0.9, 0.99}) {
+            int exact = values.get((int) Math.ceil(quantile * values.size()) - 1);
+            assertEquals(exact, histogram.getQuantile(quantile), exact / 16.0 + 1);
+        }
+    }
+
+    @Test
+    public void removedValuesDontCount() {
+        LogHistogram histogram = new LogHistogram();
+
+        for(int i = 0; i < 100; i++) {
+            histogram.add(i);
+            histogram.add(1000 + i);
+        }
+        for(int i = 0; i < 100; i++) {
+            histogram.remove(1000 + i);
+        }
+
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(98.5, histogram.getQuantile(0.99), 98.0 / 16);
+        assertTrue(Float.isNaN(new LogHistogram().getQuantile(0.5)));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getQuantile(1.5));
+    }
+
+    @Test
+    public void mergedHistogramEqualsHistogramOfAllValues() {
+        Random random = new Random(8);
+        LogHistogram first = new LogHistogram();
+        LogHistogram second = new LogHistogram();
+        LogHistogram all = new LogHistogram();
+
+        for(int i = 0; i < 5000; i++) {
+            int value = random.nextInt(100000);
+            (i % 3 == 0 ? first : second).add(value);
+            all.add(value);
+        }
+
+        first.merge(second);
+
+        assertEquals(all.getTotalCount(), first.getTotalCount());
+        for(int i = 0; i < LogHistogram.NUMBER_OF_BUCKETS; i++) {
+            assertEquals(all.getBucketCount(i), first.getBucketCount(i));
+        }
+    }
+
+    @Test
+    public void everyValueFallsIntoItsBucket() {
+        for(int value : new int[] {0, 1, 15, 16, 17, 31, 32, 33, 1000, 65535, 65536, Integer.MAX_VALUE}) {
+            int bucketIndex = LogHistogram.getBucketIndex(value);
+
+            assertTrue(LogHistogram.getLowestValue(bucketIndex) <= value);
+            assertTrue(LogHistogram.getHighestValue(bucketIndex) >= value);
+        }
+
+        assertEquals(LogHistogram.NUMBER_OF_BUCKETS - 1, LogHistogram.getBucketIndex(Integer.MAX_VALUE));
+        assertEquals(0, LogHistogram.getBucketIndex(-5));
+    }
+}
@@ -0,0 +1,28 @@
+package datatypes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlotAllocatorTest {
+    @Test
+    public void releasedSlotsAreReused() {
+        SlotAllocator allocator = new SlotAllocator();
+
+        for(int i = 0; i < 40; i++) {
+            assertEquals(i, allocator.allocate());
+        }
+
+        for(int i = 0; i < 40; i += 2) {
+            allocator.release(i);
+        }
+
+        for(int i = 0; i < 20; i++) {
+            int slot = allocator.allocate();
+            assertTrue(slot < 40 && slot % 2 == 0);
+        }
+
+        assertEquals(40, allocator.allocate());
+        assertEquals(41, allocator.getCapacity());
+    }
+}
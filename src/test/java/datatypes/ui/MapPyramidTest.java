@@ -0,0 +1,63 @@
+package datatypes.ui;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapPyramidTest {
+    @Test
+    public void buildsLevelsDownToSingleBlock() {
+        MapPyramid pyramid = new MapPyramid(5, 3);
+
+        assertEquals(4, pyramid.getNumberOfLevels());
+        assertEquals(3, pyramid.getColumns(1));
+        assertEquals(2, pyramid.getRows(1));
+        assertEquals(1, pyramid.getColumns(3));
+        assertEquals(1, pyramid.getRows(3));
+    }
+
+    @Test
+    public void blocksHaveAverageColourOfTheirCells() {
+        MapPyramid pyramid = new MapPyramid(4, 4);
+
+        pyramid.setColour(0, 0, MapPainter.argb(200, 0, 0));
+        pyramid.setColour(1, 0, MapPainter.argb(0, 200, 0));
+        pyramid.setColour(0, 1, MapPainter.argb(0, 0, 200));
+        pyramid.setColour(1, 1, MapPainter.argb(100, 100, 100));
+
+        assertEquals(MapPainter.argb(75, 75, 75), pyramid.getColour(1, 0, 0));
+        assertEquals(MapPainter.argb(0, 0, 0), pyramid.getColour(1, 1, 1));
+        assertEquals(MapPainter.argb(18, 18, 18), pyramid.getColour(2, 0, 0));
+    }
+
+    @Test
+    public void incrementalUpdatesMatchSummaryBuiltFromScratch() {
+        Random random = new Random(7);
+        MapPyramid pyramid = new MapPyramid(37, 21);
+        int[] colours = new int[37 * 21];
+
+        for(int i = 0; i < 5000; i++) {
+            int column = random.nextInt(37);
+            int row = random.nextInt(21);
+            int colour = MapPainter.argb(random.nextInt(4) * 80, random.nextInt(256), 7);
+
+            pyramid.setColour(column, row, colour);
+            colours[row * 37 + column] = colour;
+        }
+
+        MapPyramid rebuilt = new MapPyramid(37, 21);
+        for(int i = 0; i < colours.length; i++) {
+            rebuilt.setColour(i % 37, i / 37, colours[i]);
+        }
+
+        for(int level = 0; level < pyramid.getNumberOfLevels(); level++) {
+            for(int row = 0; row < pyramid.getRows(level); row++) {
+                for(int column = 0; column < pyramid.getColumns(level); column++) {
+                    assertEquals(rebuilt.getColour(level, column, row), pyramid.getColour(level, column, row));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package datatypes.ui;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSeriesTest {
+    @Test
+    public void downsamplesToAtMostGivenNumberOfPoints() {
+        TimeSeries series = new TimeSeries();
+        for(int day = 0; day < 100000; day++) {
+            series.add(day, Math.sin(day / 100.0));
+        }
+
+        double[] x = new double[500];
+        double[] y = new double[500];
+        int size = series.downsample(0, 99999, 500, x, y);
+
+        assertTrue(size <= 500);
+        assertEquals(0, x[0]);
+        assertEquals(99999, x[size - 1]);
+
+        for(int i = 1; i < size; i++) {
+            assertTrue(x[i] > x[i - 1]);
+        }
+    }
+
+    @Test
+    public void keepsAllPointsIfThereAreFewOfThem() {
+        TimeSeries series = new TimeSeries();
+        for(int day = 0; day < 10; day++) {
+            series.add(day, day * 2);
+        }
+
+        double[] x = new double[100];
+        double[] y = new double[100];
+
+        assertEquals(10, series.downsample(0, 9, 100, x, y));
+        assertEquals(18, y[9]);
+    }
+
+    @Test
+    public void keepsPeaksOfLongHistory() {
+        TimeSeries series = new TimeSeries();
+        for(int day = 0; day < 50000; day++) {
+            series.add(day, day == 31337 ? 1000 : 1);
+        }
+
+        double[] x = new double[100];
+        double[] y = new double[100];
+        int size = series.downsample(0, 49999, 100, x, y);
+
+        double max = 0;
+        for(int i = 0; i < size; i++) {
+            max = Math.max(max, y[i]);
+        }
+
+        assertEquals(1000, max);
+    }
+
+    @Test
+    public void includesPointsAroundVisibleRange() {
+        TimeSeries series = new TimeSeries();
+        for(int day = 0; day < 1000; day++) {
+            series.add(day, day);
+        }
+
+        double[] x = new double[50];
+        double[] y = new double[50];
+        int size = series.downsample(100.5, 199.5, 50, x, y);
+
+        assertTrue(x[0] <= 100.5);
+        assertTrue(x[size - 1] >= 199.5);
+    }
+
+    @Test
+    public void rejectsPointsOutOfOrder() {
+        TimeSeries series = new TimeSeries();
+        series.add(5, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> series.add(4, 1));
+    }
+}
@@ -0,0 +1,240 @@
+package entities;
+
+import datatypes.Direction;
+import datatypes.SimulationPhase;
+import datatypes.Vector2d;
+import datatypes.containers.StatisticsContainer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationTest {
+    private static void assertSameStatistics(StatisticsContainer expected, StatisticsContainer actual) {
+        assertEquals(expected.currentDay, actual.currentDay);
+        assertEquals(expected.numberOfAnimals, actual.numberOfAnimals);
+        assertEquals(expected.numberOfPlants, actual.numberOfPlants);
+        assertEquals(expected.meanEnergyLevel, actual.meanEnergyLevel);
+        assertEquals(expected.meanLifespan, actual.meanLifespan);
+        assertEquals(expected.meanNumberOfChildren, actual.meanNumberOfChildren);
+        assertEquals(expected.genesCount, actual.genesCount);
+    }
+
+    @Test
+    public void simulationsWithTheSameSeedAreIdentical() {
+        Simulation simulation1 = new Simulation(30, 30, 50, 20, 1, 0.5, 32, 8, 7);
+        Simulation simulation2 = new Simulation(30, 30, 50, 20, 1, 0.5, 32, 8, 7);
+
+        simulation1.generateAnimalsAtRandomPositions(100);
+        simulation2.generateAnimalsAtRandomPositions(100);
+
+        for(int i = 0; i < 40; i++) {
+            simulation1.simulateDay();
+            simulation2.simulateDay();
+
+            assertSameStatistics(simulation1.getCurrentDayStatistics(), simulation2.getCurrentDayStatistics());
+        }
+    }
+
+    @Test
+    public void dayStatisticsAreSnapshots() {
+        Simulation simulation = new Simulation(30, 30, 50, 20, 1, 0.5, 32, 8, 3);
+        simulation.generateAnimalsAtRandomPositions(100);
+
+        StatisticsContainer firstDay = simulation.getCurrentDayStatistics();
+        Map<Direction, Integer> firstDayGenesCount = new HashMap<>(firstDay.genesCount);
+
+        // Deaths and births change the genes counts of the population
+        for(int i = 0; i < 60; i++) {
+            simulation.simulateDay();
+        }
+
+        assertEquals(1, firstDay.currentDay);
+        assertEquals(firstDayGenesCount, firstDay.genesCount);
+        assertEquals(100 * 32, firstDay.genesCount.values().stream().mapToInt(Integer::intValue).sum());
+        assertThrows(UnsupportedOperationException.class, () -> firstDay.genesCount.put(Direction.N, 0));
+    }
+
+    @Test
+    public void restoredSimulationContinuesExactly(@TempDir Path directory) throws Exception {
+        Simulation simulation = new Simulation(30, 30, 50, 20, 1, 0.5, 32, 8, 11);
+        simulation.generateAnimalsAtRandomPositions(100);
+
+        for(int i = 0; i < 20; i++) {
+            simulation.simulateDay();
+        }
+
+        Path checkpoint = directory.resolve("checkpoint.bin");
+        simulation.saveCheckpoint(checkpoint);
+        Simulation restoredSimulation = Simulation.loadCheckpoint(checkpoint);
+
+        assertSameStatistics(simulation.getCurrentDayStatistics(), restoredSimulation.getCurrentDayStatistics());
+
+        for(int i = 0; i < 30; i++) {
+            simulation.simulateDay();
+            restoredSimulation.simulateDay();
+
+            assertSameStatistics(simulation.getCurrentDayStatistics(), restoredSimulation.getCurrentDayStatistics());
+        }
+    }
+
+    @Test
+    public void doubleBufferedSimulationsWithTheSameSeedAreIdentical() {
+        // Enough animals for the moves to be planned in parallel
+        Simulation simulation1 = new Simulation(100, 100, 50, 20, 1, 0.5, 32, 8, 5);
+        Simulation simulation2 = new Simulation(100, 100, 50, 20, 1, 0.5, 32, 8, 5);
+        simulation1.setDoubleBuffered(true);
+        simulation2.setDoubleBuffered(true);
+
+        simulation1.generateAnimalsAtRandomPositions(3000);
+        simulation2.generateAnimalsAtRandomPositions(3000);
+
+        for(int i = 0; i < 15; i++) {
+            simulation1.simulateDay();
+            simulation2.simulateDay();
+
+            assertSameStatistics(simulation1.getCurrentDayStatistics(), simulation2.getCurrentDayStatistics());
+        }
+    }
+
+    @Test
+    public void doubleBufferedRunDoesntDependOnTheNumberOfThreads() {
+        // Enough animals for the moves to be planned in parallel
+        Simulation simulation1 = new Simulation(100, 100, 50, 20, 1, 0.5, 32, 8, 13);
+        Simulation simulation2 = new Simulation(100, 100, 50, 20, 1, 0.5, 32, 8, 13);
+        simulation1.setDoubleBuffered(true);
+        simulation2.setDoubleBuffered(true);
+        simulation1.setPool(new ForkJoinPool(1));
+        simulation2.setPool(new ForkJoinPool(8));
+
+        simulation1.generateAnimalsAtRandomPositions(3000);
+        simulation2.generateAnimalsAtRandomPositions(3000);
+
+        for(int i = 0; i < 15; i++) {
+            simulation1.simulateDay();
+            simulation2.simulateDay();
+
+            assertSameStatistics(simulation1.getCurrentDayStatistics(), simulation2.getCurrentDayStatistics());
+        }
+
+        Iterator<Animal> iterator1 = simulation1.getMap().getAnimalsIterator();
+        Iterator<Animal> iterator2 = simulation2.getMap().getAnimalsIterator();
+        while (iterator1.hasNext()) {
+            Animal animal1 = iterator1.next();
+            Animal animal2 = iterator2.next();
+
+            assertEquals(animal1.getId(), animal2.getId());
+            assertEquals(animal1.getPosition(), animal2.getPosition());
+            assertEquals(animal1.getEnergy(), animal2.getEnergy());
+            assertEquals(animal1.getOrientation(), animal2.getOrientation());
+        }
+        assertFalse(iterator2.hasNext());
+    }
+
+    @Test
+    public void doubleBufferedEngineKeepsTheMapConsistent() {
+        Simulation simulation = new Simulation(30, 30, 50, 20, 1, 0.5, 32, 8, 9);
+        simulation.setDoubleBuffered(true);
+        simulation.generateAnimalsAtRandomPositions(150);
+        WorldMap map = simulation.getMap();
+
+        // Reproduction takes energy from parents, so animals are sorted by their energy only after moves
+        simulation.addPhaseObserver((observedSimulation, phase) -> {
+            if(phase != SimulationPhase.MOVE_ANIMALS) {
+                return;
+            }
+
+            for(Iterator<Vector2d> iterator = map.getAnimalPositionsIterator(); iterator.hasNext(); ) {
+                List<Animal> animalsAtPosition = map.getAnimalsListAt(iterator.next()).orElseThrow();
+
+                for(int i = 1; i < animalsAtPosition.size(); i++) {
+                    assertTrue(animalsAtPosition.get(i - 1).getEnergy() >= animalsAtPosition.get(i).getEnergy());
+                }
+            }
+        });
+
+        for(int day = 0; day < 40; day++) {
+            simulation.simulateDay();
+
+            int numberOfAnimals = 0;
+            long energy = 0;
+            for(Iterator<Animal> iterator = map.getAnimalsIterator(); iterator.hasNext(); ) {
+                Animal animal = iterator.next();
+                List<Animal> animalsAtPosition = map.getAnimalsListAt(animal.getPosition()).orElseThrow();
+
+                assertTrue(animalsAtPosition.contains(animal));
+                assertFalse(map.isAFreePositionForPlants(animal.getPosition()));
+                numberOfAnimals += 1;
+                energy += Math.max(animal.getEnergy(), 0);
+            }
+
+            assertEquals(numberOfAnimals, map.getNumberOfAnimalsIn(new Vector2d(0, 0), new Vector2d(29, 29)));
+            assertEquals(energy, map.getEnergyIn(new Vector2d(0, 0), new Vector2d(29, 29)));
+            assertEquals(numberOfAnimals, map.getAnimalsInRectangle(new Vector2d(0, 0), new Vector2d(29, 29)).size());
+        }
+    }
+
+    @Test
+    public void restoredDoubleBufferedSimulationContinuesExactly(@TempDir Path directory) throws Exception {
+        Simulation simulation = new Simulation(30, 30, 50, 20, 1, 0.5, 32, 8, 3);
+        simulation.setDoubleBuffered(true);
+        simulation.generateAnimalsAtRandomPositions(100);
+
+        for(int i = 0; i < 20; i++) {
+            simulation.simulateDay();
+        }
+
+        Path checkpoint = directory.resolve("checkpoint.bin");
+        simulation.saveCheckpoint(checkpoint);
+        Simulation restoredSimulation = Simulation.loadCheckpoint(checkpoint);
+
+        assertTrue(restoredSimulation.isDoubleBuffered());
+
+        for(int i = 0; i < 30; i++) {
+            simulation.simulateDay();
+            restoredSimulation.simulateDay();
+
+            assertSameStatistics(simulation.getCurrentDayStatistics(), restoredSimulation.getCurrentDayStatistics());
+        }
+    }
+
+    @Test
+    public void plannedBirthsDontDependOnTheNumberOfThreads() {
+        Simulation simulation = new Simulation(60, 60, 20, 20, 1, 0.5, 32, 8, 21);
+        simulation.generateAnimalsAtRandomPositions(2500);
+        // Animals start at distinct positions, and meet after moving
+        simulation.removeDeadAnimals();
+        simulation.moveAnimals();
+        WorldMap map = simulation.getMap();
+
+        List<List<Animal>> crowdedPositions = new ArrayList<>();
+        for(List<Animal> animalsAtPosition : map.getAnimalsAtPositionsView()) {
+            if(animalsAtPosition.size() >= 2) {
+                crowdedPositions.add(animalsAtPosition);
+            }
+        }
+
+        List<Animal.PlannedBirth> births1 = new ReproductionPlanner(map, 20, crowdedPositions, 99, 1)
+                .planBirths(new ForkJoinPool(1));
+        List<Animal.PlannedBirth> births2 = new ReproductionPlanner(map, 20, crowdedPositions, 99, 1)
+                .planBirths(new ForkJoinPool(4));
+
+        assertTrue(crowdedPositions.size() > 64);
+        assertEquals(births1.size(), births2.size());
+        for(int i = 0; i < births1.size(); i++) {
+            assertSame(births1.get(i).firstParent, births2.get(i).firstParent);
+            assertSame(births1.get(i).secondParent, births2.get(i).secondParent);
+            assertEquals(births1.get(i).childPosition, births2.get(i).childPosition);
+            assertEquals(births1.get(i).childGenotype, births2.get(i).childGenotype);
+            assertEquals(births1.get(i).childEnergy, births2.get(i).childEnergy);
+        }
+    }
+}
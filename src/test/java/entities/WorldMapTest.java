@@ -5,9 +5,7 @@ import datatypes.Vector2d;
 import org.junit.jupiter.api.Test;
 import util.randomMock.MockRandom;
 
-import java.util.Iterator;
-import java.util.List;
-import java.util.Random;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -241,4 +239,202 @@ class WorldMapTest {
             previousEnergy = animal.getEnergy();
         }
     }
-}
\ No newline at end of file
+
+    private static String[] describeCells(WorldMap map) {
+        String[] descriptions = new String[map.getWidth() * map.getHeight()];
+
+        for(int y = 0; y < map.getHeight(); y++) {
+            for(int x = 0; x < map.getWidth(); x++) {
+                Vector2d position = new Vector2d(x, y);
+
+                descriptions[y * map.getWidth() + x] = map.animalAt(position).map(Animal::getEnergy).orElse(-1)
+                        + " " + map.plantAt(position).isPresent();
+            }
+        }
+
+        return descriptions;
+    }
+
+    @Test
+    void changedCellsContainEveryCellThatChanged() {
+        Simulation simulation = new Simulation(40, 30, 30, 10, 1, 0.5, 32, 8, 11);
+        simulation.generateAnimalsAtRandomPositions(200);
+        WorldMap map = simulation.getMap();
+        map.takeChangedCells();
+
+        for(int day = 0; day < 50; day++) {
+            String[] before = describeCells(map);
+            simulation.simulateDay();
+            String[] after = describeCells(map);
+
+            Set<Integer> changedCells = new HashSet<>();
+            for(int cellIndex : map.takeChangedCells()) {
+                assertTrue(changedCells.add(cellIndex));
+            }
+
+            for(int i = 0; i < before.length; i++) {
+                if(!before[i].equals(after[i])) {
+                    assertTrue(changedCells.contains(i));
+                }
+            }
+        }
+
+        assertEquals(0, map.takeChangedCells().length);
+    }
+
+    @Test
+    void blockStatisticsMatchTheMap() {
+        Simulation simulation = new Simulation(44, 30, 30, 10, 1, 0.5, 32, 8, 13);
+        simulation.generateAnimalsAtRandomPositions(200);
+        WorldMap map = simulation.getMap();
+        BlockStatistics blockStatistics = map.getBlockStatistics();
+        int numberOfBlocks = blockStatistics.getBlockColumns() * blockStatistics.getBlockRows();
+
+        assertEquals(6, blockStatistics.getBlockColumns());
+        assertEquals(4, blockStatistics.getBlockRows());
+        assertEquals(4 * 6, blockStatistics.getNumberOfCells(blockStatistics.getBlockIndex(43, 29)));
+
+        for(int day = 0; day < 60; day++) {
+            simulation.simulateDay();
+
+            int[] animals = new int[numberOfBlocks];
+            int[] energy = new int[numberOfBlocks];
+            int[] plants = new int[numberOfBlocks];
+
+            for(Iterator<Animal> iterator = map.getAnimalsIterator(); iterator.hasNext(); ) {
+                Animal animal = iterator.next();
+                Vector2d position = animal.getPosition();
+                int blockIndex = blockStatistics.getBlockIndex(position.x_coordinate, position.y_coordinate);
+                animals[blockIndex] += 1;
+                energy[blockIndex] += Math.max(animal.getEnergy(), 0);
+            }
+
+            for(Iterator<Plant> iterator = map.getPlantsIterator(); iterator.hasNext(); ) {
+                Vector2d position = iterator.next().getPosition();
+                plants[blockStatistics.getBlockIndex(position.x_coordinate, position.y_coordinate)] += 1;
+            }
+
+            for(int i = 0; i < numberOfBlocks; i++) {
+                assertEquals(animals[i], blockStatistics.getNumberOfAnimals(i));
+                assertEquals(energy[i], blockStatistics.getEnergy(i));
+                assertEquals(plants[i], blockStatistics.getNumberOfPlants(i));
+            }
+        }
+    }
+
+    @Test
+    void regionQueriesMatchTheMap() {
+        Simulation simulation = new Simulation(40, 30, 30, 10, 1, 0.5, 32, 8, 17);
+        simulation.generateAnimalsAtRandomPositions(200);
+        WorldMap map = simulation.getMap();
+        Vector2d[] jungle = map.getJungleCorners();
+
+        for(int day = 0; day < 40; day++) {
+            simulation.simulateDay();
+
+            int animals = 0;
+            long energy = 0;
+            for(Iterator<Animal> iterator = map.getAnimalsIterator(); iterator.hasNext(); ) {
+                Animal animal = iterator.next();
+                Vector2d position = animal.getPosition();
+
+                if(position.follows(jungle[1]) && position.precedes(jungle[0])) {
+                    animals += 1;
+                    energy += Math.max(animal.getEnergy(), 0);
+                }
+            }
+
+            int plants = 0;
+            for(Iterator<Plant> iterator = map.getPlantsIterator(); iterator.hasNext(); ) {
+                Vector2d position = iterator.next().getPosition();
+
+                if(position.follows(jungle[1]) && position.precedes(jungle[0])) {
+                    plants += 1;
+                }
+            }
+
+            assertEquals(animals, map.getNumberOfAnimalsIn(jungle[0], jungle[1]));
+            assertEquals(energy, map.getEnergyIn(jungle[0], jungle[1]));
+            assertEquals(plants, map.getNumberOfPlantsIn(jungle[0], jungle[1]));
+            assertEquals(map.getNumberOfAnimals(),
+                    map.getNumberOfAnimalsIn(Vector2d.zero(), new Vector2d(39, 29)));
+
+            // Crosses both edges of the map, so it's made of the four corners
+            Vector2d lowerLeft = new Vector2d(30, 20);
+            Vector2d upperRight = new Vector2d(9, 7);
+            List<Animal> wrappedAnimals = map.getAnimalsInRectangle(lowerLeft, upperRight);
+            long wrappedEnergy = 0;
+            for(Animal animal : wrappedAnimals) {
+                wrappedEnergy += Math.max(animal.getEnergy(), 0);
+            }
+
+            int wrappedPlants = 0;
+            for(Iterator<Plant> iterator = map.getPlantsIterator(); iterator.hasNext(); ) {
+                Vector2d position = iterator.next().getPosition();
+
+                if((position.x_coordinate >= 30 || position.x_coordinate <= 9)
+                        && (position.y_coordinate >= 20 || position.y_coordinate <= 7)) {
+                    wrappedPlants += 1;
+                }
+            }
+
+            assertEquals(wrappedAnimals.size(), map.getNumberOfAnimalsIn(lowerLeft, upperRight));
+            assertEquals(wrappedEnergy, map.getEnergyIn(lowerLeft, upperRight));
+            assertEquals(wrappedPlants, map.getNumberOfPlantsIn(lowerLeft, upperRight));
+        }
+    }
+
+    @Test
+    void spatialQueriesMatchFullScan() {
+        Simulation simulation = new Simulation(50, 30, 30, 10, 1, 0.5, 32, 8, 19);
+        simulation.generateAnimalsAtRandomPositions(300);
+        WorldMap map = simulation.getMap();
+        Random random = new Random(5);
+
+        for(int day = 0; day < 20; day++) {
+            simulation.simulateDay();
+
+            List<Animal> allAnimals = new ArrayList<>();
+            map.getAnimalsIterator().forEachRemaining(allAnimals::add);
+
+            for(int query = 0; query < 20; query++) {
+                Vector2d first = new Vector2d(random.nextInt(50), random.nextInt(30));
+                Vector2d second = new Vector2d(random.nextInt(50), random.nextInt(30));
+                int radius = random.nextInt(20);
+                int numberOfAnimals = random.nextInt(30);
+
+                Set<Animal> inRectangle = new HashSet<>();
+                Set<Animal> withinRadius = new HashSet<>();
+                for(Animal animal : allAnimals) {
+                    int dx = Math.floorMod(animal.getPosition().x_coordinate - first.x_coordinate, 50);
+                    int dy = Math.floorMod(animal.getPosition().y_coordinate - first.y_coordinate, 30);
+
+                    if(dx <= Math.floorMod(second.x_coordinate - first.x_coordinate, 50)
+                            && dy <= Math.floorMod(second.y_coordinate - first.y_coordinate, 30)) {
+                        inRectangle.add(animal);
+                    }
+                    if(squaredTorusDistance(first, animal.getPosition()) <= radius * radius) {
+                        withinRadius.add(animal);
+                    }
+                }
+
+                allAnimals.sort(Comparator.<Animal>comparingInt(animal -> squaredTorusDistance(first,
+                        animal.getPosition())).thenComparingInt(Animal::getId));
+
+                assertEquals(inRectangle, new HashSet<>(map.getAnimalsInRectangle(first, second)));
+                assertEquals(withinRadius, new HashSet<>(map.getAnimalsWithinRadius(first, radius)));
+                assertEquals(allAnimals.subList(0, Math.min(numberOfAnimals, allAnimals.size())),
+                        map.getNearestAnimals(first, numberOfAnimals));
+            }
+        }
+    }
+
+    private static int squaredTorusDistance(Vector2d first, Vector2d second) {
+        int dx = Math.abs(first.x_coordinate - second.x_coordinate);
+        int dy = Math.abs(first.y_coordinate - second.y_coordinate);
+        dx = Math.min(dx, 50 - dx);
+        dy = Math.min(dy, 30 - dy);
+
+        return dx * dx + dy * dy;
+    }
+}
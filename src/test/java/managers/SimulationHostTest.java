@@ -0,0 +1,87 @@
+package managers;
+
+import entities.Simulation;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationHostTest {
+    private static Simulation createSimulation() {
+        Simulation simulation = new Simulation(30, 20, 40, 10, 1, 0.5, 32, 8, 5);
+        simulation.generateAnimalsAtRandomPositions(100);
+        return simulation;
+    }
+
+    @Test
+    public void everySimulationMakesProgressOnSingleWorker() throws InterruptedException {
+        try (SimulationHost host = new SimulationHost(1)) {
+            SimulationRunner[] runners = new SimulationRunner[3];
+
+            for(int i = 0; i < runners.length; i++) {
+                runners[i] = new SimulationRunner(createSimulation(), host);
+                runners[i].setDaysPerSecond(SimulationRunner.UNLIMITED_SPEED);
+                runners[i].resume();
+            }
+
+            Thread.sleep(300);
+
+            for(SimulationRunner runner : runners) {
+                runner.close();
+                assertTrue(runner.getSimulation().getCurrentDay() > 5);
+            }
+        }
+    }
+
+    @Test
+    public void higherPriorityGetsMoreDays() throws InterruptedException {
+        try (SimulationHost host = new SimulationHost(1)) {
+            SimulationRunner low = new SimulationRunner(createSimulation(), host);
+            SimulationRunner high = new SimulationRunner(createSimulation(), host);
+
+            low.setPriority(SimulationRunner.MIN_PRIORITY);
+            high.setPriority(SimulationRunner.MAX_PRIORITY);
+
+            for(SimulationRunner runner : new SimulationRunner[] {low, high}) {
+                runner.setDaysPerSecond(SimulationRunner.UNLIMITED_SPEED);
+                runner.resume();
+            }
+
+            Thread.sleep(500);
+            low.close();
+            high.close();
+
+            assertTrue(high.getSimulation().getCurrentDay() > low.getSimulation().getCurrentDay(),
+                    high.getSimulation().getCurrentDay() + " days with high priority, "
+                            + low.getSimulation().getCurrentDay() + " days with low priority");
+        }
+    }
+
+    @Test
+    public void pausedRunnerDoesNotRun() throws InterruptedException {
+        try (SimulationHost host = new SimulationHost(2)) {
+            SimulationRunner runner = new SimulationRunner(createSimulation(), host);
+            runner.setDaysPerSecond(SimulationRunner.UNLIMITED_SPEED);
+            runner.resume();
+            Thread.sleep(50);
+            runner.pauseAndWait();
+
+            int day = runner.getSimulation().getCurrentDay();
+            Thread.sleep(100);
+            assertEquals(day, runner.getSimulation().getCurrentDay());
+
+            runner.close();
+        }
+    }
+
+    @Test
+    public void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new SimulationHost(0));
+
+        try (SimulationHost host = new SimulationHost(1)) {
+            SimulationRunner runner = new SimulationRunner(createSimulation(), host);
+            assertThrows(IllegalArgumentException.class, () -> runner.setPriority(0));
+            assertThrows(IllegalArgumentException.class,
+                    () -> runner.setPriority(SimulationRunner.MAX_PRIORITY + 1));
+        }
+    }
+}
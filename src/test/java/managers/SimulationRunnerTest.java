@@ -0,0 +1,192 @@
+package managers;
+
+import datatypes.containers.SimulationFrame;
+import datatypes.containers.StatisticsContainer;
+import datatypes.ui.MapPainter;
+import entities.Animal;
+import entities.Simulation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationRunnerTest {
+    @Test
+    public void framesContainEveryChangeAndEveryDay() throws InterruptedException {
+        Simulation simulation = new Simulation(30, 20, 40, 10, 1, 0.5, 32, 8, 5);
+        simulation.generateAnimalsAtRandomPositions(100);
+
+        int[] raster = new int[30 * 20];
+        List<StatisticsContainer> statistics = new ArrayList<>();
+
+        try (SimulationRunner runner = new SimulationRunner(simulation)) {
+            runner.repaintAll();
+            runner.pauseAfterDay(15);
+            runner.resume();
+
+            boolean paused = false;
+            while (!paused) {
+                // Taking frames rarely, so some of them are merged
+                Thread.sleep(250);
+
+                SimulationFrame frame = runner.takeFrame();
+                if(frame == null) {
+                    continue;
+                }
+
+                for(int i = 0; i < frame.getNumberOfChangedCells(); i++) {
+                    raster[frame.getChangedCell(i)] = frame.getColour(i);
+                }
+                statistics.addAll(frame.getStatistics());
+                paused = frame.paused;
+            }
+
+            assertTrue(runner.isPaused());
+        }
+
+        assertEquals(15, simulation.getCurrentDay());
+        for(int i = 0; i < statistics.size(); i++) {
+            assertEquals(i + 2, statistics.get(i).currentDay);
+        }
+
+        MapPainter painter = new MapPainter(simulation);
+        for(int i = 0; i < raster.length; i++) {
+            assertEquals(painter.getCellColour(i), raster[i]);
+        }
+    }
+
+    private static long runDays(SimulationRunner runner, int lastDay) throws InterruptedException {
+        long start = System.nanoTime();
+        runner.pauseAfterDay(lastDay);
+        runner.resume();
+
+        while (!runner.isPaused()) {
+            Thread.sleep(5);
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void fixedSpeedIsKept() throws InterruptedException {
+        Simulation simulation = new Simulation(30, 20, 40, 10, 1, 0.5, 32, 8, 5);
+        simulation.generateAnimalsAtRandomPositions(100);
+
+        try (SimulationRunner runner = new SimulationRunner(simulation)) {
+            runner.setDaysPerSecond(20);
+
+            // Ten days take nine periods of 50 ms
+            long elapsed = runDays(runner, 11);
+            assertEquals(11, simulation.getCurrentDay());
+            assertTrue(elapsed >= 430_000_000L, "Days were simulated too fast: " + elapsed + " ns");
+
+            runner.setDaysPerSecond(SimulationRunner.UNLIMITED_SPEED);
+            runDays(runner, 1011);
+            assertEquals(1011, simulation.getCurrentDay());
+        }
+    }
+
+    @Test
+    public void negativeSpeedIsRejected() {
+        Simulation simulation = new Simulation(10, 10, 40, 10, 1, 0.5, 32, 8, 5);
+
+        try (SimulationRunner runner = new SimulationRunner(simulation)) {
+            assertThrows(IllegalArgumentException.class, () -> runner.setDaysPerSecond(-1));
+        }
+    }
+
+    @Test
+    public void pipelinedRunnerDeliversEveryDayInOrder() throws InterruptedException {
+        Simulation simulation = new Simulation(30, 20, 40, 10, 1, 0.5, 32, 8, 5);
+        simulation.generateAnimalsAtRandomPositions(100);
+        List<Integer> days = new ArrayList<>();
+
+        try (SimulationHost host = new SimulationHost(1)) {
+            try (SimulationRunner runner = new SimulationRunner(simulation, host)) {
+                runner.setPipelineDepth(3);
+                runner.addStatisticsObserver(statistics -> days.add(statistics.currentDay));
+                runner.setDaysPerSecond(SimulationRunner.UNLIMITED_SPEED);
+                runDays(runner, 201);
+            }
+
+            // Closing the runner handles the days still waiting in the pipeline
+            assertEquals(200, days.size());
+            for(int i = 0; i < days.size(); i++) {
+                assertEquals(i + 2, days.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void fullPipelineStopsTheSimulation() throws InterruptedException {
+        Simulation simulation = new Simulation(30, 20, 40, 10, 1, 0.5, 32, 8, 5);
+        simulation.generateAnimalsAtRandomPositions(100);
+        CountDownLatch downstreamBlocked = new CountDownLatch(1);
+
+        try (SimulationHost host = new SimulationHost(1)) {
+            SimulationRunner runner = new SimulationRunner(simulation, host);
+            runner.setPipelineDepth(4);
+            runner.addStatisticsObserver(statistics -> {
+                try {
+                    downstreamBlocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            runner.setDaysPerSecond(SimulationRunner.UNLIMITED_SPEED);
+            runner.resume();
+
+            Thread.sleep(300);
+            // The snapshot being handled and the ones waiting for it
+            assertEquals(5, simulation.getCurrentDay());
+
+            downstreamBlocked.countDown();
+            Thread.sleep(300);
+            runner.close();
+            assertTrue(simulation.getCurrentDay() > 10);
+        }
+    }
+
+    private static void waitUntilPaused(SimulationRunner runner) throws InterruptedException {
+        while (!runner.isPaused()) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void commandsAreAppliedInOrderBetweenDays() throws InterruptedException {
+        Simulation simulation = new Simulation(30, 20, 40, 10, 1, 0.5, 32, 8, 5);
+        simulation.generateAnimalsAtRandomPositions(100);
+
+        try (SimulationRunner runner = new SimulationRunner(simulation)) {
+            runner.setDaysPerSecond(SimulationRunner.UNLIMITED_SPEED);
+
+            runner.step(5);
+            waitUntilPaused(runner);
+            assertEquals(6, simulation.getCurrentDay());
+
+            runner.step(3);
+            waitUntilPaused(runner);
+            assertEquals(9, simulation.getCurrentDay());
+
+            // Pausing waits until the queued commands are applied
+            runner.runUntil(1000);
+            runner.pauseAndWait();
+            int day = simulation.getCurrentDay();
+            assertTrue(day >= 9 && day < 1000);
+            Thread.sleep(50);
+            assertEquals(day, simulation.getCurrentDay());
+
+            Animal animal = simulation.getMap().getAnimalsIterator().next();
+            runner.setFollowedAnimal(animal);
+            waitUntilPaused(runner);
+            assertSame(animal, simulation.getFollowedAnimal());
+            assertEquals(day, simulation.getCurrentDay());
+
+            assertThrows(IllegalArgumentException.class, () -> runner.step(0));
+        }
+    }
+}
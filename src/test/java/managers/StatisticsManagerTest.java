@@ -0,0 +1,41 @@
+package managers;
+
+import datatypes.LogHistogram;
+import entities.Animal;
+import entities.Simulation;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticsManagerTest {
+    @Test
+    public void deadAnimalsDontChangeHistograms() {
+        for(int seed = 0; seed < 30; seed++) {
+            // Low energies, so animals often die on plants they are about to eat
+            Simulation simulation = new Simulation(30, 30, 20, 10, 2, 0.5, 32, 8, seed);
+            simulation.generateAnimalsAtRandomPositions(60);
+
+            // Observes the same animals as the simulation's own manager, children are added on their births
+            StatisticsManager manager = new StatisticsManager();
+            for(Iterator<Animal> iterator = simulation.getMap().getAnimalsIterator(); iterator.hasNext(); ) {
+                manager.addAnimal(iterator.next());
+            }
+
+            for(int day = 0; day < 15; day++) {
+                simulation.simulateDay();
+
+                for(LogHistogram histogram : new LogHistogram[]{manager.getEnergyHistogram(),
+                        manager.getNumberOfChildrenHistogram()}) {
+                    for(int i = 0; i < LogHistogram.NUMBER_OF_BUCKETS; i++) {
+                        assertTrue(histogram.getBucketCount(i) >= 0, "Seed " + seed + ", day " + day);
+                    }
+
+                    assertEquals(manager.getNumberOfAnimals(), histogram.getTotalCount(),
+                            "Seed " + seed + ", day " + day);
+                }
+            }
+        }
+    }
+}
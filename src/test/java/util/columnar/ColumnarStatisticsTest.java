@@ -0,0 +1,93 @@
+package util.columnar;
+
+import datatypes.Direction;
+import datatypes.containers.StatisticsContainer;
+import entities.Simulation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarStatisticsTest {
+    private static List<StatisticsContainer> writeRun(Path directory, int days) throws Exception {
+        Simulation simulation = new Simulation(30, 30, 50, 20, 1, 0.5, 32, 8, 17);
+        simulation.generateAnimalsAtRandomPositions(100);
+        List<StatisticsContainer> result = new ArrayList<>();
+
+        try (ColumnarStatisticsWriter writer = new ColumnarStatisticsWriter(directory)) {
+            for(int i = 0; i < days; i++) {
+                simulation.simulateDay();
+                result.add(simulation.getCurrentDayStatistics());
+                writer.append(result.get(i));
+            }
+        }
+
+        return result;
+    }
+
+    @Test
+    public void logContainsEveryDayOfEveryColumn(@TempDir Path directory) throws Exception {
+        List<StatisticsContainer> statistics = writeRun(directory, 80);
+        ColumnarStatisticsReader reader = new ColumnarStatisticsReader(directory);
+
+        assertEquals(80, reader.getNumberOfDays());
+        for(int i = 0; i < statistics.size(); i++) {
+            StatisticsContainer day = statistics.get(i);
+
+            assertEquals(day.currentDay, reader.getIntColumn(StatisticsColumn.CURRENT_DAY).get(i));
+            assertEquals(day.numberOfAnimals, reader.getValue(StatisticsColumn.NUMBER_OF_ANIMALS, i));
+            assertEquals(day.meanEnergyLevel, reader.getFloatColumn(StatisticsColumn.MEAN_ENERGY_LEVEL).get(i));
+            assertEquals(day.genesCount.get(Direction.SW), reader.getIntColumn(StatisticsColumn.GENES_SW).get(i));
+            assertEquals(day.energyQuantiles.p90, reader.getFloatColumn(StatisticsColumn.ENERGY_P90).get(i));
+            assertEquals(day.diversity.meanHammingDistance,
+                    reader.getFloatColumn(StatisticsColumn.MEAN_HAMMING_DISTANCE).get(i));
+        }
+
+        ColumnSummary summary = reader.summarize(StatisticsColumn.NUMBER_OF_PLANTS);
+        assertEquals(80, summary.count);
+        assertEquals(statistics.stream().mapToInt(day -> day.numberOfPlants).sum(), summary.sum);
+        assertEquals(statistics.stream().mapToInt(day -> day.numberOfPlants).max().orElseThrow(), summary.max);
+
+        assertThrows(IllegalArgumentException.class, () -> reader.getIntColumn(StatisticsColumn.MEAN_LIFESPAN));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.getValue(StatisticsColumn.CURRENT_DAY, 80));
+    }
+
+    @Test
+    public void missingValuesAreSkippedBySummaries(@TempDir Path directory) throws Exception {
+        try (ColumnarStatisticsWriter writer = new ColumnarStatisticsWriter(directory)) {
+            writer.append(new StatisticsContainer(0, 5, Float.NaN, 3, 0, 1, Map.of()));
+            writer.append(new StatisticsContainer(2, 5, 10, 3, 0, 2, Map.of(Direction.N, 64)));
+        }
+
+        ColumnarStatisticsReader reader = new ColumnarStatisticsReader(directory);
+        ColumnSummary energy = reader.summarize(StatisticsColumn.MEAN_ENERGY_LEVEL);
+
+        assertEquals(1, energy.count);
+        assertEquals(10, energy.getMean());
+        assertEquals(0, reader.summarize(StatisticsColumn.ENERGY_P50).count);
+        assertEquals(-1, reader.getValue(StatisticsColumn.NUMBER_OF_DISTINCT_GENOTYPES, 0));
+        assertEquals(64, reader.getValue(StatisticsColumn.GENES_N, 1));
+    }
+
+    @Test
+    public void incompleteLastDayIsIgnored(@TempDir Path directory) throws Exception {
+        writeRun(directory, 10);
+
+        // As if the writer crashed while appending the last day
+        Path column = directory.resolve(StatisticsColumn.GENE_ENTROPY.getColumnName() + ".col");
+        try (FileChannel channel = FileChannel.open(column, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - Integer.BYTES);
+        }
+
+        ColumnarStatisticsReader reader = new ColumnarStatisticsReader(directory);
+        assertEquals(9, reader.getNumberOfDays());
+        assertEquals(9, reader.getIntColumn(StatisticsColumn.CURRENT_DAY).remaining());
+    }
+}
@@ -0,0 +1,229 @@
+package util.export;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import datatypes.Direction;
+import datatypes.containers.StatisticsContainer;
+import entities.Simulation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingStatisticsExporterTest {
+    private static List<StatisticsContainer> simulateDays(int days) {
+        Simulation simulation = new Simulation(30, 30, 50, 20, 1, 0.5, 32, 8, 31);
+        simulation.generateAnimalsAtRandomPositions(100);
+        List<StatisticsContainer> result = new ArrayList<>();
+
+        for(int i = 0; i < days; i++) {
+            simulation.simulateDay();
+            result.add(simulation.getCurrentDayStatistics());
+        }
+
+        return result;
+    }
+
+    private static List<String> readLines(Path file, boolean compressed) throws IOException {
+        if(!compressed) {
+            return Files.readAllLines(file, StandardCharsets.UTF_8);
+        }
+
+        List<String> result = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+                result.add(line);
+            }
+        }
+
+        return result;
+    }
+
+    private static void export(Path directory, ExportFormat format, boolean compressed, int recordsPerFile,
+                               List<StatisticsContainer> days) {
+        try (StreamingStatisticsExporter exporter = new StreamingStatisticsExporter(directory, "statistics", format,
+                compressed, recordsPerFile, days.size())) {
+            for(StatisticsContainer container : days) {
+                assertTrue(exporter.record(container));
+            }
+        }
+    }
+
+    @Test
+    public void csvRowsHaveAColumnForEveryHeaderName(@TempDir Path directory) throws IOException {
+        List<StatisticsContainer> days = simulateDays(20);
+        export(directory, ExportFormat.CSV, false, 0, days);
+
+        List<String> lines = readLines(directory.resolve("statistics.csv"), false);
+        String[] header = lines.get(0).split(",", -1);
+
+        assertEquals(ExportFormat.CSV.header(), lines.get(0));
+        assertEquals(days.size() + 1, lines.size());
+
+        for(int i = 0; i < days.size(); i++) {
+            String[] row = lines.get(i + 1).split(",", -1);
+            StatisticsContainer container = days.get(i);
+
+            assertEquals(header.length, row.length);
+            assertEquals(container.currentDay, Integer.parseInt(row[0]));
+            assertEquals(container.numberOfAnimals, Integer.parseInt(row[1]));
+            assertEquals(container.numberOfPlants, Integer.parseInt(row[2]));
+
+            for(Direction direction : Direction.values()) {
+                int column = List.of(header).indexOf("genes" + direction);
+                assertEquals((int) container.genesCount.get(direction), Integer.parseInt(row[column]));
+            }
+
+            assertEquals(container.energyQuantiles.p90,
+                    Float.parseFloat(row[List.of(header).indexOf("energyP90")]));
+            assertEquals(container.diversity.numberOfDistinctGenotypes,
+                    Integer.parseInt(row[List.of(header).indexOf("numberOfDistinctGenotypes")]));
+        }
+
+        // Overall statistics have no quantiles nor diversity, but the columns are still there
+        StatisticsContainer overall = new StatisticsContainer(1, 2, 3, 4, 5, 6, days.get(0).genesCount);
+        assertEquals(header.length, ExportFormat.CSV.format(overall, new Gson()).split(",", -1).length);
+    }
+
+    @Test
+    public void jsonLinesAreParsedBackIntoStatistics(@TempDir Path directory) throws IOException {
+        List<StatisticsContainer> days = simulateDays(20);
+        export(directory, ExportFormat.JSON_LINES, false, 0, days);
+
+        List<String> lines = readLines(directory.resolve("statistics.jsonl"), false);
+        Gson gson = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+
+        assertEquals(days.size(), lines.size());
+        for(int i = 0; i < days.size(); i++) {
+            StatisticsContainer expected = days.get(i);
+            StatisticsContainer parsed = gson.fromJson(lines.get(i), StatisticsContainer.class);
+
+            assertEquals(expected.currentDay, parsed.currentDay);
+            assertEquals(expected.numberOfAnimals, parsed.numberOfAnimals);
+            assertEquals(expected.numberOfPlants, parsed.numberOfPlants);
+            assertEquals(expected.meanEnergyLevel, parsed.meanEnergyLevel);
+            assertEquals(expected.meanLifespan, parsed.meanLifespan);
+            assertEquals(expected.meanNumberOfChildren, parsed.meanNumberOfChildren);
+            assertEquals(expected.genesCount, parsed.genesCount);
+            assertEquals(expected.energyQuantiles, parsed.energyQuantiles);
+            assertEquals(expected.lifespanQuantiles, parsed.lifespanQuantiles);
+            assertEquals(expected.numberOfChildrenQuantiles, parsed.numberOfChildrenQuantiles);
+            assertEquals(expected.diversity, parsed.diversity);
+        }
+    }
+
+    @Test
+    public void rotatedFilesAreNumbered(@TempDir Path directory) throws IOException {
+        List<StatisticsContainer> days = simulateDays(25);
+        export(directory, ExportFormat.CSV, false, 10, days);
+
+        assertFalse(Files.exists(directory.resolve("statistics.csv")));
+        assertFalse(Files.exists(directory.resolve("statistics-0003.csv")));
+
+        int day = 0;
+        for(int file = 0; file < 3; file++) {
+            List<String> lines = readLines(directory.resolve(String.format("statistics-%04d.csv", file)), false);
+
+            // Every file has its own header
+            assertEquals(ExportFormat.CSV.header(), lines.get(0));
+            assertEquals(file < 2 ? 10 : 5, lines.size() - 1);
+
+            for(String line : lines.subList(1, lines.size())) {
+                assertEquals(days.get(day).currentDay, Integer.parseInt(line.split(",")[0]));
+                day += 1;
+            }
+        }
+    }
+
+    @Test
+    public void compressedFilesHoldTheSameLines(@TempDir Path directory) throws IOException {
+        List<StatisticsContainer> days = simulateDays(30);
+        export(directory.resolve("plain"), ExportFormat.JSON_LINES, false, 0, days);
+        export(directory.resolve("compressed"), ExportFormat.JSON_LINES, true, 0, days);
+
+        assertEquals(readLines(directory.resolve("plain").resolve("statistics.jsonl"), false),
+                readLines(directory.resolve("compressed").resolve("statistics.jsonl.gz"), true));
+    }
+
+    @Test
+    public void closeWritesEveryQueuedRecord(@TempDir Path directory) throws IOException {
+        List<StatisticsContainer> days = simulateDays(10);
+        List<StatisticsContainer> manyDays = new ArrayList<>();
+        for(int i = 0; i < 500; i++) {
+            manyDays.addAll(days);
+        }
+
+        StreamingStatisticsExporter exporter = new StreamingStatisticsExporter(directory, "statistics",
+                ExportFormat.CSV, false, 0, manyDays.size());
+        for(StatisticsContainer container : manyDays) {
+            assertTrue(exporter.record(container));
+        }
+        exporter.close();
+
+        assertEquals(manyDays.size(), exporter.getWrittenRecords());
+        assertEquals(0, exporter.getDroppedRecords());
+        assertEquals(manyDays.size() + 1, readLines(directory.resolve("statistics.csv"), false).size());
+        assertFalse(exporter.record(days.get(0)));
+    }
+
+    @Test
+    public void recordsAreDroppedWhenTheQueueIsFull(@TempDir Path directory) throws IOException {
+        List<StatisticsContainer> days = simulateDays(10);
+        int recorded = 0;
+
+        StreamingStatisticsExporter exporter = new StreamingStatisticsExporter(directory, "statistics",
+                ExportFormat.JSON_LINES, false, 0, 1);
+        for(int i = 0; i < 10_000; i++) {
+            if(exporter.record(days.get(i % days.size()))) {
+                recorded += 1;
+            }
+        }
+        exporter.close();
+
+        assertTrue(exporter.getDroppedRecords() > 0);
+        assertEquals(10_000, recorded + exporter.getDroppedRecords());
+        assertEquals(recorded, exporter.getWrittenRecords());
+        assertEquals(recorded, readLines(directory.resolve("statistics.jsonl"), false).size());
+    }
+
+    @Test
+    public void recordsAfterAWriteErrorAreCountedAsDropped(@TempDir Path directory) throws IOException,
+            InterruptedException {
+        List<StatisticsContainer> days = simulateDays(10);
+        // A file where the directory should be makes the writer fail
+        Path notADirectory = Files.createFile(directory.resolve("statistics"));
+
+        StreamingStatisticsExporter exporter = new StreamingStatisticsExporter(notADirectory, "statistics",
+                ExportFormat.JSON_LINES, false, 0);
+        exporter.record(days.get(0));
+        while (!exporter.hasFailed()) {
+            Thread.sleep(1);
+        }
+
+        for(int i = 1; i < days.size(); i++) {
+            assertFalse(exporter.record(days.get(i)));
+        }
+        exporter.close();
+
+        assertTrue(exporter.hasFailed());
+        assertEquals(0, exporter.getWrittenRecords());
+        assertEquals(days.size(), exporter.getDroppedRecords());
+    }
+
+    @Test
+    public void queueMustHoldARecord(@TempDir Path directory) {
+        assertThrows(IllegalArgumentException.class, () -> new StreamingStatisticsExporter(directory,
+                "statistics", ExportFormat.CSV, false, 0, 0));
+    }
+}
@@ -0,0 +1,101 @@
+package util.recording;
+
+import datatypes.Vector2d;
+import entities.Animal;
+import entities.Simulation;
+import entities.WorldMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorldRecorderTest {
+    private static Map<Integer, String> describeAnimals(WorldMap map) {
+        Map<Integer, String> descriptions = new HashMap<>();
+        Iterator<Animal> iterator = map.getAnimalsIterator();
+
+        while (iterator.hasNext()) {
+            Animal animal = iterator.next();
+            descriptions.put(animal.getId(),
+                    animal.getPosition() + " " + animal.getEnergy() + " " + animal.getOrientation());
+        }
+
+        return descriptions;
+    }
+
+    private static Map<Integer, String> describeAnimals(RecordedWorld world) {
+        Map<Integer, String> descriptions = new HashMap<>();
+        world.getAnimals().forEach(animal ->
+                descriptions.put(animal.id, animal.position + " " + animal.energy + " " + animal.orientation));
+
+        return descriptions;
+    }
+
+    private static Set<Vector2d> getPlantPositions(WorldMap map) {
+        Set<Vector2d> positions = new HashSet<>();
+        map.getPlantsIterator().forEachRemaining(plant -> positions.add(plant.getPosition()));
+
+        return positions;
+    }
+
+    private static void checkRecording(Simulation simulation, Path directory) throws Exception {
+        simulation.generateAnimalsAtRandomPositions(100);
+
+        List<Map<Integer, String>> animalsByDay = new ArrayList<>();
+        List<Set<Vector2d>> plantsByDay = new ArrayList<>();
+
+        try (WorldRecorder recorder = new WorldRecorder(directory, 7)) {
+            simulation.addPhaseObserver(recorder);
+
+            for(int i = 0; i < 30; i++) {
+                simulation.simulateDay();
+                animalsByDay.add(describeAnimals(simulation.getMap()));
+                plantsByDay.add(getPlantPositions(simulation.getMap()));
+            }
+        }
+
+        WorldRecordingReader reader = new WorldRecordingReader(directory);
+        assertEquals(30, reader.getLastDay() - reader.getFirstDay() + 1);
+
+        // Checking the days in reverse order, so the reader can't depend on previous calls
+        for(int i = 29; i >= 0; i--) {
+            RecordedWorld world = reader.rebuild(reader.getFirstDay() + i);
+
+            assertEquals(animalsByDay.get(i), describeAnimals(world));
+            assertEquals(plantsByDay.get(i).size(), world.getNumberOfPlants());
+            for(Vector2d position : plantsByDay.get(i)) {
+                assertTrue(world.isPlantAt(position));
+            }
+        }
+    }
+
+    @Test
+    public void everyRecordedDayIsRebuiltCorrectly(@TempDir Path directory) throws Exception {
+        checkRecording(new Simulation(30, 30, 50, 20, 1, 0.5, 32, 8, 3), directory);
+    }
+
+    @Test
+    public void everyDoubleBufferedDayIsRebuiltCorrectly(@TempDir Path directory) throws Exception {
+        Simulation simulation = new Simulation(30, 30, 50, 20, 1, 0.5, 32, 8, 3);
+        simulation.setDoubleBuffered(true);
+
+        checkRecording(simulation, directory);
+    }
+
+    @Test
+    public void rebuildingNotRecordedDayThrows(@TempDir Path directory) throws Exception {
+        Simulation simulation = new Simulation(10, 10, 50, 20, 1, 0.5, 32, 8, 3);
+        simulation.generateAnimalsAtRandomPositions(10);
+
+        try (WorldRecorder recorder = new WorldRecorder(directory, 3)) {
+            simulation.addPhaseObserver(recorder);
+            simulation.simulateDay();
+        }
+
+        WorldRecordingReader reader = new WorldRecordingReader(directory);
+        assertThrows(IllegalArgumentException.class, () -> reader.rebuild(reader.getLastDay() + 1));
+    }
+}
@@ -0,0 +1,86 @@
+package util.replay;
+
+import datatypes.containers.StatisticsContainer;
+import entities.Simulation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.FileParser;
+import util.Parameters;
+import util.export.ExportFormat;
+import util.export.StreamingStatisticsExporter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayEngineTest {
+    private static RunDescriptor createDescriptor() {
+        Parameters parameters = new Parameters();
+        parameters.width = 30;
+        parameters.height = 30;
+        parameters.startEnergy = 50;
+        parameters.plantEnergy = 20;
+        parameters.moveEnergy = 1;
+        parameters.jungleRatio = 0.5;
+
+        return new RunDescriptor(parameters, 1234, 100, 32, 8);
+    }
+
+    private static List<StatisticsContainer> recordRun(RunDescriptor descriptor, int days) {
+        Simulation simulation = descriptor.createSimulation();
+        List<StatisticsContainer> result = new ArrayList<>();
+
+        for(int i = 0; i < days; i++) {
+            simulation.simulateDay();
+            result.add(simulation.getCurrentDayStatistics());
+        }
+
+        return result;
+    }
+
+    @Test
+    public void replayOfExportedRunIsIdentical(@TempDir Path directory) throws Exception {
+        RunDescriptor descriptor = createDescriptor();
+        FileParser parser = new FileParser();
+
+        try (StreamingStatisticsExporter exporter = new StreamingStatisticsExporter(directory, "statistics",
+                ExportFormat.JSON_LINES, true, 0)) {
+            recordRun(descriptor, 60).forEach(exporter::record);
+        }
+        parser.writeRunDescriptor(descriptor, directory.resolve("run.json").toString());
+
+        ReplayResult result = ReplayEngine.replay(parser.readRunDescriptor(directory.resolve("run.json").toString()),
+                parser.readStatisticsLog(directory.resolve("statistics.jsonl.gz").toString()));
+
+        assertTrue(result.isIdentical(), result.toString());
+        assertEquals(60, result.replayedDays);
+    }
+
+    @Test
+    public void firstDivergenceIsReported() {
+        RunDescriptor descriptor = createDescriptor();
+        List<StatisticsContainer> recorded = recordRun(descriptor, 40);
+
+        StatisticsContainer original = recorded.get(25);
+        recorded.set(25, new StatisticsContainer(original.numberOfAnimals, original.numberOfPlants + 1,
+                original.meanEnergyLevel, original.meanLifespan, original.meanNumberOfChildren,
+                original.currentDay, original.genesCount));
+
+        ReplayResult result = ReplayEngine.replay(descriptor, recorded);
+
+        assertFalse(result.isIdentical());
+        assertEquals(original.currentDay, result.divergenceDay);
+        assertTrue(result.divergenceDescription.startsWith("numberOfPlants"));
+    }
+
+    @Test
+    public void differentSeedDiverges() {
+        RunDescriptor descriptor = createDescriptor();
+        List<StatisticsContainer> recorded = recordRun(descriptor, 40);
+        descriptor.seed += 1;
+
+        assertFalse(ReplayEngine.replay(descriptor, recorded).isIdentical());
+    }
+}
@@ -0,0 +1,135 @@
+package util.tracking;
+
+import datatypes.Vector2d;
+import datatypes.containers.TrajectoryContainer;
+import datatypes.observers.IAnimalStateObserver;
+import entities.Animal;
+import entities.Simulation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnimalTrackerTest {
+    /**
+     * Expected trajectory of a tracked animal, collected straight from the simulation
+     */
+    private static class ExpectedTrajectory implements IAnimalStateObserver {
+        final List<int[]> samples = new ArrayList<>();
+        final List<int[]> children = new ArrayList<>();
+        final Simulation simulation;
+        int deathDay = -1;
+
+        ExpectedTrajectory(Simulation simulation) {
+            this.simulation = simulation;
+        }
+
+        @Override
+        public void animalDied(Animal deadAnimal) {
+            deathDay = simulation.getCurrentDay();
+        }
+
+        @Override
+        public void animalBorn(Animal parent, Animal child) {
+            children.add(new int[]{simulation.getCurrentDay(), child.getId()});
+        }
+    }
+
+    private static Map<Integer, ExpectedTrajectory> trackRun(Path file, int days) throws Exception {
+        Simulation simulation = new Simulation(30, 30, 50, 20, 1, 0.5, 32, 8, 23);
+        simulation.generateAnimalsAtRandomPositions(100);
+        Map<Integer, ExpectedTrajectory> expected = new HashMap<>();
+        Map<Animal, ExpectedTrajectory> living = new LinkedHashMap<>();
+
+        try (AnimalTracker tracker = new AnimalTracker(file)) {
+            simulation.setAnimalTracker(tracker);
+
+            int i = 0;
+            for(Iterator<Animal> iterator = simulation.getMap().getAnimalsIterator(); i < 40; i++) {
+                Animal animal = iterator.next();
+                ExpectedTrajectory trajectory = new ExpectedTrajectory(simulation);
+
+                tracker.track(animal);
+                animal.addStateObserver(trajectory);
+                expected.put(animal.getId(), trajectory);
+                living.put(animal, trajectory);
+            }
+
+            assertEquals(40, tracker.getNumberOfTrackedAnimals());
+
+            for(int day = 0; day < days; day++) {
+                simulation.simulateDay();
+
+                for(Map.Entry<Animal, ExpectedTrajectory> entry : living.entrySet()) {
+                    Animal animal = entry.getKey();
+
+                    if(entry.getValue().deathDay == -1) {
+                        entry.getValue().samples.add(new int[]{simulation.getCurrentDay(),
+                                animal.getPosition().x_coordinate, animal.getPosition().y_coordinate,
+                                animal.getEnergy()});
+                    }
+                }
+            }
+        }
+
+        return expected;
+    }
+
+    @Test
+    public void trajectoriesAreReadBackExactly(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("tracking.bin");
+        Map<Integer, ExpectedTrajectory> expected = trackRun(file, 300);
+        TrajectoryReader reader = new TrajectoryReader(file);
+
+        assertEquals(expected.keySet(), reader.getTrackedIds());
+
+        boolean anyDied = false;
+        boolean anyChildren = false;
+
+        for(Map.Entry<Integer, ExpectedTrajectory> entry : expected.entrySet()) {
+            ExpectedTrajectory expectedTrajectory = entry.getValue();
+            TrajectoryContainer trajectory = reader.getTrajectory(entry.getKey()).orElseThrow();
+
+            assertEquals(expectedTrajectory.deathDay, trajectory.deathDay);
+            assertEquals(expectedTrajectory.samples.size(), trajectory.getNumberOfSamples());
+            for(int i = 0; i < trajectory.getNumberOfSamples(); i++) {
+                int[] sample = expectedTrajectory.samples.get(i);
+
+                assertEquals(sample[0], trajectory.getDay(i));
+                assertEquals(new Vector2d(sample[1], sample[2]), trajectory.getPosition(i));
+                assertEquals(sample[3], trajectory.getEnergy(i));
+            }
+
+            assertEquals(expectedTrajectory.children.size(), trajectory.getNumberOfChildren());
+            for(int i = 0; i < trajectory.getNumberOfChildren(); i++) {
+                assertEquals(expectedTrajectory.children.get(i)[0], trajectory.getBirthDay(i));
+                assertEquals(expectedTrajectory.children.get(i)[1], trajectory.getChildId(i));
+            }
+
+            anyDied |= trajectory.isDead();
+            anyChildren |= trajectory.getNumberOfChildren() > 0;
+        }
+
+        assertTrue(anyDied);
+        assertTrue(anyChildren);
+        assertFalse(reader.getTrajectory(-1).isPresent());
+    }
+
+    @Test
+    public void cutOffBlockIsIgnored(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("tracking.bin");
+        trackRun(file, 50);
+        int numberOfAnimals = new TrajectoryReader(file).getTrackedIds().size();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        assertEquals(numberOfAnimals - 1, new TrajectoryReader(file).getTrackedIds().size());
+    }
+}